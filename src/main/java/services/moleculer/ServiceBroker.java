@@ -61,6 +61,7 @@ import services.moleculer.eventbus.Eventbus;
 import services.moleculer.eventbus.Groups;
 import services.moleculer.internal.NodeService;
 import services.moleculer.service.Action;
+import services.moleculer.service.ActionHandle;
 import services.moleculer.service.DefaultServiceInvoker;
 import services.moleculer.service.DefaultServiceRegistry;
 import services.moleculer.service.Middleware;
@@ -513,6 +514,14 @@ public class ServiceBroker {
 				}
 			}
 			logger.info("Task Executor Service stopped.");
+			ExecutorService blockingExecutor = config.getBlockingExecutor();
+			if (blockingExecutor != null && !blockingExecutor.isShutdown() && !blockingExecutor.isTerminated()) {
+				try {
+					blockingExecutor.shutdownNow();
+				} catch (Exception ignored) {
+				}
+				logger.info("Blocking Task Executor Service stopped.");
+			}
 			ScheduledExecutorService scheduler = config.getScheduler();
 			if (scheduler != null && !scheduler.isShutdown() && !scheduler.isTerminated()) {
 				try {
@@ -690,6 +699,27 @@ public class ServiceBroker {
 		return serviceRegistry.getAction(actionName, nodeID);
 	}
 
+	// --- GET PRE-RESOLVED ACTION HANDLE ---
+
+	/**
+	 * Returns a reusable handle of an action. The handle caches the endpoint
+	 * list of the action, so frequently called actions can be invoked without
+	 * name lookups. The cached data is refreshed automatically when the
+	 * Service Registry changes. Sample code:<br>
+	 * <br>
+	 * ActionHandle add = broker.getActionHandle("math.add");<br>
+	 * Promise promise = add.call("a", 1, "b", 2);
+	 *
+	 * @param actionName
+	 *            name of the action (in "service.action" syntax, eg.
+	 *            "math.add")
+	 * 
+	 * @return action handle
+	 */
+	public ActionHandle getActionHandle(String actionName) {
+		return new ActionHandle(actionName, serviceRegistry, serviceInvoker);
+	}
+
 	// --- INVOKE LOCAL OR REMOTE ACTION ---
 
 	/**
@@ -1071,7 +1101,12 @@ public class ServiceBroker {
 	 * @return new stream
 	 */
 	public PacketStream createStream() {
-		return new PacketStream(config.getScheduler());
+		PacketStream stream = new PacketStream(config.getScheduler());
+		Transporter t = config.getTransporter();
+		if (t != null) {
+			stream.setMaxPacketSize(t.getMaxStreamChunkSize());
+		}
+		return stream;
 	}
 
 	// --- START DEVELOPER CONSOLE ---
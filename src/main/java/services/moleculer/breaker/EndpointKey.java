@@ -71,4 +71,12 @@ public class EndpointKey {
 		return true;
 	}
 
+	public String getNodeID() {
+		return nodeID;
+	}
+
+	public String getName() {
+		return name;
+	}
+
 }
@@ -0,0 +1,175 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2017 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.bulkhead;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.datatree.Promise;
+import services.moleculer.context.Context;
+import services.moleculer.error.QueueIsFullError;
+import services.moleculer.service.Action;
+
+/**
+ * Concurrency limiter and waiting queue of one Action.
+ * 
+ * @see BulkheadMiddleware
+ */
+public class ActionLimiter implements Action {
+
+	// --- PROPERTIES ---
+
+	protected final String nodeID;
+	protected final String name;
+	protected final Action action;
+	protected final ExecutorService executor;
+	protected final int concurrency;
+	protected final int maxQueueSize;
+
+	// --- WAITING CALLS ---
+
+	protected final ArrayDeque<QueuedCall> queue = new ArrayDeque<>();
+
+	// --- COUNTERS ---
+
+	protected int active;
+
+	protected final AtomicLong rejected = new AtomicLong();
+
+	// --- CONSTRUCTOR ---
+
+	public ActionLimiter(String nodeID, String name, Action action, ExecutorService executor, int concurrency,
+			int maxQueueSize) {
+		this.nodeID = nodeID;
+		this.name = name;
+		this.action = action;
+		this.executor = executor;
+		this.concurrency = concurrency;
+		this.maxQueueSize = maxQueueSize;
+	}
+
+	// --- INVOKE ACTION ---
+
+	@Override
+	public Object handler(Context ctx) throws Exception {
+		synchronized (queue) {
+			if (active >= concurrency) {
+				if (queue.size() >= maxQueueSize) {
+					rejected.incrementAndGet();
+					throw new QueueIsFullError(nodeID, name);
+				}
+
+				// Wait for a free slot
+				Promise promise = new Promise();
+				queue.addLast(new QueuedCall(ctx, promise));
+				return promise;
+			}
+			active++;
+		}
+		Promise promise = new Promise();
+		execute(ctx, promise);
+		return promise;
+	}
+
+	protected void execute(Context ctx, Promise promise) {
+		try {
+			Promise.resolve(action.handler(ctx)).then(rsp -> {
+				release();
+				promise.complete(rsp);
+			}).catchError(cause -> {
+				release();
+				promise.complete(cause);
+			});
+		} catch (Throwable cause) {
+			release();
+			promise.complete(cause);
+		}
+	}
+
+	protected void release() {
+		QueuedCall next;
+		synchronized (queue) {
+			next = queue.pollFirst();
+			if (next == null) {
+				active--;
+				return;
+			}
+		}
+
+		// Pass the slot to the next waiting call
+		executor.execute(() -> {
+			execute(next.ctx, next.promise);
+		});
+	}
+
+	// --- WAITING CALL ---
+
+	protected static final class QueuedCall {
+
+		protected final Context ctx;
+		protected final Promise promise;
+
+		protected QueuedCall(Context ctx, Promise promise) {
+			this.ctx = ctx;
+			this.promise = promise;
+		}
+
+	}
+
+	// --- METRICS ---
+
+	public int getActive() {
+		synchronized (queue) {
+			return active;
+		}
+	}
+
+	public int getQueued() {
+		synchronized (queue) {
+			return queue.size();
+		}
+	}
+
+	public long getRejected() {
+		return rejected.get();
+	}
+
+	// --- GETTERS ---
+
+	public String getName() {
+		return name;
+	}
+
+	public int getConcurrency() {
+		return concurrency;
+	}
+
+	public int getMaxQueueSize() {
+		return maxQueueSize;
+	}
+
+}
\ No newline at end of file
@@ -0,0 +1,133 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2017 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.bulkhead;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+
+import io.datatree.Tree;
+import services.moleculer.ServiceBroker;
+import services.moleculer.service.Action;
+import services.moleculer.service.Middleware;
+import services.moleculer.service.Name;
+import services.moleculer.util.FastBuildTree;
+
+/**
+ * Limits the number of concurrently running calls of local Actions. Actions
+ * with "@Bulkhead" annotation get their own concurrency limit and waiting
+ * queue, so a slow Action cannot use up all threads of the node. When both
+ * the slots and the queue are full, the call is rejected with
+ * QueueIsFullError. Sample code:<br>
+ * <br>
+ * &#64;Bulkhead(concurrency = 5, maxQueueSize = 50)<br>
+ * public Action slowAction = ctx -&gt; { ... };<br>
+ * ...<br>
+ * broker.use(new BulkheadMiddleware());
+ */
+@Name("Bulkhead")
+public class BulkheadMiddleware extends Middleware {
+
+	// --- LIMITERS BY ACTION NAME ---
+
+	protected final ConcurrentHashMap<String, ActionLimiter> limiters = new ConcurrentHashMap<>(64);
+
+	// --- COMPONENTS ---
+
+	protected String nodeID;
+	protected ExecutorService executor;
+
+	// --- START MIDDLEWARE ---
+
+	@Override
+	public void started(ServiceBroker broker) throws Exception {
+		super.started(broker);
+		this.nodeID = broker.getNodeID();
+		this.executor = broker.getConfig().getExecutor();
+	}
+
+	// --- STOP MIDDLEWARE ---
+
+	@Override
+	public void stopped() {
+		limiters.clear();
+	}
+
+	// --- ADD MIDDLEWARE TO ACTION ---
+
+	@Override
+	public Action install(Action action, Tree config) {
+
+		// Is bulkhead enabled?
+		Tree bulkheadNode = config.get("bulkhead");
+		if (bulkheadNode == null) {
+			return null;
+		}
+
+		// Get limits
+		int concurrency = Math.max(1, bulkheadNode.get("concurrency", 10));
+		int maxQueueSize = Math.max(0, bulkheadNode.get("maxQueueSize", 100));
+
+		// Create limiter
+		String name = config.get("name", "unknown");
+		ActionLimiter limiter = new ActionLimiter(nodeID, name, action, executor, concurrency, maxQueueSize);
+		limiters.put(name, limiter);
+		return limiter;
+	}
+
+	// --- METRICS ---
+
+	/**
+	 * Returns the number of active, queued and rejected calls per Action (eg.
+	 * {"math.add":{"active":5,"queued":12,"rejected":0}}).
+	 * 
+	 * @return metrics of the limited actions
+	 */
+	public Tree getMetrics() {
+		FastBuildTree metrics = new FastBuildTree(limiters.size());
+		for (Map.Entry<String, ActionLimiter> entry : limiters.entrySet()) {
+			ActionLimiter limiter = entry.getValue();
+			FastBuildTree action = metrics.putMapUnsafe(entry.getKey(), 3);
+			action.putUnsafe("active", limiter.getActive());
+			action.putUnsafe("queued", limiter.getQueued());
+			action.putUnsafe("rejected", limiter.getRejected());
+		}
+		return metrics;
+	}
+
+	/**
+	 * Returns the limiter of the specified Action.
+	 * 
+	 * @param name
+	 *            qualified name of the action (eg. "math.add")
+	 * 
+	 * @return limiter (or null)
+	 */
+	public ActionLimiter getLimiter(String name) {
+		return limiters.get(name);
+	}
+
+}
\ No newline at end of file
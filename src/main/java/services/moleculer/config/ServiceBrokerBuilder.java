@@ -85,6 +85,21 @@ public class ServiceBrokerBuilder {
 		return this;
 	}
 
+	public ServiceBrokerBuilder virtualThreads(boolean virtualThreads) {
+		config.setVirtualThreads(virtualThreads);
+		return this;
+	}
+
+	public ServiceBrokerBuilder maxBlockingThreads(int maxBlockingThreads) {
+		config.setMaxBlockingThreads(maxBlockingThreads);
+		return this;
+	}
+
+	public ServiceBrokerBuilder blockingExecutor(ExecutorService blockingExecutor) {
+		config.setBlockingExecutor(blockingExecutor);
+		return this;
+	}
+
 	public ServiceBrokerBuilder context(ContextFactory contextFactory) {
 		config.setContextFactory(contextFactory);
 		return this;
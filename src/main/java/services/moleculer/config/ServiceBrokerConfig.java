@@ -32,7 +32,13 @@ import java.util.Objects;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import services.moleculer.cacher.Cacher;
 import services.moleculer.cacher.MemoryCacher;
@@ -55,6 +61,10 @@ import services.moleculer.uid.UidGenerator;
 
 public class ServiceBrokerConfig {
 
+	// --- LOGGER ---
+
+	protected final Logger logger = LoggerFactory.getLogger(getClass());
+
 	// --- THREAD POOLS ---
 
 	protected ExecutorService executor;
@@ -62,6 +72,25 @@ public class ServiceBrokerConfig {
 
 	protected boolean shutDownThreadPools = true;
 
+	/**
+	 * Invoke the "@Blocking" actions and listeners on virtual threads (Java
+	 * 21+). On older JVMs a bounded thread pool is used instead (see
+	 * "maxBlockingThreads").
+	 */
+	protected boolean virtualThreads;
+
+	/**
+	 * Max number of threads of the "@Blocking" handlers, when the JVM does
+	 * not support virtual threads (the other tasks wait in the queue)
+	 */
+	protected int maxBlockingThreads = 64;
+
+	/**
+	 * Executor of the "@Blocking" actions and listeners (null = invoke
+	 * blocking handlers in the same way as the non-blocking ones)
+	 */
+	protected ExecutorService blockingExecutor;
+
 	// --- PROPERTIES ---
 
 	protected String namespace = "";
@@ -170,6 +199,55 @@ public class ServiceBrokerConfig {
 		this.scheduler = Objects.requireNonNull(scheduler);
 	}
 
+	public boolean isVirtualThreads() {
+		return virtualThreads;
+	}
+
+	public void setVirtualThreads(boolean virtualThreads) {
+		this.virtualThreads = virtualThreads;
+	}
+
+	public ExecutorService getBlockingExecutor() {
+		if (blockingExecutor == null && virtualThreads) {
+			blockingExecutor = createBlockingExecutor();
+		}
+		return blockingExecutor;
+	}
+
+	public void setBlockingExecutor(ExecutorService blockingExecutor) {
+		this.blockingExecutor = blockingExecutor;
+	}
+
+	/**
+	 * Creates a "virtual thread per task" executor when the JVM supports
+	 * virtual threads, otherwise a thread pool with max "maxBlockingThreads"
+	 * threads.
+	 * 
+	 * @return executor of the blocking handlers
+	 */
+	protected ExecutorService createBlockingExecutor() {
+		try {
+			Method m = Executors.class.getMethod("newVirtualThreadPerTaskExecutor", new Class[0]);
+			return (ExecutorService) m.invoke(null, new Object[0]);
+		} catch (Throwable notSupported) {
+			int threads = Math.max(1, maxBlockingThreads);
+			logger.warn("Virtual threads are not supported by this JVM, blocking handlers are invoked by a thread pool (max "
+					+ threads + " threads).");
+			ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+					new LinkedBlockingQueue<>());
+			pool.allowCoreThreadTimeOut(true);
+			return pool;
+		}
+	}
+
+	public int getMaxBlockingThreads() {
+		return maxBlockingThreads;
+	}
+
+	public void setMaxBlockingThreads(int maxBlockingThreads) {
+		this.maxBlockingThreads = maxBlockingThreads;
+	}
+
 	public boolean isShutDownThreadPools() {
 		return shutDownThreadPools;
 	}
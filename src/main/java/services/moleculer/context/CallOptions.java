@@ -74,14 +74,23 @@ public class CallOptions {
 		// --- VARIABLE SETTERS ---
 
 		public Options nodeID(String nodeID) {
+			if (nodeID == null ? this.nodeID == null : nodeID.equals(this.nodeID)) {
+				return this;
+			}
 			return new Options(nodeID, timeout, retryCount);
 		}
 
 		public Options timeout(long timeoutMillis) {
+			if (timeoutMillis == timeout) {
+				return this;
+			}
 			return new Options(nodeID, timeoutMillis, retryCount);
 		}
 
 		public Options retryCount(int retryCount) {
+			if (retryCount == this.retryCount) {
+				return this;
+			}
 			return new Options(nodeID, timeout, retryCount);
 		}
 
@@ -34,6 +34,7 @@ import services.moleculer.eventbus.Eventbus;
 import services.moleculer.eventbus.Groups;
 import services.moleculer.service.ServiceInvoker;
 import services.moleculer.strategy.Strategy;
+import services.moleculer.stream.DuplexStream;
 import services.moleculer.stream.PacketStream;
 import services.moleculer.util.ParseResult;
 
@@ -77,17 +78,33 @@ public class Context {
 	public final CallOptions.Options opts;
 
 	/**
-	 * Context creation time
+	 * Context creation time (wall-clock time, 0 = no timeout)
+	 * 
+	 * @deprecated the timeouts are calculated from the {@link #deadline}
 	 */
+	@Deprecated
 	public final long startTime;
 
+	/**
+	 * Deadline of the call (null = no timeout)
+	 */
+	public final Deadline deadline;
+
 	// --- STREAM ---
 
 	/**
 	 * Streamed content
 	 */
 	public PacketStream stream;
-	
+
+	// --- CACHED CALLING OPTIONS ---
+
+	/**
+	 * Last calling options of the nested calls (Options are immutable, so
+	 * nested calls within the same millisecond can share one instance)
+	 */
+	protected CallOptions.Options nestedOpts;
+
 	// --- COMPONENTS ---
 
 	protected final ServiceInvoker serviceInvoker;
@@ -114,11 +131,13 @@ public class Context {
 		// Set the first ID
 		this.requestID = id;
 
-		// Start time
+		// Start time and deadline
 		if (opts != null && opts.timeout > 0) {
 			this.startTime = System.currentTimeMillis();
+			this.deadline = Deadline.after(opts.timeout);
 		} else {
 			this.startTime = 0;
+			this.deadline = null;
 		}
 	}
 
@@ -140,11 +159,13 @@ public class Context {
 		// Get the request ID from parent
 		this.requestID = parent.requestID;
 
-		// Start time
+		// Start time and deadline (inherited from the parent, if it's earlier)
 		if (opts != null && opts.timeout > 0) {
 			this.startTime = System.currentTimeMillis();
+			this.deadline = Deadline.after(opts.timeout).earliest(parent.deadline);
 		} else {
 			this.startTime = 0;
+			this.deadline = parent.deadline;
 		}
 	}
 
@@ -165,11 +186,13 @@ public class Context {
 		this.stream = stream;
 		this.requestID = requestID;
 
-		// Start time
+		// Start time and deadline
 		if (opts != null && opts.timeout > 0) {
 			this.startTime = System.currentTimeMillis();
+			this.deadline = Deadline.after(opts.timeout);
 		} else {
 			this.startTime = 0;
+			this.deadline = null;
 		}
 	}
 
@@ -270,20 +293,25 @@ public class Context {
 	protected Promise call(String name, Tree params, CallOptions.Options opts, PacketStream stream) {
 
 		// Recalculate distributed timeout
-		if (startTime > 0) {
+		if (deadline != null) {
 
-			// Distributed timeout handling. Decrementing the timeout value with
-			// the elapsed time.
+			// Distributed timeout handling. The remaining time of the
+			// deadline is the timeout of the nested call.
 			// If the timeout below 0, skip the call.
-			final long duration = System.currentTimeMillis() - startTime;
-			final long distTimeout = this.opts.timeout - duration;
+			final long distTimeout = deadline.remaining();
 
 			if (distTimeout <= 0) {
 				return Promise.reject(new RequestRejectedError(serviceInvoker.getBroker().getNodeID(), name));
 			}
 
 			if (opts == null) {
-				opts = CallOptions.timeout(distTimeout);
+				CallOptions.Options cached = nestedOpts;
+				if (cached != null && cached.timeout == distTimeout) {
+					opts = cached;
+				} else {
+					opts = CallOptions.timeout(distTimeout);
+					nestedOpts = opts;
+				}
 			} else if (opts.timeout < 1 || distTimeout < opts.timeout) {
 				opts = opts.timeout(distTimeout);
 			}
@@ -506,7 +534,87 @@ public class Context {
 	 * @return new stream
 	 */
 	public PacketStream createStream() {
-		return new PacketStream(eventbus.getBroker().getConfig().getScheduler());
+		return eventbus.getBroker().createStream();
+	}
+
+	// --- BIDIRECTIONAL STREAMS ---
+
+	/**
+	 * Calls an action and opens a bidirectional stream between the caller and
+	 * the action. Both sides can send packets concurrently; each direction
+	 * has its own sequence numbers and flow control (the outgoing direction
+	 * is the request stream, the incoming is the response stream of the
+	 * call). Sample:<br>
+	 * 
+	 * <pre>
+	 * DuplexStream chat = ctx.openDuplexStream("chat.join", "room", "lobby");
+	 * chat.getInput().onPacket((bytes, cause, close) -&gt; {
+	 *   // Process the incoming messages
+	 * });
+	 * chat.getOutput().sendData("Hello!".getBytes());
+	 * </pre>
+	 * 
+	 * @param name
+	 *            action name (eg. "chat.join" in "service.action" syntax)
+	 * @param params
+	 *            list of parameter name-value pairs and an optional CallOptions
+	 * 
+	 * @return new bidirectional stream
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the parameters contain a PacketStream (the request
+	 *             stream is the output of the DuplexStream)
+	 */
+	public DuplexStream openDuplexStream(String name, Object... params) {
+		ParseResult res = parseParams(params);
+		if (res.stream != null) {
+			throw new IllegalArgumentException(
+					"The parameters of a bidirectional stream must not contain a PacketStream!");
+		}
+		PacketStream output = createStream();
+		PacketStream input = createStream();
+		call(name, res.data, res.opts, output).then(rsp -> {
+			Object object = rsp == null ? null : rsp.asObject();
+			if (object instanceof PacketStream) {
+				((PacketStream) object).transferTo(input);
+			} else {
+				input.sendClose();
+			}
+		}).catchError(cause -> {
+			input.sendError(cause);
+			output.sendError(cause);
+		});
+		return new DuplexStream(input, output);
+	}
+
+	/**
+	 * Accepts a bidirectional stream (opened by the caller with
+	 * "openDuplexStream"). The action must return the output stream of the
+	 * DuplexStream. Sample:<br>
+	 * 
+	 * <pre>
+	 * public Action join = ctx -&gt; {
+	 *   DuplexStream chat = ctx.acceptDuplexStream();
+	 *   chat.getInput().onPacket((bytes, cause, close) -&gt; {
+	 *     // Echo the messages
+	 *     if (bytes != null) {
+	 *       chat.getOutput().sendData(bytes);
+	 *     }
+	 *     if (close) {
+	 *       chat.getOutput().sendClose();
+	 *     }
+	 *   });
+	 *   return chat.getOutput();
+	 * }
+	 * </pre>
+	 * 
+	 * @return the bidirectional stream of the call
+	 */
+	public DuplexStream acceptDuplexStream() {
+		if (stream == null) {
+			throw new IllegalStateException("This call has no request stream!");
+		}
+		return new DuplexStream(stream, createStream());
 	}
 	
 }
\ No newline at end of file
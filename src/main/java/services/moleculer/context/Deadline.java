@@ -0,0 +1,141 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2017 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.context;
+
+/**
+ * Immutable, monotonic (System.nanoTime based) deadline of an action call.
+ * The deadline is created once, when the first Context of the call chain is
+ * created; nested calls inherit it, so they compute the remaining time
+ * without reading the wall clock, and without drifting when the system clock
+ * is adjusted. On the wire the deadline is sent as the remaining time (in
+ * milliseconds).
+ */
+public final class Deadline {
+
+	// --- MONOTONIC CLOCK ---
+
+	/**
+	 * Base of the monotonic clock (nanoTime at class initialization)
+	 */
+	private static final long ORIGIN_NANOS = System.nanoTime();
+
+	/**
+	 * Wall-clock time at class initialization (the monotonic milliseconds
+	 * start from here, so they are always positive)
+	 */
+	private static final long ORIGIN_MILLIS = System.currentTimeMillis();
+
+	private static final long NANOS_PER_MILLI = 1000000L;
+
+	// --- PROPERTIES ---
+
+	/**
+	 * Expiration time (in System.nanoTime)
+	 */
+	public final long expiresAt;
+
+	// --- CONSTRUCTOR ---
+
+	private Deadline(long expiresAt) {
+		this.expiresAt = expiresAt;
+	}
+
+	// --- FACTORY METHOD ---
+
+	/**
+	 * Creates a deadline which expires after the specified time.
+	 * 
+	 * @param timeoutMillis
+	 *            timeout in milliseconds
+	 * 
+	 * @return new Deadline
+	 */
+	public static Deadline after(long timeoutMillis) {
+		return new Deadline(System.nanoTime() + timeoutMillis * NANOS_PER_MILLI);
+	}
+
+	// --- MONOTONIC TIME ---
+
+	/**
+	 * Returns the current time of the monotonic clock in milliseconds. This
+	 * value is comparable only with {@link #getTimeoutAt()}, it is not a
+	 * wall-clock time.
+	 * 
+	 * @return monotonic time in milliseconds
+	 */
+	public static long currentTimeMillis() {
+		return ORIGIN_MILLIS + (System.nanoTime() - ORIGIN_NANOS) / NANOS_PER_MILLI;
+	}
+
+	// --- REMAINING TIME ---
+
+	/**
+	 * Returns the remaining time in milliseconds (rounded up, so an unexpired
+	 * deadline always has at least 1 millisecond).
+	 * 
+	 * @return remaining time (0 or negative if expired)
+	 */
+	public long remaining() {
+		long nanos = expiresAt - System.nanoTime();
+		if (nanos <= 0) {
+			return nanos / NANOS_PER_MILLI;
+		}
+		return (nanos + NANOS_PER_MILLI - 1) / NANOS_PER_MILLI;
+	}
+
+	public boolean isExpired() {
+		return expiresAt - System.nanoTime() <= 0;
+	}
+
+	/**
+	 * Returns the expiration time in the monotonic clock's milliseconds (see
+	 * {@link #currentTimeMillis()}).
+	 * 
+	 * @return expiration time in milliseconds
+	 */
+	public long getTimeoutAt() {
+		long nanos = expiresAt - ORIGIN_NANOS;
+		return ORIGIN_MILLIS + (nanos + NANOS_PER_MILLI - 1) / NANOS_PER_MILLI;
+	}
+
+	// --- COMPARE DEADLINES ---
+
+	/**
+	 * Returns the earlier deadline.
+	 * 
+	 * @param other
+	 *            other deadline (or null)
+	 * 
+	 * @return the earlier deadline
+	 */
+	public Deadline earliest(Deadline other) {
+		if (other == null || expiresAt - other.expiresAt <= 0) {
+			return this;
+		}
+		return other;
+	}
+
+}
\ No newline at end of file
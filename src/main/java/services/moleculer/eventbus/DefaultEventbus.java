@@ -43,6 +43,7 @@ import io.datatree.Tree;
 import io.datatree.dom.Cache;
 import services.moleculer.ServiceBroker;
 import services.moleculer.config.ServiceBrokerConfig;
+import services.moleculer.service.Blocking;
 import services.moleculer.service.Name;
 import services.moleculer.service.Service;
 import services.moleculer.strategy.Strategy;
@@ -100,6 +101,7 @@ public class DefaultEventbus extends Eventbus {
 	protected StrategyFactory strategy;
 	protected Transporter transporter;
 	protected ExecutorService executor;
+	protected ExecutorService blockingExecutor;
 
 	// --- CONSTRUCTORS ---
 
@@ -138,6 +140,7 @@ public class DefaultEventbus extends Eventbus {
 		this.strategy = cfg.getStrategyFactory();
 		this.transporter = cfg.getTransporter();
 		this.executor = cfg.getExecutor();
+		this.blockingExecutor = cfg.getBlockingExecutor();
 	}
 
 	// --- STOP EVENT BUS ---
@@ -225,6 +228,7 @@ public class DefaultEventbus extends Eventbus {
 		Field[] fields = clazz.getFields();
 
 		boolean hasListener = false;
+		LinkedList<String[]> balancedSubscriptions = null;
 		writeLock.lock();
 		try {
 
@@ -258,6 +262,10 @@ public class DefaultEventbus extends Eventbus {
 						group = serviceName;
 					}
 
+					// Process "Blocking" annotation
+					Blocking b = field.getAnnotation(Blocking.class);
+					boolean blocking = b != null && b.value() && blockingExecutor != null;
+
 					// Register listener in EventBus
 					field.setAccessible(true);
 					Listener listener = (Listener) field.get(service);
@@ -277,8 +285,16 @@ public class DefaultEventbus extends Eventbus {
 					}
 
 					// Add endpoint to strategy
-					strategy.addEndpoint(new LocalListenerEndpoint(executor, nodeID, serviceName, group, subscribe,
-							listener, asyncLocalInvocation));
+					strategy.addEndpoint(new LocalListenerEndpoint(blocking ? blockingExecutor : executor, nodeID,
+							serviceName, group, subscribe, listener, asyncLocalInvocation || blocking));
+
+					// Subscribe group's channel (Transporter with built-in balancer)
+					if (transporter != null && transporter.hasBuiltInBalancer()) {
+						if (balancedSubscriptions == null) {
+							balancedSubscriptions = new LinkedList<>();
+						}
+						balancedSubscriptions.addLast(new String[] { subscribe, group });
+					}
 				}
 			}
 		} catch (Exception cause) {
@@ -295,6 +311,13 @@ public class DefaultEventbus extends Eventbus {
 			// Unlock reader threads
 			writeLock.unlock();
 		}
+
+		// Subscribe balanced channels
+		if (balancedSubscriptions != null) {
+			for (String[] subscription : balancedSubscriptions) {
+				transporter.subscribeBalancedEvent(subscription[0], subscription[1]);
+			}
+		}
 	}
 
 	// --- ADD REMOTE LISTENER ---
@@ -416,6 +439,12 @@ public class DefaultEventbus extends Eventbus {
 		if (strategies.length == 0) {
 			return;
 		}
+		if (!local && transporter != null && transporter.hasBuiltInBalancer()) {
+
+			// Balancing via message broker
+			emitBalanced(name, payload, groups, strategies);
+			return;
+		}
 		if (strategies.length == 1) {
 			try {
 
@@ -495,6 +524,51 @@ public class DefaultEventbus extends Eventbus {
 		}
 	}
 
+	/**
+	 * Sends event to the balanced channels of the listener groups (when the
+	 * Transporter has built-in balancer). Groups without remote listeners are
+	 * invoked directly.
+	 * 
+	 * @param name
+	 *            name of the event
+	 * @param payload
+	 *            payload of the event
+	 * @param groups
+	 *            target groups (can be null)
+	 * @param strategies
+	 *            strategies of the listener groups
+	 */
+	protected void emitBalanced(String name, Tree payload, Groups groups, Strategy<ListenerEndpoint>[] strategies) {
+		HashSet<String> sentTo = new HashSet<>(strategies.length * 2);
+		for (Strategy<ListenerEndpoint> strategy : strategies) {
+			try {
+				ListenerEndpoint endpoint = strategy.getEndpoint(null);
+				if (endpoint == null || !sentTo.add(endpoint.group)) {
+					continue;
+				}
+				boolean hasRemote = false;
+				for (ListenerEndpoint test : strategy.getAllEndpoints()) {
+					if (!test.isLocal()) {
+						hasRemote = true;
+						break;
+					}
+				}
+				if (hasRemote) {
+
+					// Send to the group's channel
+					transporter.sendBalancedEventPacket(endpoint.subscribe, endpoint.group, name, payload);
+
+				} else {
+
+					// Only local listeners
+					endpoint.on(name, payload, groups, false);
+				}
+			} catch (Exception cause) {
+				logger.error("Unable to invoke event listener!", cause);
+			}
+		}
+	}
+
 	// --- SEND EVENT TO ALL LISTENERS IN THE SPECIFIED GROUP ---
 
 	@Override
@@ -0,0 +1,283 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2017 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.hedge;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import io.datatree.Promise;
+import io.datatree.Tree;
+import services.moleculer.ServiceBroker;
+import services.moleculer.context.CallOptions.Options;
+import services.moleculer.context.Context;
+import services.moleculer.service.Action;
+import services.moleculer.service.ActionEndpoint;
+import services.moleculer.service.ActionHandle;
+import services.moleculer.service.DefaultServiceInvoker;
+import services.moleculer.service.Name;
+import services.moleculer.strategy.Strategy;
+import services.moleculer.stream.PacketStream;
+
+/**
+ * Service invoker with retry logic + hedged requests. If the response of an
+ * idempotent remote Action (marked with "@Hedge" annotation) does not arrive
+ * within a percentile of the previously measured response times, the invoker
+ * sends a second request to an endpoint on another node, and the caller gets
+ * the first successful response. Both requests are registered with their own
+ * IDs, so the response of the slower one is simply dropped by its pending
+ * promise. Sample code:<br>
+ * <br>
+ * ServiceBroker broker = ServiceBroker.builder().invoker(new
+ * HedgingInvoker()).build();
+ */
+@Name("Hedging Invoker")
+public class HedgingInvoker extends DefaultServiceInvoker {
+
+	// --- PROPERTIES ---
+
+	/**
+	 * Minimum number of measured response times before sending hedged requests
+	 */
+	protected int minSamples = 20;
+
+	/**
+	 * Number of stored response times per action
+	 */
+	protected int sampleSize = 256;
+
+	/**
+	 * Minimum delay of the hedged request in MILLISECONDS
+	 */
+	protected long minDelay = 2;
+
+	// --- RESPONSE TIMES BY ACTION NAME ---
+
+	protected final ConcurrentHashMap<String, LatencyTracker> trackers = new ConcurrentHashMap<>(64);
+
+	// --- COUNTERS ---
+
+	protected final AtomicLong hedgedRequests = new AtomicLong();
+	protected final AtomicLong hedgedWins = new AtomicLong();
+
+	// --- COMPONENTS ---
+
+	protected ScheduledExecutorService scheduler;
+
+	// --- START INVOKER ---
+
+	@Override
+	public void started(ServiceBroker broker) throws Exception {
+		super.started(broker);
+		this.scheduler = broker.getConfig().getScheduler();
+	}
+
+	// --- STOP INVOKER ---
+
+	@Override
+	public void stopped() {
+		super.stopped();
+		trackers.clear();
+	}
+
+	// --- INVOKE ACTION WITH HEDGING ---
+
+	@Override
+	protected Promise invoke(Action action, ActionHandle handle, String name, Tree params, Options opts,
+			PacketStream stream, Context parent, String targetID, int remaining) {
+		if (stream != null || targetID != null || !(action instanceof ActionEndpoint)) {
+			return super.invoke(action, handle, name, params, opts, stream, parent, targetID, remaining);
+		}
+		ActionEndpoint endpoint = (ActionEndpoint) action;
+		Tree hedgeNode = endpoint.getConfig().get("hedge");
+		if (hedgeNode == null || endpoint.getNodeID().equals(broker.getNodeID())) {
+			return super.invoke(action, handle, name, params, opts, stream, parent, targetID, remaining);
+		}
+		int percentile = Math.min(99, Math.max(1, hedgeNode.get("percentile", 95)));
+		LatencyTracker tracker = getTracker(name);
+		long delay = tracker.getPercentile(percentile, minSamples);
+		if (delay < 0) {
+
+			// Not enough samples (measure only)
+			return super.invoke(measured(endpoint, tracker), handle, name, params, opts, stream, parent, targetID,
+					remaining);
+		}
+		long hedgeDelay = Math.max(minDelay, TimeUnit.NANOSECONDS.toMillis(delay));
+		Action hedged = ctx -> {
+			Promise result = new Promise();
+
+			// Number of outstanding requests (0 = all failed)
+			AtomicInteger pending = new AtomicInteger(1);
+
+			// ID of the hedged request
+			AtomicReference<String> hedgeID = new AtomicReference<>();
+			send(endpoint, ctx, tracker, result, pending, false, () -> {
+				String id = hedgeID.get();
+				if (id != null) {
+					serviceRegistry.deregister(id);
+				}
+			});
+
+			// Schedule the hedged request
+			scheduler.schedule(() -> {
+				if (result.isDone()) {
+					return;
+				}
+				int p;
+				do {
+					p = pending.get();
+					if (p < 1) {
+						return;
+					}
+				} while (!pending.compareAndSet(p, p + 1));
+				try {
+					Strategy<ActionEndpoint> strategy = serviceRegistry.getStrategy(name);
+					ActionEndpoint other = strategy == null ? null : strategy.getEndpointExcept(endpoint);
+					if (other == null) {
+						pending.decrementAndGet();
+						return;
+					}
+					Options hedgeOpts = ctx.opts;
+					if (hedgeOpts != null && hedgeOpts.timeout > 0) {
+						hedgeOpts = hedgeOpts.timeout(Math.max(1, hedgeOpts.timeout - hedgeDelay));
+					}
+					Context hedgeCtx = contextFactory.create(name, params, hedgeOpts, null, parent);
+					hedgedRequests.incrementAndGet();
+					hedgeID.set(hedgeCtx.id);
+					send(other, hedgeCtx, tracker, result, pending, true, () -> {
+						serviceRegistry.deregister(ctx.id);
+					});
+
+					// The first request won while the hedged one was being sent
+					if (result.isDone()) {
+						serviceRegistry.deregister(hedgeCtx.id);
+					}
+				} catch (Throwable cause) {
+					if (pending.decrementAndGet() == 0) {
+						result.complete(cause);
+					}
+				}
+			}, hedgeDelay, TimeUnit.MILLISECONDS);
+			return result;
+		};
+		return super.invoke(hedged, handle, name, params, opts, stream, parent, targetID, remaining);
+	}
+
+	/**
+	 * Sends one of the requests of a hedged call. The first response completes
+	 * the result, and the pending promise of the other (slower) request is
+	 * removed from the registry, so it does not wait for its own timeout.
+	 */
+	protected void send(ActionEndpoint endpoint, Context ctx, LatencyTracker tracker, Promise result,
+			AtomicInteger pending, boolean hedge, Runnable cancelOther) {
+		long start = System.nanoTime();
+		try {
+			Promise.resolve(endpoint.handler(ctx)).then(rsp -> {
+				tracker.add(System.nanoTime() - start);
+				if (result.complete(rsp)) {
+					cancelOther.run();
+					if (hedge) {
+						hedgedWins.incrementAndGet();
+					}
+				}
+			}).catchError(cause -> {
+				if (pending.decrementAndGet() == 0) {
+
+					// All requests failed
+					result.complete(cause);
+				}
+			});
+		} catch (Throwable cause) {
+			if (pending.decrementAndGet() == 0) {
+				result.complete(cause);
+			}
+		}
+	}
+
+	protected Action measured(ActionEndpoint endpoint, LatencyTracker tracker) {
+		return ctx -> {
+			long start = System.nanoTime();
+			Promise result = new Promise();
+			Promise.resolve(endpoint.handler(ctx)).then(rsp -> {
+				tracker.add(System.nanoTime() - start);
+				result.complete(rsp);
+			}).catchError(cause -> {
+				result.complete(cause);
+			});
+			return result;
+		};
+	}
+
+	protected LatencyTracker getTracker(String name) {
+		LatencyTracker tracker = trackers.get(name);
+		if (tracker == null) {
+			tracker = new LatencyTracker(sampleSize, Math.max(1, sampleSize / 8));
+			LatencyTracker prev = trackers.putIfAbsent(name, tracker);
+			if (prev != null) {
+				tracker = prev;
+			}
+		}
+		return tracker;
+	}
+
+	// --- GETTERS / SETTERS ---
+
+	public int getMinSamples() {
+		return minSamples;
+	}
+
+	public void setMinSamples(int minSamples) {
+		this.minSamples = minSamples;
+	}
+
+	public int getSampleSize() {
+		return sampleSize;
+	}
+
+	public void setSampleSize(int sampleSize) {
+		this.sampleSize = sampleSize;
+	}
+
+	public long getMinDelay() {
+		return minDelay;
+	}
+
+	public void setMinDelay(long minDelay) {
+		this.minDelay = minDelay;
+	}
+
+	public long getHedgedRequests() {
+		return hedgedRequests.get();
+	}
+
+	public long getHedgedWins() {
+		return hedgedWins.get();
+	}
+
+}
\ No newline at end of file
@@ -0,0 +1,101 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2017 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.hedge;
+
+import java.util.Arrays;
+
+/**
+ * Collects the last response times of an Action, and calculates the delay of
+ * the hedged requests (a percentile of the collected samples).
+ * 
+ * @see HedgingInvoker
+ */
+public class LatencyTracker {
+
+	// --- SAMPLES ---
+
+	protected final long[] samples;
+
+	protected int count;
+
+	protected int position;
+
+	// --- CACHED PERCENTILE ---
+
+	protected final int recalculateInterval;
+
+	protected int changes;
+
+	protected long cachedPercentile;
+
+	protected int cachedRank = -1;
+
+	// --- CONSTRUCTOR ---
+
+	public LatencyTracker(int size, int recalculateInterval) {
+		this.samples = new long[size];
+		this.recalculateInterval = recalculateInterval;
+	}
+
+	// --- ADD SAMPLE ---
+
+	public synchronized void add(long latency) {
+		samples[position] = latency;
+		position = (position + 1) % samples.length;
+		if (count < samples.length) {
+			count++;
+		}
+		changes++;
+	}
+
+	// --- CALCULATE PERCENTILE ---
+
+	/**
+	 * Returns the specified percentile of the collected samples.
+	 * 
+	 * @param percentile
+	 *            percentile (1...99)
+	 * @param minSamples
+	 *            minimum number of samples
+	 * 
+	 * @return percentile of samples (or -1 if there are not enough samples)
+	 */
+	public synchronized long getPercentile(int percentile, int minSamples) {
+		if (count < Math.max(1, minSamples)) {
+			return -1;
+		}
+		if (cachedRank != percentile || changes >= recalculateInterval) {
+			long[] sorted = Arrays.copyOf(samples, count);
+			Arrays.sort(sorted);
+			int index = (int) Math.ceil(percentile / 100.0 * count) - 1;
+			cachedPercentile = sorted[Math.min(count - 1, Math.max(0, index))];
+			cachedRank = percentile;
+			changes = 0;
+		}
+		return cachedPercentile;
+	}
+
+}
\ No newline at end of file
@@ -0,0 +1,347 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2017 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.limiter;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import io.datatree.Promise;
+import io.datatree.Tree;
+import services.moleculer.breaker.EndpointKey;
+import services.moleculer.context.Context;
+import services.moleculer.context.CallOptions.Options;
+import services.moleculer.error.QueueIsFullError;
+import services.moleculer.error.RequestRejectedError;
+import services.moleculer.error.RequestSkippedError;
+import services.moleculer.error.RequestTimeoutError;
+import services.moleculer.service.Action;
+import services.moleculer.service.ActionEndpoint;
+import services.moleculer.service.ActionHandle;
+import services.moleculer.service.DefaultServiceInvoker;
+import services.moleculer.service.Name;
+import services.moleculer.stream.PacketStream;
+import services.moleculer.util.FastBuildTree;
+
+/**
+ * Service invoker with retry logic + adaptive concurrency limit per remote
+ * endpoint (node + action). The invoker measures the round-trip time of the
+ * remote calls, and maintains a concurrency window for each endpoint (see
+ * {@link ConcurrencyWindow}). When the window of the selected endpoint is
+ * full, the call is rerouted to another endpoint, or rejected with
+ * QueueIsFullError if all tried endpoints are saturated. Local calls are not
+ * limited. Sample code:<br>
+ * <br>
+ * ServiceBroker broker = ServiceBroker.builder().invoker(new
+ * AdaptiveLimiter()).build();
+ */
+@Name("Adaptive Limiter")
+public class AdaptiveLimiter extends DefaultServiceInvoker {
+
+	// --- PROPERTIES ---
+
+	/**
+	 * Initial concurrency limit of an endpoint
+	 */
+	protected int initialLimit = 20;
+
+	/**
+	 * Minimum concurrency limit of an endpoint
+	 */
+	protected int minLimit = 1;
+
+	/**
+	 * Maximum concurrency limit of an endpoint
+	 */
+	protected int maxLimit = 1000;
+
+	/**
+	 * The limit is increased when the estimated remote queue size is less than
+	 * "alpha"
+	 */
+	protected int alpha = 3;
+
+	/**
+	 * The limit is decreased when the estimated remote queue size is greater
+	 * than "beta"
+	 */
+	protected int beta = 6;
+
+	/**
+	 * Multiplier of the limit in case of timeout or rejection
+	 */
+	protected double backoffRatio = 0.9;
+
+	/**
+	 * Number of samples between the resets of the measured no-load RTT
+	 */
+	protected int probeInterval = 1000;
+
+	/**
+	 * Max number of other endpoints to try when the window of the selected
+	 * endpoint is full
+	 */
+	protected int maxReroutes = 3;
+
+	// --- CONCURRENCY WINDOWS ---
+
+	protected final ConcurrentHashMap<EndpointKey, ConcurrencyWindow> windows = new ConcurrentHashMap<>(1024);
+
+	// --- STOP INVOKER ---
+
+	@Override
+	public void stopped() {
+		super.stopped();
+		windows.clear();
+	}
+
+	// --- INVOKE ACTION WITHIN THE CONCURRENCY WINDOW ---
+
+	@Override
+	protected Promise invoke(Action action, ActionHandle handle, String name, Tree params, Options opts,
+			PacketStream stream, Context parent, String targetID, int remaining) {
+		if (!(action instanceof ActionEndpoint)) {
+			return super.invoke(action, handle, name, params, opts, stream, parent, targetID, remaining);
+		}
+		ActionEndpoint endpoint = (ActionEndpoint) action;
+		String nodeID = endpoint.getNodeID();
+		if (nodeID.equals(broker.getNodeID())) {
+
+			// Local calls are not limited
+			return super.invoke(action, handle, name, params, opts, stream, parent, targetID, remaining);
+		}
+
+		// Reserve a slot (or reroute the call)
+		ConcurrencyWindow window = getWindow(nodeID, name);
+		if (!window.tryAcquire()) {
+			window = null;
+			if (targetID == null && stream == null) {
+				for (int i = 0; i < maxReroutes; i++) {
+					try {
+						if (handle == null) {
+							endpoint = (ActionEndpoint) serviceRegistry.getAction(name, null);
+						} else {
+							endpoint = handle.getAction(null);
+						}
+					} catch (Throwable cause) {
+						break;
+					}
+					nodeID = endpoint.getNodeID();
+					if (nodeID.equals(broker.getNodeID())) {
+						return super.invoke(endpoint, handle, name, params, opts, stream, parent, targetID,
+								remaining);
+					}
+					ConcurrencyWindow next = getWindow(nodeID, name);
+					if (next.tryAcquire()) {
+						window = next;
+						break;
+					}
+				}
+			}
+			if (window == null) {
+				return failed(new QueueIsFullError(nodeID, name), handle, name, params, opts, stream, parent,
+						targetID, remaining);
+			}
+		}
+
+		// Measure the round-trip time
+		final ActionEndpoint selected = endpoint;
+		final Slot slot = new Slot(window);
+		Action limited = ctx -> {
+			slot.invoked = true;
+			long start = System.nanoTime();
+			Promise promise = new Promise();
+			try {
+				Promise.resolve(selected.handler(ctx)).then(rsp -> {
+					slot.release(System.nanoTime() - start, false);
+					promise.complete(rsp);
+				}).catchError(cause -> {
+					slot.release(System.nanoTime() - start, isDropped(cause));
+					promise.complete(cause);
+				});
+			} catch (Throwable cause) {
+				slot.release(0, false);
+				throw cause;
+			}
+			return promise;
+		};
+		try {
+			return super.invoke(limited, handle, name, params, opts, stream, parent, targetID, remaining);
+		} finally {
+
+			// The action was not invoked (eg. the Context could not be created)
+			if (!slot.invoked) {
+				slot.release(0, false);
+			}
+		}
+	}
+
+	/**
+	 * Reserved slot of a concurrency window. The slot is released only once.
+	 */
+	protected static final class Slot {
+
+		protected final ConcurrencyWindow window;
+		protected final AtomicBoolean released = new AtomicBoolean();
+
+		protected volatile boolean invoked;
+
+		protected Slot(ConcurrencyWindow window) {
+			this.window = window;
+		}
+
+		protected void release(long rtt, boolean dropped) {
+			if (released.compareAndSet(false, true)) {
+				window.release(rtt, dropped);
+			}
+		}
+
+	}
+
+	protected ConcurrencyWindow getWindow(String nodeID, String name) {
+		EndpointKey key = new EndpointKey(nodeID, name);
+		ConcurrencyWindow window = windows.get(key);
+		if (window == null) {
+			window = new ConcurrencyWindow(initialLimit, minLimit, maxLimit, alpha, beta, backoffRatio,
+					probeInterval);
+			ConcurrencyWindow prev = windows.putIfAbsent(key, window);
+			if (prev != null) {
+				window = prev;
+			}
+		}
+		return window;
+	}
+
+	/**
+	 * Returns true if the error means that the remote node is overloaded.
+	 * 
+	 * @param cause
+	 *            error of the call
+	 * 
+	 * @return true = decrease the limit
+	 */
+	protected boolean isDropped(Throwable cause) {
+		return cause instanceof TimeoutException || cause instanceof RequestTimeoutError
+				|| cause instanceof QueueIsFullError || cause instanceof RequestRejectedError
+				|| cause instanceof RequestSkippedError;
+	}
+
+	// --- METRICS ---
+
+	/**
+	 * Returns the current limits of the remote endpoints (eg.
+	 * {"node2":{"math.add":{"limit":24,"inFlight":17,"minRtt":850000}}}).
+	 * 
+	 * @return limits, in-flight requests and no-load RTTs (in nanoseconds)
+	 */
+	public Tree getMetrics() {
+		FastBuildTree metrics = new FastBuildTree();
+		HashMap<String, FastBuildTree> nodes = new HashMap<>();
+		for (Map.Entry<EndpointKey, ConcurrencyWindow> entry : windows.entrySet()) {
+			EndpointKey key = entry.getKey();
+			FastBuildTree actions = nodes.get(key.getNodeID());
+			if (actions == null) {
+				actions = metrics.putMapUnsafe(key.getNodeID(), 16);
+				nodes.put(key.getNodeID(), actions);
+			}
+			ConcurrencyWindow window = entry.getValue();
+			FastBuildTree action = actions.putMapUnsafe(key.getName(), 3);
+			action.putUnsafe("limit", window.getLimit());
+			action.putUnsafe("inFlight", window.getInFlight());
+			action.putUnsafe("minRtt", window.getMinRtt());
+		}
+		return metrics;
+	}
+
+	// --- GETTERS / SETTERS ---
+
+	public int getInitialLimit() {
+		return initialLimit;
+	}
+
+	public void setInitialLimit(int initialLimit) {
+		this.initialLimit = initialLimit;
+	}
+
+	public int getMinLimit() {
+		return minLimit;
+	}
+
+	public void setMinLimit(int minLimit) {
+		this.minLimit = minLimit;
+	}
+
+	public int getMaxLimit() {
+		return maxLimit;
+	}
+
+	public void setMaxLimit(int maxLimit) {
+		this.maxLimit = maxLimit;
+	}
+
+	public int getAlpha() {
+		return alpha;
+	}
+
+	public void setAlpha(int alpha) {
+		this.alpha = alpha;
+	}
+
+	public int getBeta() {
+		return beta;
+	}
+
+	public void setBeta(int beta) {
+		this.beta = beta;
+	}
+
+	public double getBackoffRatio() {
+		return backoffRatio;
+	}
+
+	public void setBackoffRatio(double backoffRatio) {
+		this.backoffRatio = backoffRatio;
+	}
+
+	public int getProbeInterval() {
+		return probeInterval;
+	}
+
+	public void setProbeInterval(int probeInterval) {
+		this.probeInterval = probeInterval;
+	}
+
+	public int getMaxReroutes() {
+		return maxReroutes;
+	}
+
+	public void setMaxReroutes(int maxReroutes) {
+		this.maxReroutes = maxReroutes;
+	}
+
+}
\ No newline at end of file
@@ -0,0 +1,154 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2017 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.limiter;
+
+/**
+ * Adaptive concurrency window of one remote endpoint (node + action). The
+ * limit is adjusted by the Vegas algorithm: the window grows while the
+ * measured round-trip time is close to the smallest (no-load) RTT, and
+ * shrinks when requests start to queue up on the remote side. Timeouts and
+ * rejections decrease the limit multiplicatively (AIMD).
+ * 
+ * @see AdaptiveLimiter
+ */
+public class ConcurrencyWindow {
+
+	// --- PROPERTIES ---
+
+	protected final int minLimit;
+	protected final int maxLimit;
+	protected final int alpha;
+	protected final int beta;
+	protected final double backoffRatio;
+	protected final int probeInterval;
+
+	// --- VARIABLES ---
+
+	/**
+	 * Current concurrency limit
+	 */
+	protected double limit;
+
+	/**
+	 * Number of in-flight requests
+	 */
+	protected int inFlight;
+
+	/**
+	 * Smallest measured RTT in nanoseconds (0 = not measured)
+	 */
+	protected long minRtt;
+
+	/**
+	 * Number of samples until the next reset of the "minRtt" value
+	 */
+	protected int probeCounter;
+
+	// --- CONSTRUCTOR ---
+
+	public ConcurrencyWindow(int initialLimit, int minLimit, int maxLimit, int alpha, int beta, double backoffRatio,
+			int probeInterval) {
+		this.minLimit = Math.max(1, minLimit);
+		this.maxLimit = Math.max(this.minLimit, maxLimit);
+		this.alpha = alpha;
+		this.beta = Math.max(alpha, beta);
+		this.backoffRatio = backoffRatio;
+		this.probeInterval = probeInterval;
+		this.limit = Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit));
+		this.probeCounter = probeInterval;
+	}
+
+	// --- ACQUIRE / RELEASE ---
+
+	/**
+	 * Reserves a slot for a new request.
+	 * 
+	 * @return true if the request can be sent, false if the window is full
+	 */
+	public synchronized boolean tryAcquire() {
+		if (inFlight >= (int) limit) {
+			return false;
+		}
+		inFlight++;
+		return true;
+	}
+
+	/**
+	 * Releases the slot of a finished request, and adjusts the limit.
+	 * 
+	 * @param rtt
+	 *            round-trip time of the request in nanoseconds
+	 * @param dropped
+	 *            the request timeouted or rejected by the remote node
+	 */
+	public synchronized void release(long rtt, boolean dropped) {
+		int sent = inFlight--;
+		if (dropped) {
+
+			// Multiplicative decrease
+			limit = Math.max(minLimit, limit * backoffRatio);
+			return;
+		}
+		if (rtt < 1) {
+			return;
+		}
+
+		// Forget the old no-load RTT periodically (the baseline may change)
+		if (--probeCounter <= 0) {
+			probeCounter = probeInterval;
+			minRtt = rtt;
+		} else if (minRtt == 0 || rtt < minRtt) {
+			minRtt = rtt;
+		}
+
+		// Estimated number of requests waiting in the remote queue
+		double queueSize = limit * (1.0 - (double) minRtt / rtt);
+		if (queueSize < alpha) {
+
+			// Increase the limit only if the window is used
+			if (sent * 2 >= limit) {
+				limit = Math.min(maxLimit, limit + 1);
+			}
+		} else if (queueSize > beta) {
+			limit = Math.max(minLimit, limit - 1);
+		}
+	}
+
+	// --- GETTERS ---
+
+	public synchronized int getLimit() {
+		return (int) limit;
+	}
+
+	public synchronized int getInFlight() {
+		return inFlight;
+	}
+
+	public synchronized long getMinRtt() {
+		return minRtt;
+	}
+
+}
\ No newline at end of file
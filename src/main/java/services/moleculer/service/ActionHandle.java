@@ -0,0 +1,174 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2017 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.service;
+
+import static services.moleculer.util.CommonUtils.parseParams;
+
+import io.datatree.Promise;
+import io.datatree.Tree;
+import services.moleculer.ServiceBroker;
+import services.moleculer.context.CallOptions;
+import services.moleculer.error.ServiceNotAvailableError;
+import services.moleculer.error.ServiceNotFoundError;
+import services.moleculer.strategy.Strategy;
+import services.moleculer.util.ParseResult;
+
+/**
+ * Pre-resolved action reference for frequently invoked actions. The handle
+ * caches the Strategy (endpoint list) of the action, and resolves it again
+ * only when the version of the Service Registry changes (eg. a service is
+ * added or removed). Sample code:<br>
+ * <br>
+ * ActionHandle add = broker.getActionHandle("math.add");<br>
+ * for (int i = 0; i &lt; 1000; i++) {<br>
+ * &nbsp;&nbsp;add.call("a", i, "b", 2).then(rsp -&gt; { ... });<br>
+ * }
+ * 
+ * @see ServiceBroker#getActionHandle(String)
+ */
+public class ActionHandle {
+
+	// --- PROPERTIES ---
+
+	/**
+	 * Name of the action (eg. "math.add")
+	 */
+	protected final String name;
+
+	// --- COMPONENTS ---
+
+	protected final ServiceRegistry serviceRegistry;
+	protected final ServiceInvoker serviceInvoker;
+
+	// --- CACHED STRATEGY ---
+
+	protected volatile ResolvedStrategy resolved;
+
+	// --- CONSTRUCTOR ---
+
+	public ActionHandle(String name, ServiceRegistry serviceRegistry, ServiceInvoker serviceInvoker) {
+		this.name = name;
+		this.serviceRegistry = serviceRegistry;
+		this.serviceInvoker = serviceInvoker;
+	}
+
+	// --- INVOKE ACTION ---
+
+	/**
+	 * Calls the action (local or remote).
+	 * 
+	 * @param params
+	 *            list of parameter name-value pairs and an optional CallOptions
+	 * 
+	 * @return response Promise
+	 */
+	public Promise call(Object... params) {
+		ParseResult res = parseParams(params);
+		return serviceInvoker.call(this, res.data, res.opts, res.stream, null);
+	}
+
+	/**
+	 * Calls the action (local or remote).
+	 * 
+	 * @param params
+	 *            {@link Tree} structure (input parameters of the method call)
+	 * 
+	 * @return response Promise
+	 */
+	public Promise call(Tree params) {
+		return serviceInvoker.call(this, params, null, null, null);
+	}
+
+	/**
+	 * Calls the action (local or remote).
+	 * 
+	 * @param params
+	 *            {@link Tree} structure (input parameters of the method call)
+	 * @param opts
+	 *            calling options (target nodeID, call timeout, number of
+	 *            retries)
+	 * 
+	 * @return response Promise
+	 */
+	public Promise call(Tree params, CallOptions.Options opts) {
+		return serviceInvoker.call(this, params, opts, null, null);
+	}
+
+	// --- GET LOCAL OR REMOTE ENDPOINT ---
+
+	/**
+	 * Returns the next local or remote endpoint of the action (without map
+	 * lookups, while the Service Registry is unchanged).
+	 * 
+	 * @param nodeID
+	 *            target node ID (or null)
+	 * 
+	 * @return local or remote action endpoint
+	 */
+	public ActionEndpoint getAction(String nodeID) {
+		long version = serviceRegistry.getVersion();
+		if (version < 0) {
+
+			// Registry without version (no cached Strategy)
+			return (ActionEndpoint) serviceRegistry.getAction(name, nodeID);
+		}
+		ResolvedStrategy current = resolved;
+		if (current == null || current.version != version) {
+			Strategy<ActionEndpoint> strategy = serviceRegistry.getStrategy(name);
+			if (strategy == null) {
+				throw new ServiceNotFoundError(nodeID, name);
+			}
+			current = new ResolvedStrategy(version, strategy);
+			resolved = current;
+		}
+		ActionEndpoint endpoint = current.strategy.getEndpoint(nodeID);
+		if (endpoint == null) {
+			throw new ServiceNotAvailableError(nodeID, name);
+		}
+		return endpoint;
+	}
+
+	// --- STRATEGY WITH REGISTRY VERSION ---
+
+	protected static final class ResolvedStrategy {
+
+		protected final long version;
+		protected final Strategy<ActionEndpoint> strategy;
+
+		protected ResolvedStrategy(long version, Strategy<ActionEndpoint> strategy) {
+			this.version = version;
+			this.strategy = strategy;
+		}
+
+	}
+
+	// --- GETTERS ---
+
+	public String getName() {
+		return name;
+	}
+
+}
\ No newline at end of file
@@ -25,14 +25,22 @@
  */
 package services.moleculer.service;
 
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
 import io.datatree.Promise;
 import io.datatree.Tree;
 import services.moleculer.ServiceBroker;
+import services.moleculer.cacher.Cacher;
 import services.moleculer.config.ServiceBrokerConfig;
 import services.moleculer.context.CallOptions;
 import services.moleculer.context.CallOptions.Options;
 import services.moleculer.context.Context;
 import services.moleculer.context.ContextFactory;
+import services.moleculer.error.RequestTimeoutError;
 import services.moleculer.stream.PacketStream;
 
 /**
@@ -48,10 +56,23 @@ public class DefaultServiceInvoker extends ServiceInvoker {
 	 */
 	protected boolean writeErrorsToLog = true;
 
+	/**
+	 * Coalesce the identical in-flight calls of cacheable actions (actions with
+	 * "@Cache" annotation): only one request is sent, and all callers receive
+	 * its response (within their own timeouts)
+	 */
+	protected boolean coalesceCalls;
+
+	// --- IN-FLIGHT CALLS BY CACHE KEY ---
+
+	protected final ConcurrentHashMap<String, Promise> inFlightCalls = new ConcurrentHashMap<>(1024);
+
 	// --- COMPONENTS ---
 
 	protected ServiceRegistry serviceRegistry;
 	protected ContextFactory contextFactory;
+	protected Cacher cacher;
+	protected ScheduledExecutorService scheduler;
 
 	// --- START INVOKER ---
 
@@ -63,6 +84,15 @@ public class DefaultServiceInvoker extends ServiceInvoker {
 		ServiceBrokerConfig cfg = broker.getConfig();
 		this.serviceRegistry = cfg.getServiceRegistry();
 		this.contextFactory = cfg.getContextFactory();
+		this.cacher = cfg.getCacher();
+		this.scheduler = cfg.getScheduler();
+	}
+
+	// --- STOP INVOKER ---
+
+	@Override
+	public void stopped() {
+		inFlightCalls.clear();
 	}
 
 	// --- CALL SERVICE ---
@@ -78,13 +108,73 @@ public class DefaultServiceInvoker extends ServiceInvoker {
 			targetID = opts.nodeID;
 			remaining = opts.retryCount;
 		}
-		return call(name, params, opts, stream, parent, targetID, remaining);
+		return call(null, name, params, opts, stream, parent, targetID, remaining);
 	}
 
-	protected Promise call(String name, Tree params, Options opts, PacketStream stream, Context parent, String targetID,
-			int remaining) {
+	@Override
+	public Promise call(ActionHandle handle, Tree params, Options opts, PacketStream stream, Context parent) {
+		String targetID;
+		int remaining;
+		if (opts == null) {
+			targetID = null;
+			remaining = 0;
+		} else {
+			targetID = opts.nodeID;
+			remaining = opts.retryCount;
+		}
+		return call(handle, handle.getName(), params, opts, stream, parent, targetID, remaining);
+	}
+
+	protected Promise call(ActionHandle handle, String name, Tree params, Options opts, PacketStream stream,
+			Context parent, String targetID, int remaining) {
+		Action action;
+		try {
+			if (handle == null) {
+				action = serviceRegistry.getAction(name, targetID);
+			} else {
+				action = handle.getAction(targetID);
+			}
+		} catch (Throwable cause) {
+			return failed(cause, handle, name, params, opts, stream, parent, targetID, remaining);
+		}
+
+		// Send untargeted remote calls to the message broker's balanced channel
+		// (if the Transporter has built-in balancer)
+		Action target = action;
+		if (targetID == null && stream == null && action instanceof RemoteActionEndpoint) {
+			Action balanced = serviceRegistry.getBalancedAction(name);
+			if (balanced != null) {
+				target = balanced;
+			}
+		}
+
+		// Coalesce identical in-flight calls (only the first attempt)
+		if (coalesceCalls && stream == null && targetID == null && (opts == null || remaining == opts.retryCount)) {
+			String key = getCoalescingKey(action, name, params);
+			if (key != null) {
+				Promise shared = new Promise();
+				Promise pending = inFlightCalls.putIfAbsent(key, shared);
+				if (pending != null) {
+
+					// Same call is in progress
+					return join(pending, handle, name, params, opts, stream, parent, targetID, remaining);
+				}
+				invoke(target, handle, name, params, opts, stream, parent, targetID, remaining).then(rsp -> {
+					inFlightCalls.remove(key, shared);
+					shared.complete(rsp);
+				}).catchError(cause -> {
+					inFlightCalls.remove(key, shared);
+					shared.complete(cause);
+				});
+				return shared;
+			}
+		}
+		return invoke(target, handle, name, params, opts, stream, parent, targetID, remaining);
+	}
+
+	protected Promise invoke(Action action, ActionHandle handle, String name, Tree params, Options opts,
+			PacketStream stream, Context parent, String targetID, int remaining) {
 		try {
-			Action action = serviceRegistry.getAction(name, targetID);
 			Context ctx = contextFactory.create(name, params, opts, stream, parent);
 			if (remaining < 1) {
 				return Promise.resolve(action.handler(ctx));
@@ -96,29 +186,121 @@ public class DefaultServiceInvoker extends ServiceInvoker {
 					logger.error("Unexpected error occurred while invoking \"" + name + "\" action!", cause);
 				}
 
-				return retry(cause, name, params, opts, stream, parent, targetID, remaining);
+				return retry(cause, handle, name, params, opts, stream, parent, targetID, remaining);
 			});
 		} catch (Throwable cause) {
+			return failed(cause, handle, name, params, opts, stream, parent, targetID, remaining);
+		}
+	}
+
+	protected Promise failed(Throwable cause, ActionHandle handle, String name, Tree params, Options opts,
+			PacketStream stream, Context parent, String targetID, int remaining) {
 
-			// Write error to log file
-			if (writeErrorsToLog) {
-				logger.error("Unexpected error occurred while invoking \"" + name + "\" action!", cause);
+		// Write error to log file
+		if (writeErrorsToLog) {
+			logger.error("Unexpected error occurred while invoking \"" + name + "\" action!", cause);
+		}
+
+		if (remaining < 1) {
+			return Promise.reject(cause);
+		}
+		return retry(cause, handle, name, params, opts, stream, parent, targetID, remaining);
+	}
+
+	// --- WAIT FOR AN IN-FLIGHT CALL ---
+
+	/**
+	 * Returns the response of an identical in-flight call, using the caller's
+	 * own timeout and retry count.
+	 */
+	protected Promise join(Promise pending, ActionHandle handle, String name, Tree params, Options opts,
+			PacketStream stream, Context parent, String targetID, int remaining) {
+		Promise joined = new Promise();
+
+		// Timeout of the caller (the distributed timeout is already included)
+		ScheduledFuture<?> timer;
+		if (opts != null && opts.timeout > 0) {
+			timer = scheduler.schedule(() -> {
+				joined.complete(new RequestTimeoutError(broker.getNodeID(), name));
+			}, opts.timeout, TimeUnit.MILLISECONDS);
+		} else {
+			timer = null;
+		}
+		pending.then(rsp -> {
+			if (timer != null) {
+				timer.cancel(false);
+			}
+			joined.complete(rsp);
+		}).catchError(cause -> {
+			if (timer != null) {
+				timer.cancel(false);
 			}
+			joined.complete(cause);
+		});
+		if (remaining < 1) {
+			return joined;
+		}
+		return joined.catchError(cause -> {
+			return retry(cause, handle, name, params, opts, stream, parent, targetID, remaining);
+		});
+	}
 
-			if (remaining < 1) {
-				return Promise.reject(cause);
+	// --- KEY OF COALESCED CALLS ---
+
+	/**
+	 * Creates the key of the coalesced calls (the cache key of the configured
+	 * Cacher, extended with the meta of the request).
+	 * 
+	 * @param action
+	 *            the selected action endpoint
+	 * @param name
+	 *            qualified name of the action
+	 * @param params
+	 *            input parameters
+	 * 
+	 * @return key of the call, or null if the action is not cacheable
+	 */
+	protected String getCoalescingKey(Action action, String name, Tree params) {
+		if (!(action instanceof ActionEndpoint)) {
+			return null;
+		}
+		Tree cacheNode = ((ActionEndpoint) action).getConfig().get("cache");
+		if (cacheNode == null) {
+			return null;
+		}
+		String[] keys = null;
+		Tree keyNode = cacheNode.get("keys");
+		if (keyNode != null) {
+			List<String> list = keyNode.asList(String.class);
+			if (!list.isEmpty()) {
+				keys = new String[list.size()];
+				list.toArray(keys);
 			}
-			return retry(cause, name, params, opts, stream, parent, targetID, remaining);
 		}
+		String key;
+		if (cacher != null) {
+			key = cacher.getCacheKey(name, params, keys);
+		} else if (params == null) {
+			key = name;
+		} else {
+			key = name + ':' + params.toString(false);
+		}
+		if (params != null) {
+			Tree meta = params.getMeta(false);
+			if (meta != null && !meta.isEmpty()) {
+				key = key + '|' + meta.toString(false);
+			}
+		}
+		return key;
 	}
 
 	// --- RETRY CALL ---
 
-	protected Promise retry(Throwable cause, String name, Tree params, CallOptions.Options opts, PacketStream stream,
-			Context parent, String targetID, int remaining) {
+	protected Promise retry(Throwable cause, ActionHandle handle, String name, Tree params, CallOptions.Options opts,
+			PacketStream stream, Context parent, String targetID, int remaining) {
 		int newRemaining = remaining - 1;
 		logger.warn("Retrying request (" + newRemaining + " attempts left)...", cause);
-		return call(name, params, opts, stream, parent, targetID, newRemaining);
+		return call(handle, name, params, opts, stream, parent, targetID, newRemaining);
 	}
 
 	// --- GETTERS / SETTERS ---
@@ -131,4 +313,12 @@ public class DefaultServiceInvoker extends ServiceInvoker {
 		this.writeErrorsToLog = writeErrorsToLog;
 	}
 
+	public boolean isCoalesceCalls() {
+		return coalesceCalls;
+	}
+
+	public void setCoalesceCalls(boolean coalesceCalls) {
+		this.coalesceCalls = coalesceCalls;
+	}
+
 }
\ No newline at end of file
@@ -27,6 +27,7 @@ package services.moleculer.service;
 
 import static services.moleculer.ServiceBroker.PROTOCOL_VERSION;
 import static services.moleculer.transporter.Transporter.PACKET_PING;
+import static services.moleculer.transporter.Transporter.PACKET_REQUEST;
 import static services.moleculer.transporter.Transporter.PACKET_RESPONSE;
 import static services.moleculer.util.CommonUtils.convertAnnotations;
 import static services.moleculer.util.CommonUtils.getHostName;
@@ -56,9 +57,7 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -69,18 +68,23 @@ import services.moleculer.config.ServiceBrokerConfig;
 import services.moleculer.context.CallOptions;
 import services.moleculer.context.Context;
 import services.moleculer.context.ContextFactory;
+import services.moleculer.context.Deadline;
 import services.moleculer.error.InvalidPacketDataError;
 import services.moleculer.error.MoleculerError;
 import services.moleculer.error.MoleculerErrorFactory;
 import services.moleculer.error.ProtocolVersionMismatchError;
+import services.moleculer.error.RequestSkippedError;
 import services.moleculer.error.ServiceNotAvailableError;
 import services.moleculer.error.ServiceNotFoundError;
 import services.moleculer.eventbus.Eventbus;
 import services.moleculer.strategy.Strategy;
 import services.moleculer.strategy.StrategyFactory;
+import services.moleculer.stream.FileSource;
 import services.moleculer.stream.IncomingStream;
 import services.moleculer.stream.PacketListener;
 import services.moleculer.stream.PacketStream;
+import services.moleculer.stream.StreamBufferQuota;
+import services.moleculer.stream.StreamCredits;
 import services.moleculer.transporter.Transporter;
 import services.moleculer.uid.UidGenerator;
 import services.moleculer.util.FastBuildTree;
@@ -103,6 +107,17 @@ public class DefaultServiceRegistry extends ServiceRegistry {
 
 	protected final HashMap<String, Strategy<ActionEndpoint>> strategies = new HashMap<>(256);
 
+	/**
+	 * Immutable copy of the "strategies" map for the lock-free action lookups
+	 * (replaced after every modification of the "strategies" map)
+	 */
+	protected volatile Map<String, Strategy<ActionEndpoint>> actionTable = Collections.emptyMap();
+
+	/**
+	 * Version of the action table (used by the ActionHandles)
+	 */
+	protected final AtomicLong actionTableVersion = new AtomicLong();
+
 	// --- REGISTERED LOCAL AND REMOTE SERVICE NAMES ---
 
 	protected final HashSet<String> names = new HashSet<>(64);
@@ -116,6 +131,11 @@ public class DefaultServiceRegistry extends ServiceRegistry {
 	protected final ConcurrentHashMap<String, IncomingStream> requestStreams = new ConcurrentHashMap<>(1024);
 	protected final ConcurrentHashMap<String, IncomingStream> responseStreams = new ConcurrentHashMap<>(1024);
 
+	// --- CREDITS OF OUTGOING STREAMS (FLOW CONTROL) ---
+
+	protected final ConcurrentHashMap<String, StreamCredits> requestCredits = new ConcurrentHashMap<>(1024);
+	protected final ConcurrentHashMap<String, StreamCredits> responseCredits = new ConcurrentHashMap<>(1024);
+
 	// --- PROPERTIES ---
 
 	/**
@@ -133,6 +153,66 @@ public class DefaultServiceRegistry extends ServiceRegistry {
 	 */
 	protected boolean writeErrorsToLog = true;
 
+	/**
+	 * Drop the incoming requests whose timeout has expired before the
+	 * invocation (eg. while waiting in the executor's queue)
+	 */
+	protected boolean shedExpiredRequests = true;
+
+	/**
+	 * Receive window of the incoming streams in bytes (0 = disable flow
+	 * control). The sender of a stream can send this amount of data before the
+	 * receiver grants new credits.
+	 */
+	protected long streamWindow = 1024 * 1024;
+
+	/**
+	 * Max waiting time for stream credits in milliseconds (paused transfers
+	 * are checked by the idle stream checker task)
+	 */
+	protected long streamCreditTimeout = 60000;
+
+	/**
+	 * Incoming streams without any activity (received or consumed packets)
+	 * are aborted after this time in milliseconds (0 = never)
+	 */
+	protected long streamIdleTimeout = 60000;
+
+	/**
+	 * Period of the idle stream checker task in milliseconds
+	 */
+	protected long streamSweepPeriod = 5000;
+
+	/**
+	 * Max number of buffered out-of-order stream bytes (0 = unlimited)
+	 */
+	protected long maxStreamBufferSize = 64 * 1024 * 1024;
+
+	/**
+	 * Max number of buffered out-of-order stream bytes per sender node (0 =
+	 * unlimited)
+	 */
+	protected long maxStreamBufferSizePerNode = 16 * 1024 * 1024;
+
+	// --- COUNTER OF DROPPED REQUESTS ---
+
+	/**
+	 * Number of the incoming requests dropped because of timeout
+	 */
+	protected final AtomicLong shedRequests = new AtomicLong();
+
+	// --- STREAM MEMORY ACCOUNTING ---
+
+	/**
+	 * Limits and counters of the buffered out-of-order stream bytes
+	 */
+	protected StreamBufferQuota streamBufferQuota;
+
+	/**
+	 * Number of the incoming streams aborted because of inactivity
+	 */
+	protected final AtomicLong expiredStreams = new AtomicLong();
+
 	// --- LOCKS ---
 
 	/**
@@ -152,6 +232,7 @@ public class DefaultServiceRegistry extends ServiceRegistry {
 	// --- COMPONENTS ---
 
 	protected ExecutorService executor;
+	protected ExecutorService blockingExecutor;
 	protected ScheduledExecutorService scheduler;
 	protected StrategyFactory strategyFactory;
 	protected ContextFactory contextFactory;
@@ -159,17 +240,26 @@ public class DefaultServiceRegistry extends ServiceRegistry {
 	protected Eventbus eventbus;
 	protected UidGenerator uid;
 
+	// --- ACTION OF THE TRANSPORTER'S BUILT-IN BALANCER ---
+
+	protected final Action balancedAction = this::sendBalancedRequest;
+
 	// --- VARIABLES OF THE TIMEOUT HANDLER ---
 
+	/**
+	 * Hashed timing wheel of the pending action calls (512 buckets * 100 msec)
+	 */
+	protected final TimeoutWheel timeoutWheel = new TimeoutWheel(promises, 512, 100);
+
 	/**
 	 * Cancelable timer for handling timeouts of action calls
 	 */
-	protected final AtomicReference<ScheduledFuture<?>> callTimeoutTimer = new AtomicReference<>();
+	protected volatile ScheduledFuture<?> callTimeoutTimer;
 
 	/**
-	 * Next scheduled time to check timeouts
+	 * Cancelable timer of idle stream checker
 	 */
-	protected final AtomicLong prevTimeoutAt = new AtomicLong();
+	protected volatile ScheduledFuture<?> streamSweeperTimer;
 
 	// --- WAIT FOR SERVICE(S) ---
 
@@ -230,12 +320,20 @@ public class DefaultServiceRegistry extends ServiceRegistry {
 		// Set components
 		ServiceBrokerConfig cfg = broker.getConfig();
 		this.executor = cfg.getExecutor();
+		this.blockingExecutor = cfg.getBlockingExecutor();
 		this.scheduler = cfg.getScheduler();
 		this.strategyFactory = cfg.getStrategyFactory();
 		this.contextFactory = cfg.getContextFactory();
 		this.transporter = cfg.getTransporter();
 		this.eventbus = cfg.getEventbus();
 		this.uid = cfg.getUidGenerator();
+
+		// Start idle stream checker
+		streamBufferQuota = new StreamBufferQuota(maxStreamBufferSize, maxStreamBufferSizePerNode);
+		if ((streamIdleTimeout > 0 || streamCreditTimeout > 0) && streamSweepPeriod > 0) {
+			streamSweeperTimer = scheduler.scheduleWithFixedDelay(this::sweepStreams, streamSweepPeriod,
+					streamSweepPeriod, TimeUnit.MILLISECONDS);
+		}
 	}
 
 	// --- STOP SERVICE REGISTRY ---
@@ -244,9 +342,16 @@ public class DefaultServiceRegistry extends ServiceRegistry {
 	public void stopped() {
 
 		// Stop timer
-		ScheduledFuture<?> task = callTimeoutTimer.get();
+		timeoutWheel.clear();
+		ScheduledFuture<?> task = callTimeoutTimer;
+		if (task != null) {
+			task.cancel(false);
+			callTimeoutTimer = null;
+		}
+		task = streamSweeperTimer;
 		if (task != null) {
 			task.cancel(false);
+			streamSweeperTimer = null;
 		}
 
 		// Stop pending invocations
@@ -255,6 +360,26 @@ public class DefaultServiceRegistry extends ServiceRegistry {
 			pending.promise.complete(error);
 		}
 
+		// Release the senders of the outgoing streams
+		for (StreamCredits credits : requestCredits.values()) {
+			credits.close();
+		}
+		for (StreamCredits credits : responseCredits.values()) {
+			credits.close();
+		}
+		requestCredits.clear();
+		responseCredits.clear();
+
+		// Abort the incoming streams
+		for (IncomingStream stream : requestStreams.values()) {
+			stream.abort(error);
+		}
+		for (IncomingStream stream : responseStreams.values()) {
+			stream.abort(error);
+		}
+		requestStreams.clear();
+		responseStreams.clear();
+
 		// Stop all services
 		writeLock.lock();
 		try {
@@ -264,6 +389,7 @@ public class DefaultServiceRegistry extends ServiceRegistry {
 
 			// Delete strategies (and registered actions)
 			strategies.clear();
+			publishActionTable();
 
 			// Delete all service names
 			names.clear();
@@ -288,74 +414,58 @@ public class DefaultServiceRegistry extends ServiceRegistry {
 
 	// --- CALL TIMEOUT CHECKER TASK ---
 
-	protected void checkTimeouts() {
-		long now = System.currentTimeMillis();
-		PendingPromise pending;
-		Iterator<PendingPromise> i = promises.values().iterator();
-		boolean removed = false;
-		while (i.hasNext()) {
-			pending = i.next();
-			if (pending.timeoutAt > 0 && now >= pending.timeoutAt) {
-				pending.promise.complete(new TimeoutException("Action invocation timeouted!"));
-				i.remove();
-				removed = true;
-			}
-		}
-		if (removed) {
-			scheduler.execute(() -> {
-				reschedule(Long.MAX_VALUE);
-			});
-		} else {
-			prevTimeoutAt.set(0);
+	protected void checkTimeouts(long deadline) {
+		long next = timeoutWheel.expire(Deadline.currentTimeMillis(), deadline);
+		if (next > 0) {
+			scheduleTimeouts(next);
 		}
 	}
 
-	// --- CALL TIMEOUT HANDLING ---
-
 	/**
-	 * Recalculates the next timeout checking time
+	 * Schedules the timer of the earliest deadline bucket. Called only when
+	 * the earliest bucket has changed (outdated timers are not cancelled, they
+	 * do nothing).
 	 * 
-	 * @param minTimeoutAt
-	 *            next / closest timestamp
+	 * @param deadline
+	 *            start time of the earliest bucket
 	 */
-	protected void reschedule(long minTimeoutAt) {
-		if (minTimeoutAt == Long.MAX_VALUE) {
-			for (PendingPromise pending : promises.values()) {
-				if (pending.timeoutAt > 0 && pending.timeoutAt < minTimeoutAt) {
-					minTimeoutAt = pending.timeoutAt;
-				}
-			}
+	protected void scheduleTimeouts(long deadline) {
+		long delay = Math.max(1, deadline - Deadline.currentTimeMillis());
+		callTimeoutTimer = scheduler.schedule(() -> {
+			checkTimeouts(deadline);
+		}, delay, TimeUnit.MILLISECONDS);
+	}
+
+	// --- IDLE STREAM CHECKER TASK ---
+
+	protected void sweepStreams() {
+		if (streamIdleTimeout > 0) {
+			long limit = System.currentTimeMillis() - streamIdleTimeout;
+			sweepStreams(requestStreams, limit);
+			sweepStreams(responseStreams, limit);
 		}
-		long now = System.currentTimeMillis();
-		if (minTimeoutAt == Long.MAX_VALUE) {
-			ScheduledFuture<?> t = callTimeoutTimer.get();
-			if (t != null) {
-				if (prevTimeoutAt.get() > now) {
-					t.cancel(false);
-					prevTimeoutAt.set(0);
-				} else {
-					callTimeoutTimer.set(null);
-					prevTimeoutAt.set(0);
-				}
-			}
-		} else {
-			minTimeoutAt = (minTimeoutAt / 100 * 100) + 100;
-			long prev = prevTimeoutAt.getAndSet(minTimeoutAt);
-			if (prev == minTimeoutAt) {
 
-				// Next when not changed
-				return;
-			}
+		// Abort the paused transfers without credits within the timeout
+		long now = System.nanoTime();
+		for (StreamCredits credits : requestCredits.values()) {
+			credits.checkTimeout(now);
+		}
+		for (StreamCredits credits : responseCredits.values()) {
+			credits.checkTimeout(now);
+		}
+	}
 
-			// Stop previous timer
-			ScheduledFuture<?> t = callTimeoutTimer.get();
-			if (t != null) {
-				t.cancel(false);
+	protected void sweepStreams(Map<String, IncomingStream> streams, long limit) {
+		Iterator<IncomingStream> i = streams.values().iterator();
+		while (i.hasNext()) {
+			IncomingStream stream = i.next();
+			if (stream.getLastUsed() < limit) {
+				i.remove();
+				expiredStreams.incrementAndGet();
+				logger.warn("Incoming stream from \"" + stream.getSender() + "\" node is timed out.");
+				stream.abort(new MoleculerError("Stream is timed out (no activity in " + streamIdleTimeout + " msec).",
+						null, "MoleculerError", nodeID, false, 408, "STREAM_TIMEOUT", "sender", stream.getSender()));
 			}
-
-			// Schedule next timeout timer
-			long delay = Math.max(10, minTimeoutAt - now);
-			callTimeoutTimer.set(scheduler.schedule(this::checkTimeouts, delay, TimeUnit.MILLISECONDS));
 		}
 	}
 
@@ -363,16 +473,16 @@ public class DefaultServiceRegistry extends ServiceRegistry {
 
 	protected void register(String id, Promise promise, long timeoutAt) {
 		promises.put(id, new PendingPromise(promise, timeoutAt));
-
-		long nextTimeoutAt = prevTimeoutAt.get();
-		if (nextTimeoutAt == 0 || (timeoutAt / 100 * 100) + 100 < nextTimeoutAt || promises.size() < 3) {
-			scheduler.execute(() -> {
-				reschedule(timeoutAt);
-			});
+		if (timeoutAt > 0) {
+			long deadline = timeoutWheel.add(id, timeoutAt);
+			if (deadline > 0) {
+				scheduleTimeouts(deadline);
+			}
 		}
 	}
 
-	protected void deregister(String id) {
+	@Override
+	public void deregister(String id) {
 		promises.remove(id);
 	}
 
@@ -380,6 +490,11 @@ public class DefaultServiceRegistry extends ServiceRegistry {
 
 	@Override
 	public void receiveRequest(Tree message) {
+		receiveRequest(message, Deadline.currentTimeMillis());
+	}
+
+	@Override
+	public void receiveRequest(Tree message, long receivedAt) {
 
 		// Get request's unique ID
 		String id = message.get("id", (String) null);
@@ -406,6 +521,16 @@ public class DefaultServiceRegistry extends ServiceRegistry {
 			}
 		}
 
+		// Credits of an outgoing response stream
+		long credit = message.get("credit", 0L);
+		if (credit > 0) {
+			StreamCredits credits = responseCredits.get(id);
+			if (credits != null) {
+				credits.grant(credit);
+			}
+			return;
+		}
+
 		// Incoming stream handling
 		IncomingStream requestStream = requestStreams.get(id);
 		if (requestStream != null) {
@@ -428,7 +553,7 @@ public class DefaultServiceRegistry extends ServiceRegistry {
 			return;
 		}
 		if (message.get("stream", false)) {
-			requestStream = new IncomingStream(nodeID, scheduler);
+			requestStream = createIncomingStream(PACKET_RESPONSE, sender, id);
 			if (!requestStream.receive(message)) {
 				requestStreams.put(id, requestStream);
 			}
@@ -444,13 +569,7 @@ public class DefaultServiceRegistry extends ServiceRegistry {
 		}
 
 		// Get strategy (action endpoint array) by action name
-		Strategy<ActionEndpoint> strategy;
-		readLock.lock();
-		try {
-			strategy = strategies.get(action);
-		} finally {
-			readLock.unlock();
-		}
+		Strategy<ActionEndpoint> strategy = actionTable.get(action);
 		if (strategy == null) {
 			logger.warn("Invalid action name (" + action + ")!");
 			transporter.publish(PACKET_RESPONSE, sender,
@@ -467,6 +586,28 @@ public class DefaultServiceRegistry extends ServiceRegistry {
 			return;
 		}
 
+		// Get timeout (the remaining time, minus the time spent in the queue)
+		int timeout = message.get("timeout", 0);
+		if (timeout > 0) {
+			long remaining = timeout - (Deadline.currentTimeMillis() - receivedAt);
+			if (remaining < 1) {
+				if (shedExpiredRequests && requestStream == null) {
+
+					// The caller is no longer waiting for the response
+					shedRequests.incrementAndGet();
+					if (logger.isDebugEnabled()) {
+						logger.debug("Request of the \"" + action + "\" action is skipped (timeout expired "
+								+ (-remaining) + " msec ago).");
+					}
+					transporter.publish(PACKET_RESPONSE, sender,
+							throwableToTree(id, nodeID, new RequestSkippedError(nodeID, action)));
+					return;
+				}
+				remaining = 1;
+			}
+			timeout = (int) remaining;
+		}
+
 		// Process params and meta
 		Tree params = message.get("params");
 		if (params == null) {
@@ -477,8 +618,7 @@ public class DefaultServiceRegistry extends ServiceRegistry {
 			params.getMeta().setObject(params);
 		}
 
-		// Get timeout
-		int timeout = message.get("timeout", 0);
+		// Create call options
 		CallOptions.Options opts;
 		if (timeout > 0) {
 			opts = CallOptions.timeout(timeout);
@@ -524,14 +664,38 @@ public class DefaultServiceRegistry extends ServiceRegistry {
 
 				// Define sender for response stream
 				if (responseStream != null) {
+					StreamCredits credits = createStreamCredits(responseCredits, id, sender);
 					responseStream.onPacket(new PacketListener() {
 
 						// Create sequence counter
 						private final AtomicLong sequence = new AtomicLong();
 
+						@Override
+						public final boolean copiesPackets() {
+							return true;
+						}
+
+						@Override
+						public final boolean isWritable(Runnable resume) {
+							return credits == null || credits.isWritable(resume);
+						}
+
+						@Override
+						public final void onFile(FileSource source, long position, int count) throws IOException {
+							if (credits != null) {
+								credits.acquire(count);
+							}
+							sequence.compareAndSet(10000000, -1);
+							transporter.sendFileDataPacket(Transporter.PACKET_RESPONSE, sender, ctx, source, position,
+									count, sequence.incrementAndGet());
+						}
+
 						@Override
 						public final void onPacket(byte[] bytes, Throwable cause, boolean close) throws IOException {
 							if (bytes != null) {
+								if (credits != null) {
+									credits.acquire(bytes.length);
+								}
 								sequence.compareAndSet(10000000, -1);
 								transporter.sendDataPacket(Transporter.PACKET_RESPONSE, sender, ctx, bytes,
 										sequence.incrementAndGet());
@@ -540,6 +704,9 @@ public class DefaultServiceRegistry extends ServiceRegistry {
 										sequence.incrementAndGet());
 							}
 							if (close) {
+								if (credits != null) {
+									responseCredits.remove(id);
+								}
 								transporter.sendClosePacket(Transporter.PACKET_RESPONSE, sender, ctx,
 										sequence.incrementAndGet());
 							}
@@ -625,7 +792,17 @@ public class DefaultServiceRegistry extends ServiceRegistry {
 			logger.warn("Missing \"id\" property!", message);
 			return;
 		}
-		
+
+		// Credits of an outgoing request stream
+		long credit = message.get("credit", 0L);
+		if (credit > 0) {
+			StreamCredits credits = requestCredits.get(id);
+			if (credits != null) {
+				credits.grant(credit);
+			}
+			return;
+		}
+
 		// Incoming (response) stream handling
 		IncomingStream responseStream = responseStreams.get(id);
 		if (responseStream != null) {
@@ -644,17 +821,28 @@ public class DefaultServiceRegistry extends ServiceRegistry {
 			return;
 		}
 		if (message.get("stream", false)) {
-			responseStream = new IncomingStream(nodeID, scheduler);
+			responseStream = createIncomingStream(PACKET_REQUEST, message.get("sender", ""), id);
 			if (!responseStream.receive(message)) {
 				responseStreams.put(id, responseStream);
 			}
 			message.putObject("data", responseStream.getPacketStream());
+		} else {
+
+			// The receiver of the request stream does not need more data
+			StreamCredits credits = requestCredits.remove(id);
+			if (credits != null) {
+				credits.close();
+			}
 		}
 
 		// Get stored promise
 		PendingPromise pending = promises.remove(id);
 		if (pending == null) {
-			logger.warn("Unknown (maybe timeouted) response received!", message);
+
+			// Timeouted or deregistered (eg. the loser of a hedged call)
+			if (logger.isDebugEnabled()) {
+				logger.debug("Unknown (maybe timeouted) response received!", message);
+			}
 			return;
 		}
 		try {
@@ -688,6 +876,58 @@ public class DefaultServiceRegistry extends ServiceRegistry {
 		}
 	}
 
+	// --- STREAM FLOW CONTROL ---
+
+	/**
+	 * Creates a new incoming stream. If both nodes support flow control, the
+	 * stream grants credits to the sender after the received chunks are
+	 * consumed.
+	 * 
+	 * @param creditChannel
+	 *            channel type of the credit packets
+	 * @param sender
+	 *            nodeID of the stream's sender
+	 * @param id
+	 *            ID of the call
+	 * 
+	 * @return new incoming stream
+	 */
+	protected IncomingStream createIncomingStream(String creditChannel, String sender, String id) {
+		if (streamWindow > 0 && transporter.getStreamWindow(sender) > 0) {
+			return new IncomingStream(nodeID, sender, scheduler, streamWindow, credit -> {
+				transporter.sendCreditPacket(creditChannel, sender, id, credit);
+			}, streamBufferQuota);
+		}
+		return new IncomingStream(nodeID, sender, scheduler, 0, null, streamBufferQuota);
+	}
+
+	/**
+	 * Creates the credit counter of an outgoing stream (or returns null, if
+	 * the target node does not support flow control).
+	 * 
+	 * @param registry
+	 *            map of the credit counters (requestCredits or
+	 *            responseCredits)
+	 * @param id
+	 *            ID of the call
+	 * @param target
+	 *            nodeID of the stream's receiver
+	 * 
+	 * @return credit counter (or null)
+	 */
+	protected StreamCredits createStreamCredits(Map<String, StreamCredits> registry, String id, String target) {
+		if (streamWindow < 1) {
+			return null;
+		}
+		long window = transporter.getStreamWindow(target);
+		if (window < 1) {
+			return null;
+		}
+		StreamCredits credits = new StreamCredits(window, streamCreditTimeout);
+		registry.put(id, credits);
+		return credits;
+	}
+
 	// --- ADD MIDDLEWARES ---
 
 	@Override
@@ -779,6 +1019,7 @@ public class DefaultServiceRegistry extends ServiceRegistry {
 		Class<? extends Service> clazz = service.getClass();
 		Field[] fields = clazz.getFields();
 		int actionCounter = 0;
+		LinkedList<String> balancedActions = null;
 
 		writeLock.lock();
 		try {
@@ -801,7 +1042,8 @@ public class DefaultServiceRegistry extends ServiceRegistry {
 				convertAnnotations(actionConfig, annotations);
 
 				// Register action
-				LocalActionEndpoint endpoint = new LocalActionEndpoint(this, executor, nodeID, actionConfig, action);
+				LocalActionEndpoint endpoint = new LocalActionEndpoint(this, executor, blockingExecutor, nodeID,
+						actionConfig, action);
 				Strategy<ActionEndpoint> actionStrategy = strategies.get(actionName);
 				if (actionStrategy == null) {
 
@@ -816,6 +1058,14 @@ public class DefaultServiceRegistry extends ServiceRegistry {
 					endpoint.use(middleware);
 				}
 
+				// Subscribe balanced channel of the action
+				if (transporter != null && transporter.hasBuiltInBalancer()) {
+					if (balancedActions == null) {
+						balancedActions = new LinkedList<>();
+					}
+					balancedActions.add(actionName);
+				}
+
 				// Write log about this action
 				logger.info("Action \"" + actionName + "\" registered.");
 				actionCounter++;
@@ -831,9 +1081,17 @@ public class DefaultServiceRegistry extends ServiceRegistry {
 			logger.error("Unable to register local service!", cause);
 			return;
 		} finally {
+			publishActionTable();
 			writeLock.unlock();
 		}
 
+		// Subscribe balanced channels (used by the built-in balancer)
+		if (balancedActions != null) {
+			for (String actionName : balancedActions) {
+				transporter.subscribeBalancedRequest(actionName);
+			}
+		}
+
 		// Notify local listeners about the new LOCAL service
 		broadcastServicesChanged(true);
 
@@ -892,6 +1150,7 @@ public class DefaultServiceRegistry extends ServiceRegistry {
 			}
 			names.add(serviceName);
 		} finally {
+			publishActionTable();
 			writeLock.unlock();
 		}
 
@@ -913,6 +1172,7 @@ public class DefaultServiceRegistry extends ServiceRegistry {
 					endpoints.remove();
 				}
 			}
+			publishActionTable();
 			if (this.nodeID.equals(nodeID)) {
 
 				// Stop local services
@@ -940,6 +1200,17 @@ public class DefaultServiceRegistry extends ServiceRegistry {
 		}
 	}
 
+	// --- PUBLISH ACTION TABLE ---
+
+	/**
+	 * Replaces the lock-free action table with a copy of the "strategies" map.
+	 * Must be called while holding the writer lock.
+	 */
+	protected void publishActionTable() {
+		actionTable = Collections.unmodifiableMap(new HashMap<>(strategies));
+		actionTableVersion.incrementAndGet();
+	}
+
 	protected void stopAllLocalServices() {
 		for (Map.Entry<String, Service> serviceEntry : services.entrySet()) {
 			String name = serviceEntry.getKey();
@@ -974,13 +1245,7 @@ public class DefaultServiceRegistry extends ServiceRegistry {
 
 	@Override
 	public Action getAction(String name, String nodeID) {
-		Strategy<ActionEndpoint> strategy;
-		readLock.lock();
-		try {
-			strategy = strategies.get(name);
-		} finally {
-			readLock.unlock();
-		}
+		Strategy<ActionEndpoint> strategy = actionTable.get(name);
 		if (strategy == null) {
 			throw new ServiceNotFoundError(nodeID, name);
 		}
@@ -991,6 +1256,50 @@ public class DefaultServiceRegistry extends ServiceRegistry {
 		return endpoint;
 	}
 
+	// --- GET ACTION OF THE TRANSPORTER'S BUILT-IN BALANCER ---
+
+	@Override
+	public Action getBalancedAction(String name) {
+		Transporter t = transporter;
+		if (t == null || !t.hasBuiltInBalancer()) {
+			return null;
+		}
+		return balancedAction;
+	}
+
+	protected Promise sendBalancedRequest(Context ctx) {
+
+		// Create new promise
+		Promise promise = new Promise();
+
+		// Register promise (timeout and response handling)
+		long timeoutAt;
+		if (ctx.deadline != null) {
+			timeoutAt = ctx.deadline.getTimeoutAt();
+		} else {
+			timeoutAt = 0;
+		}
+		register(ctx.id, promise, timeoutAt);
+
+		// Send request to the balanced channel of the action
+		transporter.sendBalancedRequestPacket(ctx);
+		return promise;
+	}
+
+	// --- GET STRATEGY (ENDPOINT LIST) OF AN ACTION ---
+
+	@Override
+	public Strategy<ActionEndpoint> getStrategy(String name) {
+		return actionTable.get(name);
+	}
+
+	// --- VERSION OF THE ACTION TABLE ---
+
+	@Override
+	public long getVersion() {
+		return actionTableVersion.get();
+	}
+
 	// --- WAIT FOR SERVICE(S) ---
 
 	@Override
@@ -1114,7 +1423,7 @@ public class DefaultServiceRegistry extends ServiceRegistry {
 		// Set timeout
 		long timeoutAt;
 		if (timeoutMillis > 0) {
-			timeoutAt = System.currentTimeMillis() + timeoutMillis;
+			timeoutAt = Deadline.after(timeoutMillis).getTimeoutAt();
 		} else {
 			timeoutAt = 0;
 		}
@@ -1256,11 +1565,26 @@ public class DefaultServiceRegistry extends ServiceRegistry {
 				}
 
 				// Client descriptor
-				FastBuildTree client = descriptor.putMapUnsafe("client", 3);
+				FastBuildTree client = descriptor.putMapUnsafe("client", 6);
 				client.putUnsafe("type", "java");
 				client.putUnsafe("version", ServiceBroker.SOFTWARE_VERSION);
 				client.putUnsafe("langVersion", System.getProperty("java.version", "1.8"));
 
+				// Supported stream chunk encoding
+				if (transporter != null && transporter.isCompactStreams()) {
+					client.putUnsafe("streamEncoding", Transporter.STREAM_ENCODING_BASE64);
+				}
+
+				// Raw binary stream frames (eg. zero-copy file transfer)
+				if (transporter != null && transporter.supportsBinaryStreamFrames()) {
+					client.putUnsafe("streamFrames", Transporter.STREAM_FRAMES_BINARY);
+				}
+
+				// Receive window of streams (flow control)
+				if (streamWindow > 0) {
+					client.putUnsafe("streamWindow", streamWindow);
+				}
+
 				// Set timestamp
 				timestamp.set(System.currentTimeMillis());
 				cachedDescriptor = descriptor;
@@ -1297,4 +1621,105 @@ public class DefaultServiceRegistry extends ServiceRegistry {
 		this.writeErrorsToLog = writeErrorsToLog;
 	}
 
+	public boolean isShedExpiredRequests() {
+		return shedExpiredRequests;
+	}
+
+	public void setShedExpiredRequests(boolean shedExpiredRequests) {
+		this.shedExpiredRequests = shedExpiredRequests;
+	}
+
+	public long getShedRequests() {
+		return shedRequests.get();
+	}
+
+
+	public long getStreamWindow() {
+		return streamWindow;
+	}
+
+	public void setStreamWindow(long streamWindow) {
+		this.streamWindow = Math.max(0, streamWindow);
+	}
+
+	public long getStreamCreditTimeout() {
+		return streamCreditTimeout;
+	}
+
+	public void setStreamCreditTimeout(long streamCreditTimeout) {
+		this.streamCreditTimeout = streamCreditTimeout;
+	}
+
+
+	public long getStreamIdleTimeout() {
+		return streamIdleTimeout;
+	}
+
+	public void setStreamIdleTimeout(long streamIdleTimeout) {
+		this.streamIdleTimeout = Math.max(0, streamIdleTimeout);
+	}
+
+	public long getStreamSweepPeriod() {
+		return streamSweepPeriod;
+	}
+
+	public void setStreamSweepPeriod(long streamSweepPeriod) {
+		this.streamSweepPeriod = Math.max(0, streamSweepPeriod);
+	}
+
+	public long getMaxStreamBufferSize() {
+		return maxStreamBufferSize;
+	}
+
+	public void setMaxStreamBufferSize(long maxStreamBufferSize) {
+		this.maxStreamBufferSize = Math.max(0, maxStreamBufferSize);
+	}
+
+	public long getMaxStreamBufferSizePerNode() {
+		return maxStreamBufferSizePerNode;
+	}
+
+	public void setMaxStreamBufferSizePerNode(long maxStreamBufferSizePerNode) {
+		this.maxStreamBufferSizePerNode = Math.max(0, maxStreamBufferSizePerNode);
+	}
+
+	// --- STREAM METRICS ---
+
+	/**
+	 * Returns the number of the registered incoming streams.
+	 * 
+	 * @return number of active streams
+	 */
+	public int getActiveStreams() {
+		return requestStreams.size() + responseStreams.size();
+	}
+
+	/**
+	 * Returns the size of the buffered out-of-order stream packets.
+	 * 
+	 * @return pooled bytes
+	 */
+	public long getPooledStreamBytes() {
+		StreamBufferQuota quota = streamBufferQuota;
+		return quota == null ? 0 : quota.getBytes();
+	}
+
+	/**
+	 * Returns the size of the buffered out-of-order stream packets of a
+	 * sender node.
+	 * 
+	 * @param nodeID
+	 *            sender's nodeID
+	 * 
+	 * @return pooled bytes
+	 */
+	public long getPooledStreamBytes(String nodeID) {
+		StreamBufferQuota quota = streamBufferQuota;
+		return quota == null ? 0 : quota.getBytes(nodeID);
+	}
+
+	public long getExpiredStreams() {
+		return expiredStreams.get();
+	}
+
 }
@@ -36,23 +36,30 @@ public class LocalActionEndpoint extends ActionEndpoint {
 
 	public LocalActionEndpoint(DefaultServiceRegistry registry, ExecutorService executor,
 			String nodeID, Tree config, Action action) {
+		this(registry, executor, null, nodeID, config, action);
+	}
+
+	public LocalActionEndpoint(DefaultServiceRegistry registry, ExecutorService executor,
+			ExecutorService blockingExecutor, String nodeID, Tree config, Action action) {
 		super(nodeID, config);
 
+		// Blocking actions are invoked via the (virtual thread based) executor
+		ExecutorService blockingPool = blockingExecutor != null && config.get("blocking", false) ? blockingExecutor
+				: null;
+		ExecutorService pool = blockingPool == null ? executor : blockingPool;
+
 		// Handle local timeout with a handler
 		current = ctx -> {
-			if (ctx.opts != null && ctx.opts.timeout > 0) {
+			if (ctx.deadline != null) {
 
 				// Create promise
 				Promise promise = new Promise();
 
 				// Execute local task
-				executor.execute(() -> {
+				pool.execute(() -> {
 
-					// Set timeout
-					long timeoutAt = System.currentTimeMillis() + ctx.opts.timeout;
-
-					// Register promise
-					registry.register(ctx.id, promise, timeoutAt);
+					// Register promise (with the deadline of the Context)
+					registry.register(ctx.id, promise, ctx.deadline.getTimeoutAt());
 
 					// Invoke async method
 					try {
@@ -78,6 +85,23 @@ public class LocalActionEndpoint extends ActionEndpoint {
 				// Return promise
 				return promise;
 
+			} else if (blockingPool != null) {
+
+				// Invoke blocking handler without timeout handling
+				Promise promise = new Promise();
+				blockingPool.execute(() -> {
+					try {
+						Promise.resolve(action.handler(ctx)).then(in -> {
+							promise.complete(in);
+						}).catchError(err -> {
+							promise.complete(err);
+						});
+					} catch (Exception cause) {
+						promise.complete(cause);
+					}
+				});
+				return promise;
+
 			} else {
 
 				// Invoke handler without timeout handling
@@ -30,7 +30,9 @@ import java.util.concurrent.atomic.AtomicLong;
 
 import io.datatree.Promise;
 import io.datatree.Tree;
+import services.moleculer.stream.FileSource;
 import services.moleculer.stream.PacketListener;
+import services.moleculer.stream.StreamCredits;
 import services.moleculer.transporter.Transporter;
 
 public class RemoteActionEndpoint extends ActionEndpoint {
@@ -48,8 +50,8 @@ public class RemoteActionEndpoint extends ActionEndpoint {
 
 			// Set timeout
 			long timeoutAt;
-			if (ctx.opts != null && ctx.opts.timeout > 0) {
-				timeoutAt = System.currentTimeMillis() + ctx.opts.timeout;
+			if (ctx.deadline != null) {
+				timeoutAt = ctx.deadline.getTimeoutAt();
 			} else {
 				timeoutAt = 0;
 			}
@@ -62,14 +64,38 @@ public class RemoteActionEndpoint extends ActionEndpoint {
 
 			// Streamed content
 			if (ctx.stream != null) {
+				StreamCredits credits = registry.createStreamCredits(registry.requestCredits, ctx.id, nodeID);
 				ctx.stream.onPacket(new PacketListener() {
 
 					// Create sequence counter
 					private final AtomicLong sequence = new AtomicLong();
 
+					@Override
+					public final boolean copiesPackets() {
+						return true;
+					}
+
+					@Override
+					public final boolean isWritable(Runnable resume) {
+						return credits == null || credits.isWritable(resume);
+					}
+
+					@Override
+					public final void onFile(FileSource source, long position, int count) throws IOException {
+						if (credits != null) {
+							credits.acquire(count);
+						}
+						sequence.compareAndSet(10000000, -1);
+						transporter.sendFileDataPacket(Transporter.PACKET_REQUEST, nodeID, ctx, source, position, count,
+								sequence.incrementAndGet());
+					}
+
 					@Override
 					public final void onPacket(byte[] bytes, Throwable cause, boolean close) throws IOException {
 						if (bytes != null) {
+							if (credits != null) {
+								credits.acquire(bytes.length);
+							}
 							sequence.compareAndSet(10000000, -1);
 							transporter.sendDataPacket(Transporter.PACKET_REQUEST, nodeID, ctx, bytes,
 									sequence.incrementAndGet());
@@ -78,6 +104,9 @@ public class RemoteActionEndpoint extends ActionEndpoint {
 									sequence.incrementAndGet());
 						}
 						if (close) {
+							if (credits != null) {
+								registry.requestCredits.remove(ctx.id);
+							}
 							transporter.sendClosePacket(Transporter.PACKET_REQUEST, nodeID, ctx,
 									sequence.incrementAndGet());
 						}
@@ -44,4 +44,11 @@ public abstract class ServiceInvoker extends MoleculerComponent {
 
 	public abstract Promise call(String name, Tree params, CallOptions.Options opts, PacketStream stream, Context parent);
 
+	// --- CALL ACTION VIA PRE-RESOLVED HANDLE ---
+
+	public Promise call(ActionHandle handle, Tree params, CallOptions.Options opts, PacketStream stream,
+			Context parent) {
+		return call(handle.getName(), params, opts, stream, parent);
+	}
+
 }
\ No newline at end of file
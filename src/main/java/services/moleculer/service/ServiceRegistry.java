@@ -29,6 +29,7 @@ import java.util.Collection;
 
 import io.datatree.Promise;
 import io.datatree.Tree;
+import services.moleculer.strategy.Strategy;
 
 /**
  * Base superclass of all Service Registry implementations.
@@ -42,6 +43,21 @@ public abstract class ServiceRegistry extends MoleculerComponent {
 
 	public abstract void receiveRequest(Tree message);
 
+	/**
+	 * Processes an incoming request. The time spent in the queue of the
+	 * Transporter's executor is deducted from the timeout of the request.
+	 * 
+	 * @param message
+	 *            incoming message
+	 * @param receivedAt
+	 *            arrival time of the message (see
+	 *            {@link services.moleculer.context.Deadline#currentTimeMillis()
+	 *            Deadline.currentTimeMillis})
+	 */
+	public void receiveRequest(Tree message, long receivedAt) {
+		receiveRequest(message);
+	}
+
 	// --- RECEIVE PING-PONG RESPONSE ---
 
 	public abstract void receivePong(Tree message);
@@ -66,6 +82,19 @@ public abstract class ServiceRegistry extends MoleculerComponent {
 
 	public abstract void removeActions(String nodeID);
 
+	// --- REMOVE PENDING CALL ---
+
+	/**
+	 * Removes the promise of a pending call, without completing it (eg. the
+	 * slower request of a hedged call). The late response of the call is
+	 * dropped.
+	 * 
+	 * @param id
+	 *            ID of the call
+	 */
+	public void deregister(String id) {
+	}
+
 	// --- GET LOCAL SERVICE ---
 
 	public abstract Service getService(String name);
@@ -74,6 +103,50 @@ public abstract class ServiceRegistry extends MoleculerComponent {
 
 	public abstract Action getAction(String name, String nodeID);
 
+	// --- GET STRATEGY (ENDPOINT LIST) OF AN ACTION ---
+
+	/**
+	 * Returns the Strategy (endpoint list) of the specified action. Returns
+	 * null if the action is unknown, or the registry does not expose its
+	 * strategies.
+	 * 
+	 * @param name
+	 *            name of the action (eg. "math.add")
+	 * 
+	 * @return Strategy of the action (or null)
+	 */
+	public Strategy<ActionEndpoint> getStrategy(String name) {
+		return null;
+	}
+
+	// --- GET ACTION OF THE TRANSPORTER'S BUILT-IN BALANCER ---
+
+	/**
+	 * Returns an Action which sends the request to the balanced channel of the
+	 * specified action (the message broker selects the target node). Returns
+	 * null if the Transporter has no built-in balancer.
+	 * 
+	 * @param name
+	 *            name of the action (eg. "math.add")
+	 * 
+	 * @return balanced Action (or null)
+	 */
+	public Action getBalancedAction(String name) {
+		return null;
+	}
+
+	// --- VERSION OF THE ACTION TABLE (CHANGES ON EVERY MODIFICATION) ---
+
+	/**
+	 * Returns the version of the action table. Returns -1 if the registry is
+	 * not versioned (ActionHandles look up the action on every call).
+	 * 
+	 * @return version of the action table (or -1)
+	 */
+	public long getVersion() {
+		return -1;
+	}
+
 	// --- WAIT FOR SERVICE(S) ---
 
 	public abstract Promise waitForServices(long timeoutMillis, Collection<String> services);
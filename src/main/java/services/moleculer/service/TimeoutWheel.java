@@ -0,0 +1,227 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2017 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.service;
+
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hashed timing wheel of the pending action calls. Registering, completing and
+ * expiring a call are constant-time operations: the registration is a single
+ * queue insert, the completion simply removes the promise from the "promises"
+ * map (the orphan ID is dropped when its bucket is processed), and the timer
+ * task processes only the buckets of the elapsed ticks instead of scanning all
+ * pending promises.<br>
+ * <br>
+ * The wheel does not require a periodic timer: it keeps track of the
+ * earliest bucket, and the caller has to (re)schedule its one-shot timer only
+ * when the "add" or "expire" method returns a new deadline.
+ */
+public class TimeoutWheel {
+
+	// --- PENDING PROMISES ---
+
+	protected final ConcurrentHashMap<String, PendingPromise> promises;
+
+	// --- NEWLY REGISTERED IDS ---
+
+	protected final ConcurrentLinkedQueue<String> registered = new ConcurrentLinkedQueue<>();
+
+	// --- BUCKETS ---
+
+	protected final ArrayList<String>[] buckets;
+
+	// --- PROPERTIES ---
+
+	/**
+	 * Bitmask of the bucket index (number of buckets - 1)
+	 */
+	protected final int mask;
+
+	/**
+	 * Duration of one tick in milliseconds
+	 */
+	protected final long tickTime;
+
+	// --- VARIABLES OF THE TIMER TASK ---
+
+	/**
+	 * Last processed tick
+	 */
+	protected long processedTick;
+
+	/**
+	 * Tick of the earliest scheduled timer (Long.MAX_VALUE = no timer)
+	 */
+	protected final AtomicLong scheduledTick = new AtomicLong(Long.MAX_VALUE);
+
+	// --- CONSTRUCTOR ---
+
+	@SuppressWarnings("unchecked")
+	public TimeoutWheel(ConcurrentHashMap<String, PendingPromise> promises, int ticksPerWheel, long tickTime) {
+		if (ticksPerWheel < 1 || Integer.bitCount(ticksPerWheel) != 1) {
+			throw new IllegalArgumentException("Number of buckets must be a power of two (" + ticksPerWheel + ")!");
+		}
+		if (tickTime < 1) {
+			throw new IllegalArgumentException("Invalid tick time (" + tickTime + ")!");
+		}
+		this.promises = promises;
+		this.mask = ticksPerWheel - 1;
+		this.tickTime = tickTime;
+		this.buckets = new ArrayList[ticksPerWheel];
+		for (int i = 0; i < ticksPerWheel; i++) {
+			buckets[i] = new ArrayList<>();
+		}
+	}
+
+	// --- REGISTER PENDING CALL ---
+
+	/**
+	 * Adds the ID of a pending call (which is already stored in the "promises"
+	 * map) to the timing wheel.
+	 * 
+	 * @param id
+	 *            ID of the call
+	 * @param timeoutAt
+	 *            timeout of the call
+	 * 
+	 * @return time of the new earliest deadline (when the caller must schedule
+	 *         a timer), or 0 (when the already scheduled timer is earlier)
+	 */
+	public long add(String id, long timeoutAt) {
+		registered.add(id);
+		return lowerScheduledTick(tickOf(timeoutAt));
+	}
+
+	// --- PROCESS ELAPSED TICKS ---
+
+	/**
+	 * Completes the expired calls with a TimeoutException. Invoked by the timer
+	 * of the registry.
+	 * 
+	 * @param now
+	 *            current timestamp
+	 * @param deadline
+	 *            the deadline for which the timer was scheduled
+	 * 
+	 * @return time of the next deadline (when the caller must schedule a
+	 *         timer), or 0 (when there is no pending call, or the next timer is
+	 *         already scheduled)
+	 */
+	public synchronized long expire(long now, long deadline) {
+		long currentTick = now / tickTime;
+		if (processedTick == 0) {
+			processedTick = currentTick - 1;
+		}
+
+		// Timer of the earliest bucket fired (an outdated timer does nothing)
+		scheduledTick.compareAndSet(deadline / tickTime, Long.MAX_VALUE);
+
+		// Transfer the newly registered IDs into buckets
+		String id;
+		PendingPromise pending;
+		while ((id = registered.poll()) != null) {
+			pending = promises.get(id);
+			if (pending == null || pending.timeoutAt < 1) {
+				continue;
+			}
+			long tick = Math.max(tickOf(pending.timeoutAt), processedTick + 1);
+			buckets[(int) (tick & mask)].add(id);
+		}
+
+		// Process the buckets of the elapsed ticks (each bucket at most once)
+		long ticks = Math.min(currentTick - processedTick, mask + 1);
+		for (long tick = currentTick - ticks + 1; tick <= currentTick; tick++) {
+			ArrayList<String> bucket = buckets[(int) (tick & mask)];
+			int size = bucket.size();
+			int kept = 0;
+			for (int i = 0; i < size; i++) {
+				id = bucket.get(i);
+				pending = promises.get(id);
+				if (pending == null) {
+
+					// Already completed
+					continue;
+				}
+				if (now >= pending.timeoutAt) {
+					if (promises.remove(id, pending)) {
+						pending.promise.complete(new TimeoutException("Action invocation timeouted!"));
+					}
+					continue;
+				}
+
+				// Expires in a later round
+				bucket.set(kept++, id);
+			}
+			for (int i = size - 1; i >= kept; i--) {
+				bucket.remove(i);
+			}
+		}
+		if (currentTick > processedTick) {
+			processedTick = currentTick;
+		}
+
+		// Find the earliest non-empty bucket
+		for (long tick = processedTick + 1; tick <= processedTick + mask + 1; tick++) {
+			if (!buckets[(int) (tick & mask)].isEmpty()) {
+				return lowerScheduledTick(tick);
+			}
+		}
+		return 0;
+	}
+
+	// --- TIMER HANDLING ---
+
+	protected long tickOf(long timeoutAt) {
+		return (timeoutAt + tickTime - 1) / tickTime;
+	}
+
+	protected long lowerScheduledTick(long tick) {
+		long current;
+		while (tick < (current = scheduledTick.get())) {
+			if (scheduledTick.compareAndSet(current, tick)) {
+
+				// Earliest bucket changed
+				return tick * tickTime;
+			}
+		}
+		return 0;
+	}
+
+	// --- REMOVE ALL ENTRIES ---
+
+	public synchronized void clear() {
+		registered.clear();
+		scheduledTick.set(Long.MAX_VALUE);
+		for (ArrayList<String> bucket : buckets) {
+			bucket.clear();
+		}
+	}
+
+}
\ No newline at end of file
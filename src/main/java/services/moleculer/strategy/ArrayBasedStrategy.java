@@ -47,7 +47,7 @@ public abstract class ArrayBasedStrategy<T extends Endpoint> extends Strategy<T>
 
 	// --- ARRAY OF ENDPOINTS ---
 
-	protected Endpoint[] endpoints = new Endpoint[0];
+	protected volatile Endpoint[] endpoints = new Endpoint[0];
 
 	// --- CACHE ---
 
@@ -151,6 +151,34 @@ public abstract class ArrayBasedStrategy<T extends Endpoint> extends Strategy<T>
 		return (T) next(array);
 	}
 
+	// --- GET AN ENDPOINT ON ANOTHER NODE ---
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public T getEndpointExcept(T endpoint) {
+		Endpoint[] array = endpoints;
+		Endpoint[] others = new Endpoint[array.length];
+		int count = 0;
+		String excludedID = endpoint.getNodeID();
+		for (Endpoint e : array) {
+			if (!excludedID.equals(e.getNodeID())) {
+				others[count++] = e;
+			}
+		}
+		if (count == 0) {
+			return null;
+		}
+		if (count == 1) {
+			return (T) others[0];
+		}
+		if (count < others.length) {
+			Endpoint[] copy = new Endpoint[count];
+			System.arraycopy(others, 0, copy, 0, count);
+			others = copy;
+		}
+		return (T) next(others);
+	}
+
 	protected Endpoint[] getEndpointsByNodeID(String nodeID) {
 		if (nodeID == null) {
 			return endpoints;
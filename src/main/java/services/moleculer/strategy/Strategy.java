@@ -52,6 +52,28 @@ public abstract class Strategy<T extends Endpoint> {
 
 	public abstract T getEndpoint(String nodeID);
 
+	// --- GET AN ENDPOINT ON ANOTHER NODE ---
+
+	/**
+	 * Returns an endpoint which is located on a different node than the
+	 * specified endpoint (eg. for hedged requests).
+	 * 
+	 * @param endpoint
+	 *            the already selected endpoint
+	 * 
+	 * @return endpoint on another node (or null)
+	 */
+	public T getEndpointExcept(T endpoint) {
+		List<T> endpoints = getAllEndpoints();
+		for (int i = 0; i < endpoints.size(); i++) {
+			T next = getEndpoint(null);
+			if (next != null && !next.getNodeID().equals(endpoint.getNodeID())) {
+				return next;
+			}
+		}
+		return null;
+	}
+
 	// --- GET ALL ENDPOINTS ---
 
 	public abstract List<T> getAllEndpoints();
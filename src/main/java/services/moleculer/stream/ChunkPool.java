@@ -0,0 +1,80 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2017 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.stream;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Pool of reusable stream chunks. Chunks are returned to the pool only when
+ * the listeners of the stream do not keep a reference to them (see
+ * {@link PacketListener#copiesPackets()}).
+ */
+public class ChunkPool {
+
+	// --- PROPERTIES ---
+
+	/**
+	 * Max number of pooled chunks per chunk size
+	 */
+	protected final int capacity;
+
+	// --- POOLED CHUNKS ---
+
+	protected final ConcurrentHashMap<Integer, ArrayBlockingQueue<byte[]>> chunks = new ConcurrentHashMap<>();
+
+	// --- CONSTRUCTOR ---
+
+	public ChunkPool(int capacity) {
+		this.capacity = capacity;
+	}
+
+	// --- ACQUIRE / RECYCLE ---
+
+	public byte[] acquire(int size) {
+		ArrayBlockingQueue<byte[]> queue = chunks.get(size);
+		if (queue != null) {
+			byte[] chunk = queue.poll();
+			if (chunk != null) {
+				return chunk;
+			}
+		}
+		return new byte[size];
+	}
+
+	public void recycle(byte[] chunk) {
+		ArrayBlockingQueue<byte[]> queue = chunks.get(chunk.length);
+		if (queue == null) {
+			queue = new ArrayBlockingQueue<>(capacity);
+			ArrayBlockingQueue<byte[]> prev = chunks.putIfAbsent(chunk.length, queue);
+			if (prev != null) {
+				queue = prev;
+			}
+		}
+		queue.offer(chunk);
+	}
+
+}
\ No newline at end of file
@@ -0,0 +1,123 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2017 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.stream;
+
+/**
+ * Adaptive chunk size of stream transfers. Starts from the minimum size and
+ * doubles the size of the chunks while the measured throughput grows. When a
+ * larger size does not improve the throughput (by at least 5 percent), the
+ * best size is kept until the end of the transfer.
+ */
+public class ChunkSizer {
+
+	// --- CONSTANTS ---
+
+	/**
+	 * Number of chunks per measurement window
+	 */
+	protected static final int WINDOW = 8;
+
+	/**
+	 * Required improvement of the throughput (to grow the chunk size)
+	 */
+	protected static final double MIN_IMPROVEMENT = 1.05;
+
+	// --- PROPERTIES ---
+
+	protected final int minSize;
+	protected final int maxSize;
+
+	// --- VARIABLES ---
+
+	protected int size;
+
+	protected int bestSize;
+	protected double bestRate;
+
+	protected long windowBytes;
+	protected long windowNanos;
+	protected int windowChunks;
+
+	protected boolean settled;
+
+	// --- CONSTRUCTOR ---
+
+	public ChunkSizer(int minSize, int maxSize) {
+		this.minSize = Math.max(1, minSize);
+		this.maxSize = Math.max(this.minSize, maxSize);
+		this.size = this.minSize;
+		this.bestSize = this.minSize;
+		this.settled = this.minSize == this.maxSize;
+	}
+
+	// --- MEASUREMENT ---
+
+	/**
+	 * Registers a submitted chunk.
+	 * 
+	 * @param bytes
+	 *            length of the chunk
+	 * @param nanos
+	 *            time of reading and submitting the chunk
+	 */
+	public void sent(int bytes, long nanos) {
+		if (settled) {
+			return;
+		}
+		windowBytes += bytes;
+		windowNanos += nanos;
+		if (++windowChunks < WINDOW) {
+			return;
+		}
+		double rate = (double) windowBytes / Math.max(1, windowNanos);
+		windowBytes = 0;
+		windowNanos = 0;
+		windowChunks = 0;
+		if (rate >= bestRate * MIN_IMPROVEMENT) {
+			bestRate = rate;
+			bestSize = size;
+			if (size < maxSize) {
+				size = (int) Math.min(maxSize, size * 2L);
+			} else {
+				settled = true;
+			}
+		} else {
+			size = bestSize;
+			settled = true;
+		}
+	}
+
+	// --- GETTERS ---
+
+	public int getSize() {
+		return size;
+	}
+
+	public boolean isSettled() {
+		return settled;
+	}
+
+}
\ No newline at end of file
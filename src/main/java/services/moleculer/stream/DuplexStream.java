@@ -0,0 +1,83 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2017 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.stream;
+
+import java.io.IOException;
+
+/**
+ * Bidirectional stream of a single call. The input and the output are two
+ * independent streams (with separate sequence numbers, reordering buffers and
+ * flow control), so both sides can send packets concurrently.
+ * 
+ * @see services.moleculer.context.Context#openDuplexStream(String, Object...)
+ * @see services.moleculer.context.Context#acceptDuplexStream()
+ */
+public class DuplexStream {
+
+	// --- PROPERTIES ---
+
+	/**
+	 * Packets sent by the other side
+	 */
+	protected final PacketStream input;
+
+	/**
+	 * Packets sent to the other side
+	 */
+	protected final PacketStream output;
+
+	// --- CONSTRUCTOR ---
+
+	public DuplexStream(PacketStream input, PacketStream output) {
+		this.input = input;
+		this.output = output;
+	}
+
+	// --- CLOSE THE OUTPUT ---
+
+	public boolean sendClose() throws IOException {
+		return output.sendClose();
+	}
+
+	public boolean sendError(Throwable cause) throws IOException {
+		return output.sendError(cause);
+	}
+
+	public boolean isClosed() {
+		return input.isClosed() && output.isClosed();
+	}
+
+	// --- GETTERS ---
+
+	public PacketStream getInput() {
+		return input;
+	}
+
+	public PacketStream getOutput() {
+		return output;
+	}
+
+}
\ No newline at end of file
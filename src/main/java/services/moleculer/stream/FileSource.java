@@ -0,0 +1,104 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2017 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.stream;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reference-counted FileChannel of a streamed file. Transporters which are
+ * able to send file regions without copying them into the heap (eg. the
+ * TcpTransporter via {@link FileChannel#transferTo}) retain the source until
+ * the region is written to the socket. The channel is closed when the last
+ * reference is released.
+ */
+public class FileSource {
+
+	// --- VARIABLES ---
+
+	protected final FileChannel channel;
+
+	protected final AtomicInteger references = new AtomicInteger(1);
+
+	// --- CONSTRUCTOR ---
+
+	public FileSource(FileChannel channel) {
+		this.channel = channel;
+	}
+
+	// --- REFERENCE COUNTING ---
+
+	public void retain() {
+		references.incrementAndGet();
+	}
+
+	public void release() {
+		if (references.decrementAndGet() == 0) {
+			try {
+				channel.close();
+			} catch (Exception ignored) {
+			}
+		}
+	}
+
+	// --- READ REGION INTO HEAP ---
+
+	/**
+	 * Reads the specified region of the file (used by transporters which
+	 * can't send file regions directly).
+	 * 
+	 * @param position
+	 *            start position
+	 * @param count
+	 *            number of bytes
+	 * 
+	 * @return bytes of the region
+	 * 
+	 * @throws IOException
+	 *             any I/O exception
+	 */
+	public byte[] read(long position, int count) throws IOException {
+		byte[] bytes = new byte[count];
+		ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		while (buffer.hasRemaining()) {
+			int len = channel.read(buffer, position + buffer.position());
+			if (len < 0) {
+				throw new EOFException("Unexpected end of file!");
+			}
+		}
+		return bytes;
+	}
+
+	// --- GETTERS ---
+
+	public FileChannel getChannel() {
+		return channel;
+	}
+
+}
\ No newline at end of file
@@ -25,18 +25,26 @@
  */
 package services.moleculer.stream;
 
+import java.util.Base64;
 import java.util.HashMap;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.LongConsumer;
 
 import io.datatree.Tree;
 import services.moleculer.error.MoleculerError;
 import services.moleculer.error.MoleculerErrorFactory;
+import services.moleculer.transporter.Transporter;
 
 public class IncomingStream {
 
 	// --- PROPERTIES ---
 
 	protected final String nodeID;
+
+	/**
+	 * NodeID of the stream's sender
+	 */
+	protected final String sender;
 	
 	protected final PacketStream stream;
 
@@ -45,12 +53,57 @@ public class IncomingStream {
 	protected volatile long lastSeq;
 
 	protected final HashMap<Long, Tree> pool = new HashMap<>();
-	
-	// --- CONSTRUCTOR ---
+
+	// --- MEMORY ACCOUNTING ---
+
+	/**
+	 * Limits of the buffered (out-of-order) bytes (can be null)
+	 */
+	protected final StreamBufferQuota quota;
+
+	/**
+	 * Size of the out-of-order packets in the pool
+	 */
+	protected long pooledBytes;
+
+	// --- FLOW CONTROL ---
+
+	/**
+	 * Receive window in bytes (0 = no flow control)
+	 */
+	protected final long window;
+
+	/**
+	 * Sends credits (in bytes) to the sender of the stream
+	 */
+	protected final LongConsumer creditSender;
+
+	/**
+	 * Consumed bytes since the last credit packet
+	 */
+	protected long consumed;
+
+	// --- CONSTRUCTORS ---
 
 	public IncomingStream(String nodeID, ScheduledExecutorService scheduler) {
+		this(nodeID, scheduler, 0, null);
+	}
+
+	public IncomingStream(String nodeID, ScheduledExecutorService scheduler, long window, LongConsumer creditSender) {
+		this(nodeID, null, scheduler, window, creditSender, null);
+	}
+
+	public IncomingStream(String nodeID, String sender, ScheduledExecutorService scheduler, long window,
+			LongConsumer creditSender, StreamBufferQuota quota) {
 		this.nodeID = nodeID;
+		this.sender = sender;
+		this.quota = quota;
 		this.stream = new PacketStream(scheduler);
+		this.window = window;
+		this.creditSender = window > 0 ? creditSender : null;
+		if (this.creditSender != null) {
+			stream.releaseHandler = this::consumed;
+		}
 	}
 
 	// --- RECEIVE PACKET ---
@@ -72,7 +125,19 @@ public class IncomingStream {
 			} else {
 				
 				// Process later
-				pool.put(seq, message);
+				long size = sizeOf(message);
+				if (quota != null && !quota.acquire(sender, size)) {
+					MoleculerError error = new MoleculerError(
+							"Stream buffer is full, out-of-order packet (seq=" + seq + ") is rejected.", null,
+							"MoleculerError", nodeID, true, 429, "STREAM_BUFFER_FULL", "sender", sender);
+					abort(error);
+					throw error;
+				}
+				pooledBytes += size;
+				Tree prev = pool.put(seq, message);
+				if (prev != null) {
+					unpooled(prev);
+				}
 				return false;
 			}
 		} else {
@@ -90,6 +155,8 @@ public class IncomingStream {
 			if (nextMessage == null) {
 				break;
 			}
+			unpooled(nextMessage);
+			lastSeq = nextSeq;
 			if (processMessage(nextMessage)) {
 				close = true;
 			}
@@ -111,11 +178,23 @@ public class IncomingStream {
 			Tree params = message.get("params");
 			if (params != null) {
 				Tree data = params.get("data");
-				if (data != null && data.isEnumeration()) {					
-					bytes = new byte[data.size()];
-					int idx = 0;
-					for (Tree item : data) {
-						bytes[idx++] = (byte) item.asInteger().intValue();
+				if (data != null) {
+					if (data.isEnumeration()) {
+
+						// NodeJS compatible byte-array encoding
+						bytes = new byte[data.size()];
+						int idx = 0;
+						for (Tree item : data) {
+							bytes[idx++] = (byte) item.asInteger().intValue();
+						}
+					} else if (Transporter.STREAM_ENCODING_BASE64.equals(params.get("encoding", ""))) {
+
+						// Compact Base64 encoding
+						bytes = Base64.getDecoder().decode(data.asString());
+					} else if (data.getType() == byte[].class) {
+
+						// Raw bytes (binary serializers, eg. MessagePack)
+						bytes = data.asBytes();
 					}
 				}
 			}
@@ -167,6 +246,81 @@ public class IncomingStream {
 		return false;
 	}
 	
+	// --- GRANT CREDITS ---
+
+	/**
+	 * Grants new credits to the sender, when the half of the receive window
+	 * is consumed. Invoked by the PacketStream when the listeners have
+	 * processed (or the Subscriber of the stream has requested) the received
+	 * bytes.
+	 * 
+	 * @param bytes
+	 *            number of consumed bytes
+	 */
+	protected synchronized void consumed(long bytes) {
+		lastUsed = System.currentTimeMillis();
+		consumed += bytes;
+		if (consumed >= window / 2) {
+			long credits = consumed;
+			consumed = 0;
+			creditSender.accept(credits);
+		}
+	}
+
+	// --- MEMORY ACCOUNTING ---
+
+	protected void unpooled(Tree message) {
+		long size = sizeOf(message);
+		pooledBytes -= size;
+		if (quota != null) {
+			quota.release(sender, size);
+		}
+	}
+
+	/**
+	 * Returns the (estimated) size of the payload of a data packet.
+	 * 
+	 * @param message
+	 *            data packet
+	 * 
+	 * @return size in bytes
+	 */
+	protected static long sizeOf(Tree message) {
+		Tree data = message.get("params.data");
+		if (data == null) {
+			return 0;
+		}
+		if (data.isEnumeration()) {
+			return data.size();
+		}
+		if (data.getType() == byte[].class) {
+			return data.asBytes().length;
+		}
+		String text = data.asString();
+		return text == null ? 0 : text.length();
+	}
+
+	// --- ABORT STREAM ---
+
+	/**
+	 * Drops the pooled packets and sends the error to the listeners (eg. when
+	 * the stream is idle for too long).
+	 * 
+	 * @param cause
+	 *            reason of the abort
+	 */
+	public synchronized void abort(Throwable cause) {
+		if (quota != null && pooledBytes > 0) {
+			quota.release(sender, pooledBytes);
+		}
+		pooledBytes = 0;
+		pool.clear();
+		try {
+			stream.sendError(cause);
+		} catch (Throwable ignored) {
+		}
+	}
+
 	// --- PROPERTY GETTERS ---
 
 	public long getLastUsed() {
@@ -177,4 +331,12 @@ public class IncomingStream {
 		return stream;
 	}
 
+	public String getSender() {
+		return sender;
+	}
+
+	public synchronized long getPooledBytes() {
+		return pooledBytes;
+	}
+
 }
\ No newline at end of file
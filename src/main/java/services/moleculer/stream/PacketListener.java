@@ -31,5 +31,51 @@ import java.io.IOException;
 public interface PacketListener {
 
 	void onPacket(byte[] bytes, Throwable cause, boolean close) throws IOException;
+
+	/**
+	 * Invoked when a region of a file is streamed. The default implementation
+	 * reads the region into the heap; remote listeners can pass the region to
+	 * the Transporter without copying it.
+	 * 
+	 * @param source
+	 *            streamed file
+	 * @param position
+	 *            start position of the region
+	 * @param count
+	 *            length of the region
+	 * 
+	 * @throws IOException
+	 *             any I/O exception
+	 */
+	default void onFile(FileSource source, long position, int count) throws IOException {
+		onPacket(source.read(position, count), null, false);
+	}
+
+	/**
+	 * Returns true if the listener does not keep a reference to the byte
+	 * arrays after the "onPacket" method returns (eg. it serializes or copies
+	 * them), so the sender can reuse the arrays.
+	 * 
+	 * @return true = packets are copied
+	 */
+	default boolean copiesPackets() {
+		return false;
+	}
+
+	/**
+	 * Returns true if the listener accepts the next chunk without blocking.
+	 * Otherwise the listener executes the "resume" task when it becomes
+	 * writable again (eg. the receiver of a remote stream grants new credits),
+	 * so the transfers of the PacketStream pause instead of blocking the
+	 * scheduler's thread.
+	 * 
+	 * @param resume
+	 *            continuation of the paused transfer
+	 * 
+	 * @return true = the listener is writable
+	 */
+	default boolean isWritable(Runnable resume) {
+		return true;
+	}
 	
 }
\ No newline at end of file
@@ -0,0 +1,240 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2017 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.stream;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+/**
+ * Reactive Streams Publisher of a PacketStream. The packets are passed to the
+ * Subscriber according to its demand. The packets are released (and the
+ * sender of an incoming stream gets new credits) when they are requested by
+ * the Subscriber, so a slow Subscriber slows down the remote sender without
+ * unbounded buffering. A stream can have only one Subscriber. Usage:
+ * 
+ * <pre>
+ * Flux.from(ctx.stream.asPublisher()).map(...)...
+ * </pre>
+ * 
+ * @see PacketStream#asPublisher()
+ */
+public class PacketPublisher implements Publisher<byte[]> {
+
+	// --- VARIABLES ---
+
+	protected final PacketStream stream;
+
+	// --- CONSTRUCTOR ---
+
+	public PacketPublisher(PacketStream stream) {
+		this.stream = stream;
+	}
+
+	// --- SUBSCRIBE ---
+
+	@Override
+	public void subscribe(Subscriber<? super byte[]> subscriber) {
+		if (subscriber == null) {
+			throw new NullPointerException("Subscriber must not be null!");
+		}
+		boolean subscribed;
+		synchronized (stream) {
+			subscribed = stream.deferredRelease;
+			stream.deferredRelease = true;
+		}
+		if (subscribed) {
+			subscriber.onSubscribe(new Subscription() {
+
+				@Override
+				public final void request(long n) {
+				}
+
+				@Override
+				public final void cancel() {
+				}
+
+			});
+			subscriber.onError(new IllegalStateException("PacketPublisher allows only one Subscriber!"));
+			return;
+		}
+		PacketSubscription subscription = new PacketSubscription(stream, subscriber);
+		subscriber.onSubscribe(subscription);
+		try {
+			stream.onPacket(subscription);
+		} catch (IOException cause) {
+			subscription.onPacket(null, cause, true);
+		}
+	}
+
+	// --- SUBSCRIPTION ---
+
+	protected static class PacketSubscription implements Subscription, PacketListener {
+
+		// --- VARIABLES ---
+
+		protected final PacketStream stream;
+
+		protected final Subscriber<? super byte[]> subscriber;
+
+		protected final ConcurrentLinkedQueue<byte[]> queue = new ConcurrentLinkedQueue<>();
+
+		protected final AtomicLong requested = new AtomicLong();
+
+		protected final AtomicInteger wip = new AtomicInteger();
+
+		protected volatile boolean done;
+
+		protected volatile boolean cancelled;
+
+		protected volatile Throwable error;
+
+		protected volatile Throwable invalidRequest;
+
+		// --- CONSTRUCTOR ---
+
+		protected PacketSubscription(PacketStream stream, Subscriber<? super byte[]> subscriber) {
+			this.stream = stream;
+			this.subscriber = subscriber;
+		}
+
+		// --- PACKET RECEIVED ---
+
+		@Override
+		public void onPacket(byte[] bytes, Throwable cause, boolean close) {
+			if (cancelled) {
+				if (bytes != null) {
+					stream.release(bytes.length);
+				}
+				return;
+			}
+			if (bytes != null) {
+				queue.offer(bytes);
+			}
+			if (cause != null) {
+				error = cause;
+				done = true;
+			} else if (close) {
+				done = true;
+			}
+			drain();
+		}
+
+		// --- SUBSCRIPTION METHODS ---
+
+		@Override
+		public void request(long n) {
+			if (n < 1) {
+				invalidRequest = new IllegalArgumentException("Number of requested packets must be positive (" + n + ")!");
+			} else {
+				long current, next;
+				do {
+					current = requested.get();
+					next = current + n;
+					if (next < 0) {
+						next = Long.MAX_VALUE;
+					}
+				} while (!requested.compareAndSet(current, next));
+			}
+			drain();
+		}
+
+		@Override
+		public void cancel() {
+			cancelled = true;
+			drain();
+		}
+
+		// --- EMIT PACKETS ---
+
+		protected void drain() {
+			if (wip.getAndIncrement() != 0) {
+				return;
+			}
+			int missed = 1;
+			do {
+				long r = requested.get();
+				long e = 0;
+				while (e != r) {
+					if (cancelled || invalidRequest != null) {
+						terminate();
+						return;
+					}
+					boolean d = done;
+					byte[] bytes = queue.poll();
+					if (bytes == null) {
+						if (d) {
+							terminate();
+							return;
+						}
+						break;
+					}
+					subscriber.onNext(bytes);
+					stream.release(bytes.length);
+					e++;
+				}
+				if (cancelled || invalidRequest != null || (done && queue.isEmpty())) {
+					terminate();
+					return;
+				}
+				if (e != 0 && r != Long.MAX_VALUE) {
+					requested.addAndGet(-e);
+				}
+				missed = wip.addAndGet(-missed);
+			} while (missed != 0);
+		}
+
+		protected void terminate() {
+			boolean wasCancelled = cancelled;
+			cancelled = true;
+
+			// Release unprocessed packets
+			byte[] bytes;
+			while ((bytes = queue.poll()) != null) {
+				stream.release(bytes.length);
+			}
+			if (wasCancelled) {
+				return;
+			}
+
+			// Send terminal signal
+			if (invalidRequest != null) {
+				subscriber.onError(invalidRequest);
+			} else if (error != null) {
+				subscriber.onError(error);
+			} else {
+				subscriber.onComplete();
+			}
+		}
+
+	}
+
+}
\ No newline at end of file
@@ -25,21 +25,27 @@
  */
 package services.moleculer.stream;
 
-import java.io.BufferedOutputStream;
+import java.io.Closeable;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.LinkedList;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
 
 import io.datatree.Promise;
 
@@ -52,6 +58,23 @@ public class PacketStream {
 
 	protected static final int DEFAULT_MIN_PACKET_SIZE = 1024 * 16;
 
+	protected static final int DEFAULT_MAX_PACKET_SIZE = 1024 * 1024;
+
+	/**
+	 * Max time of a transfer task (in NANOSECONDS), after that the transfer
+	 * continues in a new task. Scheduler-driven transfers never wait for
+	 * stream credits: a transfer pauses when a listener is not writable, and
+	 * the listener resumes it (see {@link #isWritable(Runnable)}). Only
+	 * writers on their own threads (eg. OutputStreams) wait in
+	 * {@link StreamCredits#acquire(int)}.
+	 */
+	protected static final long TIME_SLICE = TimeUnit.MILLISECONDS.toNanos(50);
+
+	/**
+	 * Pool of reusable chunks
+	 */
+	protected static final ChunkPool POOL = new ChunkPool(32);
+
 	protected static final byte[] CLOSE_MARKER = new byte[0];
 
 	// --- COMPONENTS ---
@@ -66,13 +89,48 @@ public class PacketStream {
 
 	protected final AtomicLong transferedBytes = new AtomicLong();
 
-	protected PacketListener[] listeners;
+	protected volatile PacketListener[] listeners;
+
+	/**
+	 * Invoked when the consumer has processed the given number of bytes (used
+	 * by the flow control of incoming streams and by the
+	 * {@link PacketSubscriber})
+	 */
+	protected volatile LongConsumer releaseHandler;
+
+	/**
+	 * True if the listener releases the processed bytes itself (eg. the
+	 * {@link PacketPublisher} releases the bytes when they are passed to the
+	 * Subscriber)
+	 */
+	protected volatile boolean deferredRelease;
 
 	protected Throwable cause;
 
+	/**
+	 * Size of the chunks of the OutputStream (and the initial size of the
+	 * chunks of the "transferFrom" methods)
+	 */
 	protected int packetSize = DEFAULT_MIN_PACKET_SIZE;
 
-	protected long packetDelay = 10;
+	/**
+	 * Upper limit of the chunk size of the "transferFrom" methods (0 = 1
+	 * MBytes, the ServiceBroker sets it from the Transporter's packet size
+	 * limit)
+	 */
+	protected int maxPacketSize;
+
+	/**
+	 * Increase the chunk size of the "transferFrom" methods while the
+	 * measured throughput grows (see {@link ChunkSizer})
+	 */
+	protected boolean adaptivePacketSize = true;
+
+	/**
+	 * Optional delay between chunks of the "transferFrom" methods in
+	 * MILLISECONDS (0 = read continuously while the listeners accept data)
+	 */
+	protected long packetDelay;
 
 	// --- CONSTRUCTOR ---
 
@@ -94,17 +152,21 @@ public class PacketStream {
 					return false;
 				}
 			}
-			PacketListener[] copy = new PacketListener[listeners.length];
+			PacketListener[] copy = new PacketListener[listeners.length + 1];
 			System.arraycopy(listeners, 0, copy, 0, listeners.length);
 			copy[listeners.length] = listener;
 			listeners = copy;
 		}
+		boolean release = listeners.length == 1 && !deferredRelease;
 		if (cause == null) {
 			for (byte[] bytes : buffer) {
 				if (bytes == CLOSE_MARKER) {
 					listener.onPacket(null, null, true);
 				} else {
 					listener.onPacket(bytes, null, false);
+					if (release) {
+						release(bytes.length);
+					}
 				}
 			}
 		} else {
@@ -119,11 +181,16 @@ public class PacketStream {
 		if (bytes != null && bytes.length > 0 && !closed.get()) {
 			if (listeners == null) {
 				buffer.addLast(bytes);
-			} else if (listeners.length == 1) {
-				listeners[0].onPacket(bytes, null, false);
 			} else {
-				for (PacketListener listener : listeners) {
-					listener.onPacket(bytes, null, false);
+				if (listeners.length == 1) {
+					listeners[0].onPacket(bytes, null, false);
+				} else {
+					for (PacketListener listener : listeners) {
+						listener.onPacket(bytes, null, false);
+					}
+				}
+				if (!deferredRelease) {
+					release(bytes.length);
 				}
 			}
 			transferedBytes.addAndGet(bytes.length);
@@ -132,6 +199,49 @@ public class PacketStream {
 		return false;
 	}
 
+	// --- SEND FILE REGION ---
+
+	public boolean sendFile(FileSource source, long position, int count) throws IOException {
+		if (count > 0 && !closed.get()) {
+			if (listeners == null) {
+				buffer.addLast(source.read(position, count));
+			} else {
+				if (listeners.length == 1) {
+					listeners[0].onFile(source, position, count);
+				} else {
+					for (PacketListener listener : listeners) {
+						listener.onFile(source, position, count);
+					}
+				}
+				if (!deferredRelease) {
+					release(count);
+				}
+			}
+			transferedBytes.addAndGet(count);
+			return true;
+		}
+		return false;
+	}
+
+	// --- RELEASE PROCESSED BYTES ---
+
+	/**
+	 * Signals that the consumer has processed the given number of bytes.
+	 * Listeners release the delivered bytes automatically, except the
+	 * {@link PacketPublisher}, which releases them when the Subscriber
+	 * requests them. On incoming streams the released bytes are granted back
+	 * to the sender as credits.
+	 * 
+	 * @param bytes
+	 *            number of processed bytes
+	 */
+	public void release(long bytes) {
+		LongConsumer handler = releaseHandler;
+		if (handler != null && bytes > 0) {
+			handler.accept(bytes);
+		}
+	}
+
 	// --- SEND ERROR ---
 
 	public boolean sendError(Throwable cause) throws IOException {
@@ -172,14 +282,82 @@ public class PacketStream {
 		return false;
 	}
 
+	// --- ACT AS REACTIVE STREAMS ---
+
+	/**
+	 * Creates a Publisher which emits the incoming packets according to the
+	 * demand of the Subscriber. Packets of remote streams are acknowledged
+	 * (and the sender gets new credits) only when they are requested by the
+	 * Subscriber, so the demand is honored end-to-end. The Publisher accepts
+	 * one Subscriber.
+	 * 
+	 * @return Publisher of the stream's packets
+	 */
+	public Publisher<byte[]> asPublisher() {
+		return new PacketPublisher(this);
+	}
+
+	/**
+	 * Creates a Subscriber which writes the received packets into this
+	 * stream. The Subscriber requests the next packet when the previous one
+	 * is processed by the consumer (or is submitted to the remote node).
+	 * 
+	 * @return Subscriber which writes into this stream
+	 */
+	public Subscriber<byte[]> asSubscriber() {
+		return new PacketSubscriber(this, null);
+	}
+
 	// --- ACT AS OUTPUT STREAM ---
 
 	public OutputStream asOutputStream() {
-		OutputStream out = new OutputStream() {
+
+		// Bufferless/direct output
+		if (packetSize < 2) {
+			return new OutputStream() {
+
+				@Override
+				public final void write(int b) throws IOException {
+					sendData(new byte[] { (byte) b });
+				}
+
+				@Override
+				public final void write(byte[] b) throws IOException {
+					write(b, 0, b.length);
+				}
+
+				@Override
+				public final void write(byte[] b, int off, int len) throws IOException {
+					byte[] copy = new byte[len];
+					System.arraycopy(b, off, copy, 0, len);
+					sendData(copy);
+				}
+
+				@Override
+				public final void flush() throws IOException {
+				}
+
+				@Override
+				public final void close() throws IOException {
+					sendClose();
+				}
+
+			};
+		}
+
+		// Buffered output (the bytes are written directly into the chunks)
+		final int size = packetSize;
+		return new OutputStream() {
+
+			private byte[] chunk = POOL.acquire(size);
+			private int count;
 
 			@Override
 			public final void write(int b) throws IOException {
-				sendData(new byte[] { (byte) b });
+				chunk[count++] = (byte) b;
+				if (count == size) {
+					submit();
+				}
 			}
 
 			@Override
@@ -189,29 +367,50 @@ public class PacketStream {
 
 			@Override
 			public final void write(byte[] b, int off, int len) throws IOException {
-				byte[] copy = new byte[len];
-				System.arraycopy(b, 0, copy, 0, len);
-				sendData(copy);
+				while (len > 0) {
+					int n = Math.min(len, size - count);
+					System.arraycopy(b, off, chunk, count, n);
+					count += n;
+					off += n;
+					len -= n;
+					if (count == size) {
+						submit();
+					}
+				}
 			}
 
 			@Override
 			public final void flush() throws IOException {
+				if (count > 0) {
+					submit();
+				}
 			}
 
 			@Override
 			public final void close() throws IOException {
+				flush();
 				sendClose();
 			}
 
-		};
-
-		// Bufferless/direct output
-		if (packetSize < 2) {
-			return out;
-		}
+			private final void submit() throws IOException {
+				byte[] packet;
+				if (count == size) {
+					packet = chunk;
+				} else {
+					packet = new byte[count];
+					System.arraycopy(chunk, 0, packet, 0, count);
+				}
+				count = 0;
+				sendData(packet);
+				if (packet == chunk) {
+					if (isRecyclable()) {
+						POOL.recycle(chunk);
+					}
+					chunk = POOL.acquire(size);
+				}
+			}
 
-		// Buffered output
-		return new BufferedOutputStream(out, packetSize);
+		};
 	}
 
 	// --- ACT AS BYTE CHANNEL ---
@@ -279,9 +478,14 @@ public class PacketStream {
 				try {
 					int len = src.remaining();
 					if (len > 0) {
-						byte[] packet = new byte[len];
-						src.get(packet);
-						out.write(packet);
+						if (src.hasArray()) {
+							out.write(src.array(), src.arrayOffset() + src.position(), len);
+							src.position(src.limit());
+						} else {
+							byte[] packet = new byte[len];
+							src.get(packet);
+							out.write(packet);
+						}
 					}
 					return len;
 				} catch (Throwable cause) {
@@ -299,66 +503,153 @@ public class PacketStream {
 	// --- "TRANSFER FROM" METHODS ---
 
 	public Promise transferFrom(File source) {
+		return transferFrom(source.toPath());
+	}
+
+	public Promise transferFrom(Path source) {
 		try {
-			return transferFrom(new FileInputStream(source));
+			return transferFrom(FileChannel.open(source, StandardOpenOption.READ));
 		} catch (Throwable cause) {
 			return Promise.reject(cause);
 		}
 	}
 
-	public Promise transferFrom(InputStream source) {
-		byte[] packet = new byte[packetSize < 1 ? DEFAULT_MIN_PACKET_SIZE : packetSize];
+	/**
+	 * Streams the content of the file from the current position. The file
+	 * is passed to the listeners in regions (see
+	 * {@link PacketListener#onFile}), so the TcpTransporter can send it
+	 * without copying it into the heap. The channel is closed at the end of
+	 * the transfer.
+	 * 
+	 * @param source
+	 *            file to stream
+	 * 
+	 * @return Promise (completed when all regions are submitted)
+	 */
+	public Promise transferFrom(FileChannel source) {
 		Promise promise = new Promise();
-		OutputStream destination = asOutputStream();
-		scheduleNextPacket(source, destination, promise, packet);
+		try {
+			scheduleNextRegion(new FileSource(source), source.position(), createChunkSizer(), promise);
+		} catch (Throwable cause) {
+			try {
+				source.close();
+			} catch (Throwable ignored) {
+			}
+			promise.complete(cause);
+		}
 		return promise;
 	}
 
+	public Promise transferFrom(InputStream source) {
+		return transferFrom((chunk, length) -> source.read(chunk, 0, length), source);
+	}
+
 	public Promise transferFrom(ReadableByteChannel source) {
-		ByteBuffer packet = ByteBuffer.allocate(packetSize < 1 ? DEFAULT_MIN_PACKET_SIZE : packetSize);
+		return transferFrom((chunk, length) -> source.read(ByteBuffer.wrap(chunk, 0, length)), source);
+	}
+
+	public Promise transferFrom(Publisher<byte[]> source) {
 		Promise promise = new Promise();
-		OutputStream destination = asOutputStream();
-		scheduleNextPacket(source, destination, promise, packet);
+		source.subscribe(new PacketSubscriber(this, promise));
 		return promise;
 	}
 
-	protected void scheduleNextPacket(ReadableByteChannel source, OutputStream destination, Promise promise,
-			ByteBuffer packet) {
-		scheduler.schedule(() -> {
+	// --- TRANSFER ENGINE ---
+
+	/**
+	 * Reads the next chunk of a source (InputStream or channel).
+	 */
+	@FunctionalInterface
+	protected static interface ChunkReader {
+
+		int read(byte[] chunk, int length) throws IOException;
+
+	}
+
+	protected Promise transferFrom(ChunkReader reader, Closeable source) {
+		Promise promise = new Promise();
+		scheduleNextPacket(reader, source, createChunkSizer(), promise, packetDelay);
+		return promise;
+	}
+
+	protected ChunkSizer createChunkSizer() {
+		int min = packetSize < 1 ? DEFAULT_MIN_PACKET_SIZE : packetSize;
+		if (!adaptivePacketSize) {
+			return new ChunkSizer(min, min);
+		}
+		return new ChunkSizer(min, maxPacketSize < 1 ? DEFAULT_MAX_PACKET_SIZE : maxPacketSize);
+	}
+
+	/**
+	 * Reads the source continuously (while the listeners accept the chunks),
+	 * and yields the scheduler's thread after each time slice. If a listener
+	 * is not writable (eg. it has no stream credits), the transfer pauses
+	 * without holding a thread, and continues when the listener resumes it.
+	 */
+	protected void scheduleNextPacket(ChunkReader reader, Closeable source, ChunkSizer sizer, Promise promise,
+			long delay) {
+		Runnable task = () -> {
 			try {
-				packet.rewind();
-				int len = source.read(packet);
-				if (len < 0) {
-					try {
-						try {
-							source.close();
-						} catch (Throwable ignored) {
-						}
+				long limit = System.nanoTime() + TIME_SLICE;
+				while (true) {
+
+					// Pause while a listener is not writable
+					if (!isWritable(() -> scheduleNextPacket(reader, source, sizer, promise, 0))) {
+						return;
+					}
+
+					// Read chunk (into pooled buffer)
+					int size = sizer.getSize();
+					byte[] chunk = POOL.acquire(size);
+					long start = System.nanoTime();
+					int len = reader.read(chunk, size);
+					if (len < 0 || closed.get()) {
+						POOL.recycle(chunk);
 						try {
-							destination.close();
-						} catch (Throwable ignored) {
+							try {
+								source.close();
+							} catch (Throwable ignored) {
+							}
+							sendClose();
+						} finally {
+							promise.complete();
 						}
-					} finally {
-						promise.complete();
+						return;
+					}
+					if (len == 0) {
+
+						// No data available, wait for the source
+						POOL.recycle(chunk);
+						scheduleNextPacket(reader, source, sizer, promise, Math.max(1, packetDelay));
+						return;
+					}
+
+					// Submit chunk
+					byte[] packet;
+					if (len == size) {
+						packet = chunk;
+					} else {
+						packet = new byte[len];
+						System.arraycopy(chunk, 0, packet, 0, len);
+						POOL.recycle(chunk);
+					}
+					sendData(packet);
+					long now = System.nanoTime();
+					sizer.sent(len, now - start);
+					if (packet == chunk && isRecyclable()) {
+						POOL.recycle(chunk);
+					}
+					if (packetDelay > 0 || now > limit) {
+						break;
 					}
-				} else if (len == 0) {
-					scheduleNextPacket(source, destination, promise, packet);
-				} else {
-					byte[] copy = new byte[len];
-					System.arraycopy(packet.array(), 0, copy, 0, len);
-					destination.write(copy);
-					scheduleNextPacket(source, destination, promise, packet);
 				}
+				scheduleNextPacket(reader, source, sizer, promise, packetDelay);
 			} catch (IOException cause) {
 				try {
 					try {
 						source.close();
 					} catch (Throwable ignored) {
 					}
-					try {
-						destination.close();
-					} catch (Throwable ignored) {
-					}
 					try {
 						sendError(cause);
 					} catch (Throwable ignored) {
@@ -367,44 +658,48 @@ public class PacketStream {
 					promise.complete(cause);
 				}
 			}
-		}, packetDelay, TimeUnit.MILLISECONDS);
+		};
+		if (delay > 0) {
+			scheduler.schedule(task, delay, TimeUnit.MILLISECONDS);
+		} else {
+			scheduler.execute(task);
+		}
 	}
 
-	protected void scheduleNextPacket(InputStream source, OutputStream destination, Promise promise, byte[] packet) {
-		scheduler.schedule(() -> {
+	protected void scheduleNextRegion(FileSource source, long position, ChunkSizer sizer, Promise promise) {
+		Runnable task = () -> {
 			try {
-				int len = source.read(packet);
-				if (len < 0) {
-					try {
-						try {
-							source.close();
-						} catch (Throwable ignored) {
-						}
+				long limit = System.nanoTime() + TIME_SLICE;
+				long pos = position;
+				while (true) {
+					final long next = pos;
+					if (!isWritable(() -> scheduleNextRegion(source, next, sizer, promise))) {
+						return;
+					}
+					long remaining = source.getChannel().size() - pos;
+					if (remaining < 1 || closed.get()) {
 						try {
-							destination.close();
-						} catch (Throwable ignored) {
+							source.release();
+							sendClose();
+						} finally {
+							promise.complete();
 						}
-					} finally {
-						promise.complete();
+						return;
+					}
+					int count = (int) Math.min(sizer.getSize(), remaining);
+					long start = System.nanoTime();
+					sendFile(source, pos, count);
+					long now = System.nanoTime();
+					sizer.sent(count, now - start);
+					pos += count;
+					if (packetDelay > 0 || now > limit) {
+						break;
 					}
-				} else if (len == 0) {
-					scheduleNextPacket(source, destination, promise, packet);
-				} else {
-					byte[] copy = new byte[len];
-					System.arraycopy(packet, 0, copy, 0, len);
-					destination.write(copy);
-					scheduleNextPacket(source, destination, promise, packet);
 				}
+				scheduleNextRegion(source, pos, sizer, promise);
 			} catch (IOException cause) {
 				try {
-					try {
-						source.close();
-					} catch (Throwable ignored) {
-					}
-					try {
-						destination.close();
-					} catch (Throwable ignored) {
-					}
+					source.release();
 					try {
 						sendError(cause);
 					} catch (Throwable ignored) {
@@ -413,7 +708,53 @@ public class PacketStream {
 					promise.complete(cause);
 				}
 			}
-		}, packetDelay, TimeUnit.MILLISECONDS);
+		};
+		if (packetDelay > 0) {
+			scheduler.schedule(task, packetDelay, TimeUnit.MILLISECONDS);
+		} else {
+			scheduler.execute(task);
+		}
+	}
+
+	/**
+	 * Returns true if all listeners accept the next chunk without blocking.
+	 * Otherwise the first non-writable listener executes the "resume" task
+	 * when it becomes writable again.
+	 * 
+	 * @param resume
+	 *            continuation of the paused transfer
+	 * 
+	 * @return true = the next chunk can be sent
+	 */
+	protected boolean isWritable(Runnable resume) {
+		PacketListener[] array = listeners;
+		if (array != null && !closed.get()) {
+			for (PacketListener listener : array) {
+				if (!listener.isWritable(resume)) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns true if the sent chunks can be reused (all listeners copy or
+	 * serialize the chunks, and the stream does not buffer them).
+	 * 
+	 * @return true = chunks can be returned to the pool
+	 */
+	protected boolean isRecyclable() {
+		PacketListener[] array = listeners;
+		if (array == null || deferredRelease) {
+			return false;
+		}
+		for (PacketListener listener : array) {
+			if (!listener.copiesPackets()) {
+				return false;
+			}
+		}
+		return true;
 	}
 
 	// --- "TRANSFER TO" METHODS ---
@@ -491,6 +832,43 @@ public class PacketStream {
 			});
 		});
 	}
+
+	/**
+	 * Forwards the packets into another stream. The forwarded bytes are
+	 * released when the destination stream's consumer releases them (so the
+	 * credits of an incoming remote stream follow the real consumer).
+	 */
+	public Promise transferTo(PacketStream destination) {
+		deferredRelease = true;
+		destination.releaseHandler = this::release;
+		Promise promise = new Promise();
+		try {
+			onPacket((bytes, cause, close) -> {
+
+				// Data received
+				if (bytes != null) {
+					destination.sendData(bytes);
+				}
+
+				// Error received
+				if (cause != null) {
+					destination.sendError(cause);
+					promise.complete(cause);
+					return;
+				}
+
+				// Close received
+				if (close) {
+					destination.sendClose();
+					promise.complete();
+				}
+
+			});
+		} catch (Throwable cause) {
+			promise.complete(cause);
+		}
+		return promise;
+	}
 	
 	// --- GETTERS AND SETTERS ---
 
@@ -510,6 +888,22 @@ public class PacketStream {
 		this.packetDelay = packetDelay < 0 ? 0 : packetDelay;
 	}
 
+	public int getMaxPacketSize() {
+		return maxPacketSize;
+	}
+
+	public void setMaxPacketSize(int maxPacketSize) {
+		this.maxPacketSize = maxPacketSize < 0 ? 0 : maxPacketSize;
+	}
+
+	public boolean isAdaptivePacketSize() {
+		return adaptivePacketSize;
+	}
+
+	public void setAdaptivePacketSize(boolean adaptivePacketSize) {
+		this.adaptivePacketSize = adaptivePacketSize;
+	}
+
 	public boolean isClosed() {
 		return closed.get();
 	}
@@ -0,0 +1,155 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2017 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.stream;
+
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import io.datatree.Promise;
+
+/**
+ * Reactive Streams Subscriber which writes the received packets into a
+ * PacketStream. If the stream has no other flow control, the next packets are
+ * requested when the previous ones are processed by the consumer of the
+ * stream (see {@link PacketStream#release(long)}), so at most
+ * {@link #PREFETCH} packets are buffered. When the stream is sent to a remote
+ * node, writing blocks until the receiver grants new credits, and the
+ * Subscriber requests the next packet after the previous one is submitted.
+ * 
+ * @see PacketStream#asSubscriber()
+ * @see PacketStream#transferFrom(org.reactivestreams.Publisher)
+ */
+public class PacketSubscriber implements Subscriber<byte[]> {
+
+	// --- CONSTANTS ---
+
+	/**
+	 * Max number of unprocessed packets
+	 */
+	protected static final int PREFETCH = 4;
+
+	// --- VARIABLES ---
+
+	protected final PacketStream stream;
+
+	/**
+	 * Completed at the end of the transfer (can be null)
+	 */
+	protected final Promise promise;
+
+	protected volatile Subscription subscription;
+
+	/**
+	 * True = packets are requested when the consumer releases the previous
+	 * ones
+	 */
+	protected boolean linked;
+
+	// --- CONSTRUCTOR ---
+
+	public PacketSubscriber(PacketStream stream, Promise promise) {
+		this.stream = stream;
+		this.promise = promise;
+	}
+
+	// --- SUBSCRIBER METHODS ---
+
+	@Override
+	public void onSubscribe(Subscription s) {
+		if (s == null) {
+			throw new NullPointerException("Subscription must not be null!");
+		}
+		if (subscription != null) {
+			s.cancel();
+			return;
+		}
+		subscription = s;
+		if (stream.releaseHandler == null) {
+			linked = true;
+			stream.releaseHandler = bytes -> s.request(1);
+			s.request(PREFETCH);
+		} else {
+			s.request(1);
+		}
+	}
+
+	@Override
+	public void onNext(byte[] bytes) {
+		if (bytes == null) {
+			throw new NullPointerException("Packet must not be null!");
+		}
+		if (stream.isClosed()) {
+			subscription.cancel();
+			unlink();
+			return;
+		}
+		try {
+			if (!stream.sendData(bytes) || !linked) {
+				subscription.request(1);
+			}
+		} catch (Throwable cause) {
+			subscription.cancel();
+			onError(cause);
+		}
+	}
+
+	@Override
+	public void onError(Throwable cause) {
+		if (cause == null) {
+			throw new NullPointerException("Throwable must not be null!");
+		}
+		unlink();
+		try {
+			stream.sendError(cause);
+		} catch (Throwable ignored) {
+		}
+		if (promise != null) {
+			promise.complete(cause);
+		}
+	}
+
+	@Override
+	public void onComplete() {
+		unlink();
+		try {
+			stream.sendClose();
+		} catch (Throwable ignored) {
+		}
+		if (promise != null) {
+			promise.complete();
+		}
+	}
+
+	// --- REMOVE RELEASE HANDLER ---
+
+	protected void unlink() {
+		if (linked) {
+			linked = false;
+			stream.releaseHandler = null;
+		}
+	}
+
+}
\ No newline at end of file
@@ -0,0 +1,127 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2017 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.stream;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Global and per-node limit of the bytes buffered by the incoming streams
+ * (out-of-order packets, which are waiting for the missing ones).
+ */
+public class StreamBufferQuota {
+
+	// --- PROPERTIES ---
+
+	/**
+	 * Max number of buffered bytes (0 = unlimited)
+	 */
+	protected final long maxBytes;
+
+	/**
+	 * Max number of buffered bytes per sender node (0 = unlimited)
+	 */
+	protected final long maxBytesPerNode;
+
+	// --- COUNTERS ---
+
+	protected final AtomicLong bytes = new AtomicLong();
+
+	protected final ConcurrentHashMap<String, AtomicLong> bytesByNode = new ConcurrentHashMap<>();
+
+	// --- CONSTRUCTOR ---
+
+	public StreamBufferQuota(long maxBytes, long maxBytesPerNode) {
+		this.maxBytes = maxBytes;
+		this.maxBytesPerNode = maxBytesPerNode;
+	}
+
+	// --- ACQUIRE / RELEASE ---
+
+	/**
+	 * Reserves space for a buffered packet.
+	 * 
+	 * @param nodeID
+	 *            sender's nodeID
+	 * @param size
+	 *            size of the packet
+	 * 
+	 * @return true, if success (false = limit exceeded)
+	 */
+	public boolean acquire(String nodeID, long size) {
+		long total = bytes.addAndGet(size);
+		if (maxBytes > 0 && total > maxBytes) {
+			bytes.addAndGet(-size);
+			return false;
+		}
+		AtomicLong counter = getCounter(nodeID);
+		long perNode = counter.addAndGet(size);
+		if (maxBytesPerNode > 0 && perNode > maxBytesPerNode) {
+			counter.addAndGet(-size);
+			bytes.addAndGet(-size);
+			return false;
+		}
+		return true;
+	}
+
+	public void release(String nodeID, long size) {
+		bytes.addAndGet(-size);
+		getCounter(nodeID).addAndGet(-size);
+	}
+
+	protected AtomicLong getCounter(String nodeID) {
+		String key = nodeID == null ? "" : nodeID;
+		AtomicLong counter = bytesByNode.get(key);
+		if (counter == null) {
+			counter = new AtomicLong();
+			AtomicLong prev = bytesByNode.putIfAbsent(key, counter);
+			if (prev != null) {
+				counter = prev;
+			}
+		}
+		return counter;
+	}
+
+	// --- GETTERS ---
+
+	public long getBytes() {
+		return bytes.get();
+	}
+
+	public long getBytes(String nodeID) {
+		AtomicLong counter = bytesByNode.get(nodeID == null ? "" : nodeID);
+		return counter == null ? 0 : counter.get();
+	}
+
+	public long getMaxBytes() {
+		return maxBytes;
+	}
+
+	public long getMaxBytesPerNode() {
+		return maxBytesPerNode;
+	}
+
+}
\ No newline at end of file
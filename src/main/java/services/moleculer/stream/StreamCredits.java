@@ -0,0 +1,196 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2017 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.stream;
+
+import java.io.IOException;
+
+/**
+ * Sender-side credit counter of a remote stream. The receiver grants credits
+ * (in bytes) via small control packets, after the received chunks are
+ * consumed. The sender may send data while it has credits, otherwise the
+ * sending thread (eg. the writer of the PacketStream's OutputStream) waits
+ * for the next grant. Transfers running on the shared scheduler do not wait:
+ * they pause (see {@link #isWritable(Runnable)}), and the next grant resumes
+ * them.
+ */
+public class StreamCredits {
+
+	// --- PROPERTIES ---
+
+	/**
+	 * Max waiting time for credits, in milliseconds
+	 */
+	protected final long timeout;
+
+	// --- VARIABLES ---
+
+	/**
+	 * Available credits (in bytes)
+	 */
+	protected long credits;
+
+	protected boolean closed;
+
+	/**
+	 * Continuation of the paused transfer (executed after the next grant)
+	 */
+	protected Runnable resume;
+
+	/**
+	 * Start time of the pause (System.nanoTime)
+	 */
+	protected long pausedAt;
+
+	/**
+	 * No credits received within the timeout while the transfer was paused
+	 */
+	protected boolean expired;
+
+	// --- CONSTRUCTOR ---
+
+	public StreamCredits(long initialCredits, long timeout) {
+		this.credits = initialCredits;
+		this.timeout = timeout;
+	}
+
+	// --- CONSUME CREDITS ---
+
+	/**
+	 * Consumes credits before sending a chunk. Waits while there are no
+	 * available credits (the last chunk may overdraw the credits).
+	 * 
+	 * @param bytes
+	 *            size of the chunk
+	 * 
+	 * @throws IOException
+	 *             no credits received within the timeout or the stream is
+	 *             closed
+	 */
+	public synchronized void acquire(int bytes) throws IOException {
+		long waitUntil = 0;
+		while (credits <= 0 && !closed && !expired) {
+			long now = System.nanoTime();
+			if (waitUntil == 0) {
+				waitUntil = now + timeout * 1000000L;
+			} else if (now - waitUntil >= 0) {
+				throw new IOException("No stream credits received within " + timeout + " milliseconds!");
+			}
+			try {
+				wait(Math.max(1, (waitUntil - now) / 1000000L));
+			} catch (InterruptedException interrupt) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while waiting for stream credits!", interrupt);
+			}
+		}
+		if (closed) {
+			throw new IOException("Stream is closed by the receiver!");
+		}
+		if (expired) {
+			throw new IOException("No stream credits received within " + timeout + " milliseconds!");
+		}
+		credits -= bytes;
+	}
+
+	// --- PAUSE TRANSFER ---
+
+	/**
+	 * Returns true if the next chunk can be sent without waiting. Otherwise
+	 * the "resume" task is executed when the receiver grants new credits (or
+	 * the stream is closed, or the timeout expires).
+	 * 
+	 * @param resume
+	 *            continuation of the paused transfer
+	 * 
+	 * @return true = there are available credits
+	 */
+	public synchronized boolean isWritable(Runnable resume) {
+		if (credits > 0 || closed || expired) {
+			return true;
+		}
+		this.resume = resume;
+		pausedAt = System.nanoTime();
+		return false;
+	}
+
+	/**
+	 * Resumes the paused transfer if no credits were received within the
+	 * timeout (the next {@link #acquire(int)} throws an IOException).
+	 * 
+	 * @param now
+	 *            current time (System.nanoTime)
+	 */
+	public void checkTimeout(long now) {
+		Runnable task;
+		synchronized (this) {
+			if (resume == null || now - pausedAt < timeout * 1000000L) {
+				return;
+			}
+			expired = true;
+			task = resume;
+			resume = null;
+		}
+		task.run();
+	}
+
+	// --- GRANT CREDITS ---
+
+	public void grant(long bytes) {
+		Runnable task = null;
+		synchronized (this) {
+			credits += bytes;
+			notifyAll();
+			if (credits > 0) {
+				task = resume;
+				resume = null;
+			}
+		}
+		if (task != null) {
+			task.run();
+		}
+	}
+
+	// --- CLOSE ---
+
+	public void close() {
+		Runnable task;
+		synchronized (this) {
+			closed = true;
+			notifyAll();
+			task = resume;
+			resume = null;
+		}
+		if (task != null) {
+			task.run();
+		}
+	}
+
+	// --- PROPERTY GETTERS ---
+
+	public synchronized long getCredits() {
+		return credits;
+	}
+
+}
\ No newline at end of file
@@ -28,12 +28,16 @@ package services.moleculer.transporter;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.rabbitmq.client.AMQP;
 import com.rabbitmq.client.AMQP.BasicProperties;
 import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.ConfirmListener;
 import com.rabbitmq.client.Connection;
 import com.rabbitmq.client.ConnectionFactory;
 import com.rabbitmq.client.Consumer;
@@ -51,6 +55,11 @@ import services.moleculer.service.Name;
  * between applications, among organizations, within mobile infrastructures, and
  * across the Cloud.<br>
  * <br>
+ * Messages are published via a pool of channels (optionally with asynchronous
+ * publisher confirms). If the "builtInBalancer" property is true, the balanced
+ * requests and events are sent to shared queues, and the AMQP server delivers
+ * each message to only one of the consumer nodes.<br>
+ * <br>
  * <b>Required dependency:</b><br>
  * <br>
  * // https://mvnrepository.com/artifact/com.rabbitmq/amqp-client<br>
@@ -87,11 +96,57 @@ public class AmqpTransporter extends Transporter {
 	protected Map<String, Object> queueProperties = new HashMap<>();
 	protected Map<String, Object> exchangeProperties = new HashMap<>();
 
+	// --- PUBLISHING PROPERTIES ---
+
+	/**
+	 * Number of pooled channels used for publishing
+	 */
+	protected int publishChannels = 4;
+
+	/**
+	 * Use publisher confirms
+	 */
+	protected boolean publisherConfirms;
+
+	/**
+	 * Timeout of publisher confirms in MILLISECONDS (the unconfirmed messages
+	 * are also checked periodically in this interval)
+	 */
+	protected long confirmTimeout = 5000;
+
+	// --- CONSUMING PROPERTIES ---
+
+	/**
+	 * Prefetch count of request queues (0 = unlimited prefetch with automatic
+	 * acknowledgement)
+	 */
+	protected int requestPrefetch;
+
+	/**
+	 * Prefetch count of event queues (0 = unlimited prefetch with automatic
+	 * acknowledgement)
+	 */
+	protected int eventPrefetch;
+
+	/**
+	 * Use shared queues for balanced requests and events
+	 */
+	protected boolean builtInBalancer;
+
 	// --- AMQP CONNECTION ---
 
 	protected Connection client;
 	protected Channel channel;
 
+	// --- PUBLISHER CHANNELS ---
+
+	protected volatile PublishChannel[] publishers;
+	protected final AtomicInteger publisherCounter = new AtomicInteger();
+
+	// --- TIMER OF PUBLISHER CONFIRMS ---
+
+	protected volatile ScheduledFuture<?> confirmTimer;
+
 	// --- STARTED FLAG ---
 
 	protected final AtomicBoolean started = new AtomicBoolean();
@@ -154,6 +209,24 @@ public class AmqpTransporter extends Transporter {
 			client = factory.newConnection();
 			channel = client.createChannel();
 
+			// Create pool of publisher channels
+			PublishChannel[] pool = new PublishChannel[Math.max(1, publishChannels)];
+			for (int i = 0; i < pool.length; i++) {
+				Channel publisher = client.createChannel();
+				pool[i] = new PublishChannel(publisher);
+				if (publisherConfirms) {
+					publisher.addConfirmListener(pool[i]);
+					publisher.confirmSelect();
+				}
+			}
+			publishers = pool;
+
+			// Start timer of publisher confirms
+			if (publisherConfirms && confirmTimer == null) {
+				confirmTimer = scheduler.scheduleWithFixedDelay(this::checkConfirms, confirmTimeout,
+						confirmTimeout, TimeUnit.MILLISECONDS);
+			}
+
 			logger.info("AMQP pub-sub connection estabilished.");
 			connected();
 		} catch (Exception cause) {
@@ -171,6 +244,17 @@ public class AmqpTransporter extends Transporter {
 	// --- DISCONNECT ---
 
 	protected void disconnect() {
+		PublishChannel[] pool = publishers;
+		if (pool != null) {
+			publishers = null;
+			for (PublishChannel publisher : pool) {
+				try {
+					publisher.channel.close();
+				} catch (Throwable cause) {
+					logger.warn("Unexpected error occurred while closing AMQP channel!", cause);
+				}
+			}
+		}
 		if (channel != null) {
 			try {
 				channel.close();
@@ -220,6 +304,10 @@ public class AmqpTransporter extends Transporter {
 
 		// Stop timers
 		super.stopped();
+		if (confirmTimer != null) {
+			confirmTimer.cancel(false);
+			confirmTimer = null;
+		}
 
 		// Disconnect
 		disconnect();
@@ -229,11 +317,35 @@ public class AmqpTransporter extends Transporter {
 
 	@Override
 	public Promise subscribe(String channel) {
+		return subscribe(channel, false);
+	}
+
+	// --- BUILT-IN BALANCER ---
+
+	@Override
+	public boolean hasBuiltInBalancer() {
+		return builtInBalancer;
+	}
+
+	@Override
+	protected Promise subscribeBalanced(String channel, String group) {
+
+		// The queue is shared by the nodes of the group
+		return subscribe(channel, true);
+	}
+
+	protected synchronized Promise subscribe(String channel, boolean shared) {
 		if (client != null) {
 			try {
 				String postfix = '.' + nodeID;
 				String queueName;
-				if (channel.endsWith(postfix)) {
+				if (shared) {
+
+					// Create shared queue (balanced by the AMQP server)
+					queueName = channel;
+					this.channel.queueDeclareNoWait(queueName, true, false, true, queueProperties);
+
+				} else if (channel.endsWith(postfix)) {
 
 					// Create queue
 					queueName = channel;
@@ -248,7 +360,15 @@ public class AmqpTransporter extends Transporter {
 							exchangeProperties);
 					this.channel.queueBind(queueName, channel, "");
 				}
-				this.channel.basicConsume(queueName, true, new Consumer() {
+
+				// Set prefetch count (requires manual acknowledgement)
+				Channel consumer = this.channel;
+				int prefetch = prefetchOf(channel);
+				boolean autoAck = prefetch < 1;
+				if (!autoAck) {
+					consumer.basicQos(prefetch);
+				}
+				consumer.basicConsume(queueName, autoAck, new Consumer() {
 
 					// --- MESSAGE RECEIVED ---
 
@@ -262,6 +382,9 @@ public class AmqpTransporter extends Transporter {
 						// We are running in the shared executor's pool,
 						// do not create new task.
 						processReceivedMessage(channel, body);
+						if (!autoAck) {
+							consumer.basicAck(envelope.getDeliveryTag(), false);
+						}
 					}
 
 					// --- CONNECTION LOST ---
@@ -317,6 +440,16 @@ public class AmqpTransporter extends Transporter {
 		return Promise.resolve();
 	}
 
+	protected int prefetchOf(String channel) {
+		if (channel.equals(requestChannel) || channel.startsWith(requestBalancedChannel)) {
+			return requestPrefetch;
+		}
+		if (channel.equals(eventChannel) || channel.startsWith(eventBalancedChannel)) {
+			return eventPrefetch;
+		}
+		return 0;
+	}
+
 	// --- PUBLISH ---
 
 	@Override
@@ -330,8 +463,7 @@ public class AmqpTransporter extends Transporter {
 					if (debug) {
 						logger.info("Submitting message to queue \"" + channel + "\":\r\n" + message.toString());
 					}
-					this.channel.basicPublish("", channel, mandatory, immediate, messageProperties,
-							serializer.write(message));
+					basicPublish("", channel, serializer.write(message));
 
 				} else {
 
@@ -339,8 +471,7 @@ public class AmqpTransporter extends Transporter {
 					if (debug) {
 						logger.info("Submitting message to exchange \"" + channel + "\":\r\n" + message.toString());
 					}
-					this.channel.basicPublish(channel, "", mandatory, immediate, messageProperties,
-							serializer.write(message));
+					basicPublish(channel, "", serializer.write(message));
 
 				}
 			} catch (Exception cause) {
@@ -349,6 +480,105 @@ public class AmqpTransporter extends Transporter {
 		}
 	}
 
+	protected void basicPublish(String exchange, String routingKey, byte[] body) throws Exception {
+		PublishChannel[] pool = publishers;
+		if (pool == null) {
+			return;
+		}
+		PublishChannel publisher = pool[(publisherCounter.incrementAndGet() & Integer.MAX_VALUE) % pool.length];
+		synchronized (publisher) {
+			if (publisherConfirms) {
+				publisher.published(publisher.channel.getNextPublishSeqNo());
+			}
+			publisher.channel.basicPublish(exchange, routingKey, mandatory, immediate, messageProperties, body);
+		}
+	}
+
+	// --- PUBLISHER CONFIRMS ---
+
+	/**
+	 * Checks the publisher confirms periodically (the confirms are received
+	 * asynchronously, the publisher threads never wait for the AMQP server).
+	 * Reconnects if a channel has messages which were not confirmed within
+	 * "confirmTimeout" milliseconds.
+	 */
+	protected void checkConfirms() {
+		checkConfirms(System.currentTimeMillis());
+	}
+
+	protected void checkConfirms(long now) {
+		PublishChannel[] pool = publishers;
+		if (pool != null) {
+			for (PublishChannel publisher : pool) {
+				if (publisher.isExpired(now)) {
+					logger.warn("AMQP server did not confirm the published messages within " + confirmTimeout
+							+ " milliseconds!");
+					if (started.get()) {
+						reconnect();
+					}
+					return;
+				}
+			}
+		}
+	}
+
+	// --- PUBLISHER CHANNEL ---
+
+	protected final class PublishChannel implements ConfirmListener {
+
+		protected final Channel channel;
+
+		/**
+		 * Delivery tag of the last published message
+		 */
+		protected volatile long published;
+
+		/**
+		 * Highest confirmed delivery tag
+		 */
+		protected final AtomicLong confirmed = new AtomicLong();
+
+		/**
+		 * Time of the last confirm (or the first unconfirmed message)
+		 */
+		protected volatile long lastConfirmAt;
+
+		protected PublishChannel(Channel channel) {
+			this.channel = channel;
+		}
+
+		protected void published(long deliveryTag) {
+			if (confirmed.get() >= published) {
+				lastConfirmAt = System.currentTimeMillis();
+			}
+			published = deliveryTag;
+		}
+
+		@Override
+		public final void handleAck(long deliveryTag, boolean multiple) {
+			confirmed(deliveryTag);
+		}
+
+		@Override
+		public final void handleNack(long deliveryTag, boolean multiple) {
+			logger.warn("AMQP server rejected the published message(s) (delivery tag: " + deliveryTag + ")!");
+			confirmed(deliveryTag);
+		}
+
+		protected void confirmed(long deliveryTag) {
+
+			// Invoked by the connection's thread (without locking the
+			// publisher)
+			confirmed.accumulateAndGet(deliveryTag, Math::max);
+			lastConfirmAt = System.currentTimeMillis();
+		}
+
+		protected boolean isExpired(long now) {
+			return confirmed.get() < published && now - lastConfirmAt > confirmTimeout;
+		}
+
+	}
+
 	// --- GETTERS / SETTERS ---
 
 	public String getUrl() {
@@ -457,4 +687,52 @@ public class AmqpTransporter extends Transporter {
 		this.internal = internal;
 	}
 
+	public int getPublishChannels() {
+		return publishChannels;
+	}
+
+	public void setPublishChannels(int publishChannels) {
+		this.publishChannels = publishChannels;
+	}
+
+	public boolean isPublisherConfirms() {
+		return publisherConfirms;
+	}
+
+	public void setPublisherConfirms(boolean publisherConfirms) {
+		this.publisherConfirms = publisherConfirms;
+	}
+
+	public long getConfirmTimeout() {
+		return confirmTimeout;
+	}
+
+	public void setConfirmTimeout(long confirmTimeout) {
+		this.confirmTimeout = confirmTimeout;
+	}
+
+	public int getRequestPrefetch() {
+		return requestPrefetch;
+	}
+
+	public void setRequestPrefetch(int requestPrefetch) {
+		this.requestPrefetch = requestPrefetch;
+	}
+
+	public int getEventPrefetch() {
+		return eventPrefetch;
+	}
+
+	public void setEventPrefetch(int eventPrefetch) {
+		this.eventPrefetch = eventPrefetch;
+	}
+
+	public boolean isBuiltInBalancer() {
+		return builtInBalancer;
+	}
+
+	public void setBuiltInBalancer(boolean builtInBalancer) {
+		this.builtInBalancer = builtInBalancer;
+	}
+
 }
\ No newline at end of file
@@ -28,7 +28,9 @@ package services.moleculer.transporter;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.util.HashMap;
+import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -70,6 +72,11 @@ import services.moleculer.util.CommonUtils;
  * Google Cloud Pub/Sub Transporter. The Google Cloud Pub/Sub service allows
  * applications to exchange messages reliably, quickly, and asynchronously.<br>
  * <br>
+ * The batching of the publishers ("batchElementCount", "batchRequestBytes",
+ * "batchDelayThreshold"), the flow control of the subscribers
+ * ("maxOutstandingMessages", "maxOutstandingBytes") and the size of the
+ * executor ("executorThreadCount") can be set with simple properties.<br>
+ * <br>
  * <b>Required dependency:</b><br>
  * <br>
  * // https://mvnrepository.com/artifact/com.google.cloud/google-cloud-pubsub
@@ -104,6 +111,45 @@ public class GoogleTransporter extends Transporter {
 	protected FlowControlSettings flowControlSettings;
 	protected ApiClock clock;
 
+	// --- BATCHING OF PUBLISHERS (IF "batchingSettings" IS NULL) ---
+
+	/**
+	 * Maximum number of messages in a batch
+	 */
+	protected long batchElementCount = 100;
+
+	/**
+	 * Maximum size of a batch in bytes
+	 */
+	protected long batchRequestBytes = 1000;
+
+	/**
+	 * Maximum delay of a batch in MILLISECONDS
+	 */
+	protected long batchDelayThreshold = 1;
+
+	// --- FLOW CONTROL OF SUBSCRIBERS (IF "flowControlSettings" IS NULL) ---
+
+	/**
+	 * Maximum number of outstanding (unacknowledged) messages per subscriber
+	 * (0 = default of the Pub/Sub library)
+	 */
+	protected long maxOutstandingMessages;
+
+	/**
+	 * Maximum size of outstanding (unacknowledged) messages per subscriber, in
+	 * bytes (0 = default of the Pub/Sub library)
+	 */
+	protected long maxOutstandingBytes;
+
+	// --- EXECUTOR SIZING (IF "executorProvider" IS NULL) ---
+
+	/**
+	 * Number of threads of a dedicated Pub/Sub executor (0 = use the shared
+	 * scheduler of the ServiceBroker)
+	 */
+	protected int executorThreadCount;
+
 	// --- CHANNEL NAME/PUBLISHER MAP ---
 
 	protected final HashMap<String, Publisher> publishers = new HashMap<>(64);
@@ -124,6 +170,10 @@ public class GoogleTransporter extends Transporter {
 
 	protected ExecutorProvider defaultExecutorProvider;
 
+	// --- DEDICATED EXECUTOR ---
+
+	protected ScheduledExecutorService dedicatedExecutor;
+
 	// --- CONNECTED FLAG ---
 
 	protected final AtomicBoolean connected = new AtomicBoolean();
@@ -176,6 +226,23 @@ public class GoogleTransporter extends Transporter {
 	public void started(ServiceBroker broker) throws Exception {
 		super.started(broker);
 
+		// Create dedicated executor
+		ScheduledExecutorService pubSubExecutor;
+		if (executorThreadCount > 0) {
+			dedicatedExecutor = Executors.newScheduledThreadPool(executorThreadCount, new ThreadFactory() {
+
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "Pub/Sub Executor");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+			pubSubExecutor = dedicatedExecutor;
+		} else {
+			pubSubExecutor = scheduler;
+		}
+
 		// Create shared executor provider
 		defaultExecutorProvider = new ExecutorProvider() {
 
@@ -186,7 +253,7 @@ public class GoogleTransporter extends Transporter {
 
 			@Override
 			public final ScheduledExecutorService getExecutor() {
-				return scheduler;
+				return pubSubExecutor;
 			}
 
 		};
@@ -324,6 +391,12 @@ public class GoogleTransporter extends Transporter {
 
 		// Disconnect
 		disconnect();
+
+		// Stop dedicated executor
+		if (dedicatedExecutor != null) {
+			dedicatedExecutor.shutdownNow();
+			dedicatedExecutor = null;
+		}
 	}
 
 	// --- SUBSCRIBE ---
@@ -401,8 +474,9 @@ public class GoogleTransporter extends Transporter {
 					if (parallelPullCount > 0) {
 						builder.setParallelPullCount(parallelPullCount);
 					}
-					if (flowControlSettings != null) {
-						builder.setFlowControlSettings(flowControlSettings);
+					FlowControlSettings flowControl = createFlowControlSettings();
+					if (flowControl != null) {
+						builder.setFlowControlSettings(flowControl);
 					}
 					Subscriber subscriber = builder.build();
 					subscriber.startAsync();
@@ -445,9 +519,7 @@ public class GoogleTransporter extends Transporter {
 			}
 			ProjectTopicName topicName = ProjectTopicName.of(projectID, channel);
 			Publisher.Builder builder = Publisher.newBuilder(topicName);
-			if (batchingSettings != null) {
-				builder.setBatchingSettings(batchingSettings);
-			}
+			builder.setBatchingSettings(createBatchingSettings());
 			if (channelProvider != null) {
 				builder.setChannelProvider(channelProvider);
 			}
@@ -471,6 +543,34 @@ public class GoogleTransporter extends Transporter {
 		return publisher;
 	}
 
+	// --- BATCHING AND FLOW CONTROL SETTINGS ---
+
+	protected BatchingSettings createBatchingSettings() {
+		if (batchingSettings != null) {
+			return batchingSettings;
+		}
+		return BatchingSettings.newBuilder().setElementCountThreshold(batchElementCount)
+				.setRequestByteThreshold(batchRequestBytes).setDelayThreshold(Duration.ofMillis(batchDelayThreshold))
+				.build();
+	}
+
+	protected FlowControlSettings createFlowControlSettings() {
+		if (flowControlSettings != null) {
+			return flowControlSettings;
+		}
+		if (maxOutstandingMessages < 1 && maxOutstandingBytes < 1) {
+			return null;
+		}
+		FlowControlSettings.Builder builder = FlowControlSettings.newBuilder();
+		if (maxOutstandingMessages > 0) {
+			builder.setMaxOutstandingElementCount(maxOutstandingMessages);
+		}
+		if (maxOutstandingBytes > 0) {
+			builder.setMaxOutstandingRequestBytes(maxOutstandingBytes);
+		}
+		return builder.build();
+	}
+
 	// --- GETTERS / SETTERS ---
 
 	public String getProjectID() {
@@ -579,4 +679,52 @@ public class GoogleTransporter extends Transporter {
 		this.clock = clock;
 	}
 
+	public long getBatchElementCount() {
+		return batchElementCount;
+	}
+
+	public void setBatchElementCount(long batchElementCount) {
+		this.batchElementCount = batchElementCount;
+	}
+
+	public long getBatchRequestBytes() {
+		return batchRequestBytes;
+	}
+
+	public void setBatchRequestBytes(long batchRequestBytes) {
+		this.batchRequestBytes = batchRequestBytes;
+	}
+
+	public long getBatchDelayThreshold() {
+		return batchDelayThreshold;
+	}
+
+	public void setBatchDelayThreshold(long batchDelayThreshold) {
+		this.batchDelayThreshold = batchDelayThreshold;
+	}
+
+	public long getMaxOutstandingMessages() {
+		return maxOutstandingMessages;
+	}
+
+	public void setMaxOutstandingMessages(long maxOutstandingMessages) {
+		this.maxOutstandingMessages = maxOutstandingMessages;
+	}
+
+	public long getMaxOutstandingBytes() {
+		return maxOutstandingBytes;
+	}
+
+	public void setMaxOutstandingBytes(long maxOutstandingBytes) {
+		this.maxOutstandingBytes = maxOutstandingBytes;
+	}
+
+	public int getExecutorThreadCount() {
+		return executorThreadCount;
+	}
+
+	public void setExecutorThreadCount(int executorThreadCount) {
+		this.executorThreadCount = executorThreadCount;
+	}
+
 }
\ No newline at end of file
@@ -26,6 +26,12 @@
 package services.moleculer.transporter;
 
 import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 import javax.jms.BytesMessage;
@@ -55,6 +61,13 @@ import services.moleculer.service.Name;
  * ServiceBroker broker = ServiceBroker.builder().transporter(t).build();
  * </pre>
  * 
+ * The delivery mode can be configured per packet type (eg. PERSISTENT for
+ * requests, NON_PERSISTENT for heartbeats) via the "packetDeliveryModes" map.
+ * If the "asyncSend" property is true, the messages are sent by a dedicated
+ * sender thread (from a bounded queue), so the callers are not blocked by the
+ * round-trips to the JMS server. When the queue is full, the caller's thread
+ * sends the message.<br>
+ * <br>
  * <b>Required dependency:</b><br>
  * <br>
  * // https://mvnrepository.com/artifact/javax.jms/javax.jms-api<br>
@@ -86,6 +99,25 @@ public class JmsTransporter extends Transporter {
 	protected int priority = 5;
 	protected int ttl = 10000;
 
+	/**
+	 * Delivery modes by packet types (eg. "REQ" = DeliveryMode.PERSISTENT), the
+	 * default is the value of the "deliveryMode" property
+	 */
+	protected Map<String, Integer> packetDeliveryModes = new HashMap<>();
+
+	// --- ASYNC SENDING ---
+
+	/**
+	 * Send messages on a dedicated sender thread
+	 */
+	protected boolean asyncSend;
+
+	/**
+	 * Capacity of the sender thread's queue (when the queue is full, messages
+	 * are sent by the caller's thread)
+	 */
+	protected int sendQueueSize = 1024;
+
 	// --- CONNECTION FACTORY NAME IN JNDI ---
 
 	protected String connectionFactoryJndiName = "moleculerConnectionFactory";
@@ -110,6 +142,10 @@ public class JmsTransporter extends Transporter {
 
 	protected final HashMap<String, TopicSubscriber> subscribers = new HashMap<>(64);
 
+	// --- SENDER THREAD ---
+
+	protected ExecutorService sender;
+
 	// --- CONSTUCTORS ---
 
 	public JmsTransporter() {
@@ -162,15 +198,52 @@ public class JmsTransporter extends Transporter {
 			client.setClientID(nodeID);
 			client.start();
 			session = client.createTopicSession(transacted, acknowledgeMode);
+
+			// Start sender thread
+			if (asyncSend) {
+				sender = createSender();
+			}
 			connected();
 		} catch (Exception cause) {
 			reconnect(cause);
 		}
 	}
 
+	// --- CREATE SENDER THREAD ---
+
+	/**
+	 * Creates the sender thread. When the queue of the sender thread is full,
+	 * the message is sent by the caller's thread, so the callers are slowed
+	 * down instead of losing messages.
+	 * 
+	 * @return single-threaded executor
+	 */
+	protected ExecutorService createSender() {
+		ThreadFactory threadFactory = new ThreadFactory() {
+
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "JMS Message Sender");
+				thread.setDaemon(true);
+				return thread;
+			}
+		};
+		return new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(sendQueueSize),
+				threadFactory, (task, executor) -> {
+					if (executor.isShutdown()) {
+						throw new RejectedExecutionException("Sender thread is stopped!");
+					}
+					task.run();
+				});
+	}
+
 	// --- DISCONNECT ---
 
 	protected void disconnect() {
+		if (sender != null) {
+			sender.shutdownNow();
+			sender = null;
+		}
 		if (client != null) {
 			try {
 				client.stop();
@@ -306,31 +379,55 @@ public class JmsTransporter extends Transporter {
 				if (debug) {
 					logger.info("Submitting message to channel \"" + channel + "\":\r\n" + message.toString());
 				}
-				TopicPublisher publisher = createOrGetPublisher(channel);
-				BytesMessage msg = session.createBytesMessage();
-				msg.writeBytes(serializer.write(message));
-				if (transacted) {
-					synchronized (this) {
+				byte[] bytes = serializer.write(message);
+				ExecutorService currentSender = sender;
+				if (currentSender == null) {
+					send(channel, bytes);
+				} else {
+					currentSender.execute(() -> {
 						try {
-							publisher.send(msg, deliveryMode, priority, ttl);
-							session.commit();
+							send(channel, bytes);
 						} catch (Exception cause) {
-							try {
-								session.rollback();
-							} catch (Exception ignored) {
-							}
-							throw cause;
+							logger.warn("Unable to send message to JMS server!", cause);
 						}
-					}
-				} else {
-					publisher.send(msg, deliveryMode, priority, ttl);
+					});
 				}
+			} catch (RejectedExecutionException rejected) {
+				logger.warn("Unable to send message to JMS server (the sender thread is stopped)!");
 			} catch (Exception cause) {
 				logger.warn("Unable to send message to JMS server!", cause);
 			}
 		}
 	}
 
+	protected void send(String channel, byte[] bytes) throws Exception {
+		TopicPublisher publisher = createOrGetPublisher(channel);
+		BytesMessage msg = session.createBytesMessage();
+		msg.writeBytes(bytes);
+		int mode = deliveryModeOf(channel);
+		if (transacted) {
+			synchronized (this) {
+				try {
+					publisher.send(msg, mode, priority, ttl);
+					session.commit();
+				} catch (Exception cause) {
+					try {
+						session.rollback();
+					} catch (Exception ignored) {
+					}
+					throw cause;
+				}
+			}
+		} else {
+			publisher.send(msg, mode, priority, ttl);
+		}
+	}
+
+	protected int deliveryModeOf(String channel) {
+		Integer mode = packetDeliveryModes.get(packetTypeOf(channel));
+		return mode == null ? deliveryMode : mode;
+	}
+
 	// --- GETTERS / SETTERS ---
 
 	public String getUsername() {
@@ -405,4 +502,28 @@ public class JmsTransporter extends Transporter {
 		this.connectionFactoryJndiName = connectionFactoryJndiName;
 	}
 
+	public Map<String, Integer> getPacketDeliveryModes() {
+		return packetDeliveryModes;
+	}
+
+	public void setPacketDeliveryModes(Map<String, Integer> packetDeliveryModes) {
+		this.packetDeliveryModes = packetDeliveryModes;
+	}
+
+	public boolean isAsyncSend() {
+		return asyncSend;
+	}
+
+	public void setAsyncSend(boolean asyncSend) {
+		this.asyncSend = asyncSend;
+	}
+
+	public int getSendQueueSize() {
+		return sendQueueSize;
+	}
+
+	public void setSendQueueSize(int sendQueueSize) {
+		this.sendQueueSize = sendQueueSize;
+	}
+
 }
\ No newline at end of file
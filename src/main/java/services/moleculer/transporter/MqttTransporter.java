@@ -26,6 +26,8 @@
 package services.moleculer.transporter;
 
 import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
@@ -48,6 +50,11 @@ import services.moleculer.service.Name;
  * designed as an extremely lightweight publish/subscribe messaging transport
  * (website: http://mqtt.org).<br>
  * <br>
+ * The QoS level can be configured per packet type (eg. "AT_LEAST_ONCE" for
+ * requests and responses, "AT_MOST_ONCE" for heartbeats) via the "packetQos"
+ * map. If "cleanSession" is false, the client ID is the nodeID, so the server
+ * resumes the previous session after reconnection.<br>
+ * <br>
  * <b>Required dependency:</b><br>
  * <br>
  * // https://mvnrepository.com/artifact/net.sf.xenqtt/xenqtt<br>
@@ -80,6 +87,12 @@ public class MqttTransporter extends Transporter implements AsyncClientListener
 	protected int maxInFlightMessages = 0xffff;
 	protected QoS qos = QoS.AT_MOST_ONCE;
 
+	/**
+	 * QoS levels by packet types (eg. "REQ" = AT_LEAST_ONCE), the
+	 * default is the value of the "qos" property
+	 */
+	protected Map<String, QoS> packetQos = new HashMap<>();
+
 	// --- SUBSCRIPTIONS ---
 
 	protected final ConcurrentHashMap<String, Promise> subscriptions = new ConcurrentHashMap<>();
@@ -131,8 +144,15 @@ public class MqttTransporter extends Transporter implements AsyncClientListener
 			// Create MQTT client
 			disconnect();
 			client = new AsyncMqttClient(uri, this, executor, config);
-			client.connect(nodeID + '-' + broker.getConfig().getUidGenerator().nextUID(), cleanSession, username,
-					password);
+			String clientID;
+			if (cleanSession) {
+				clientID = nodeID + '-' + broker.getConfig().getUidGenerator().nextUID();
+			} else {
+
+				// Reuse the persistent session of this node
+				clientID = nodeID;
+			}
+			client.connect(clientID, cleanSession, username, password);
 
 		} catch (Exception cause) {
 			reconnect(cause);
@@ -237,7 +257,7 @@ public class MqttTransporter extends Transporter implements AsyncClientListener
 		Promise promise = new Promise();
 		if (client != null) {
 			try {
-				client.subscribe(new Subscription[] { new Subscription(channel, qos) });
+				client.subscribe(new Subscription[] { new Subscription(channel, qosOf(channel)) });
 				subscriptions.put(channel, promise);
 			} catch (Exception cause) {
 				promise.complete(cause);
@@ -281,13 +301,18 @@ public class MqttTransporter extends Transporter implements AsyncClientListener
 				if (debug) {
 					logger.info("Submitting message to channel \"" + channel + "\":\r\n" + message.toString());
 				}
-				client.publish(new PublishMessage(channel, qos, serializer.write(message), false));
+				client.publish(new PublishMessage(channel, qosOf(channel), serializer.write(message), false));
 			} catch (Exception cause) {
 				logger.warn("Unable to send message to MQTT server!", cause);
 			}
 		}
 	}
 
+	protected QoS qosOf(String channel) {
+		QoS packetTypeQos = packetQos.get(packetTypeOf(channel));
+		return packetTypeQos == null ? qos : packetTypeQos;
+	}
+
 	@Override
 	public void published(MqttClient client, PublishMessage message) {
 		if (debug) {
@@ -388,4 +413,12 @@ public class MqttTransporter extends Transporter implements AsyncClientListener
 		this.qos = qos;
 	}
 
+	public Map<String, QoS> getPacketQos() {
+		return packetQos;
+	}
+
+	public void setPacketQos(Map<String, QoS> packetQos) {
+		this.packetQos = packetQos;
+	}
+
 }
\ No newline at end of file
@@ -25,6 +25,7 @@
  */
 package services.moleculer.transporter;
 
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -46,6 +47,12 @@ import services.moleculer.service.Name;
  * messaging system for cloud native applications, IoT messaging, and
  * microservices architectures (website: https://nats.io).<br>
  * <br>
+ * If the "queueGroups" property is true, the balanced requests and events are
+ * sent to shared subjects, and the NATS server delivers each message to only
+ * one member of the queue group. If the "asyncPublish" property is true, the
+ * outgoing messages are queued and written in batches, with one flush per
+ * batch.<br>
+ * <br>
  * <b>Required dependency:</b><br>
  * <br>
  * // https://mvnrepository.com/artifact/io.nats/jnats<br>
@@ -79,10 +86,36 @@ public class NatsTransporter extends Transporter implements MessageHandler, Disc
 	protected boolean tlsDebug;
 	protected boolean verbose;
 
+	// --- QUEUE GROUPS ---
+
+	/**
+	 * Use NATS queue groups for balanced requests and events
+	 */
+	protected boolean queueGroups;
+
+	// --- ASYNC PUBLISHING ---
+
+	/**
+	 * Queue the outgoing messages and write them in batches
+	 */
+	protected boolean asyncPublish;
+
+	/**
+	 * Collecting time of a batch in MILLISECONDS (0 = write the queued messages
+	 * immediately)
+	 */
+	protected long flushDelay;
+
 	// --- NATS CONNECTION ---
 
 	protected Connection client;
 
+	// --- OUTGOING MESSAGE QUEUE ---
+
+	protected final ConcurrentLinkedQueue<Object[]> outgoingQueue = new ConcurrentLinkedQueue<>();
+
+	protected final AtomicBoolean writerScheduled = new AtomicBoolean();
+
 	// --- STARTED FLAG ---
 
 	protected final AtomicBoolean started = new AtomicBoolean();
@@ -178,6 +211,7 @@ public class NatsTransporter extends Transporter implements MessageHandler, Disc
 	}
 
 	protected void disconnect() {
+		outgoingQueue.clear();
 		if (client != null) {
 			try {
 				client.close();
@@ -241,6 +275,28 @@ public class NatsTransporter extends Transporter implements MessageHandler, Disc
 		return Promise.resolve();
 	}
 
+	// --- BUILT-IN BALANCER ---
+
+	@Override
+	public boolean hasBuiltInBalancer() {
+		return queueGroups;
+	}
+
+	@Override
+	protected Promise subscribeBalanced(String channel, String group) {
+		if (client != null) {
+			try {
+
+				// The members of the queue group share the subject
+				client.subscribe(channel, group, this);
+
+			} catch (Exception cause) {
+				return Promise.reject(cause);
+			}
+		}
+		return Promise.resolve();
+	}
+
 	// --- MESSAGE RECEIVED ---
 
 	@Override
@@ -259,7 +315,19 @@ public class NatsTransporter extends Transporter implements MessageHandler, Disc
 				if (debug) {
 					logger.info("Submitting message to channel \"" + channel + "\":\r\n" + message.toString());
 				}
-				client.publish(channel, serializer.write(message));
+				byte[] bytes = serializer.write(message);
+				if (asyncPublish) {
+					outgoingQueue.add(new Object[] { channel, bytes });
+					if (writerScheduled.compareAndSet(false, true)) {
+						if (flushDelay > 0) {
+							scheduler.schedule(this::writeQueue, flushDelay, TimeUnit.MILLISECONDS);
+						} else {
+							executor.execute(this::writeQueue);
+						}
+					}
+				} else {
+					client.publish(channel, bytes);
+				}
 			} catch (Exception cause) {
 				logger.warn("Unable to send message to NATS server!", cause);
 				reconnect();
@@ -267,6 +335,31 @@ public class NatsTransporter extends Transporter implements MessageHandler, Disc
 		}
 	}
 
+	/**
+	 * Writes the queued messages without flushing, and flushes the output
+	 * stream with the last message of the batch.
+	 */
+	protected void writeQueue() {
+		Connection currentClient = client;
+		try {
+			do {
+				Object[] msg = outgoingQueue.poll();
+				while (msg != null && currentClient != null) {
+					Object[] next = outgoingQueue.poll();
+					currentClient.publish((String) msg[0], null, (byte[]) msg[1], next == null);
+					msg = next;
+				}
+				writerScheduled.set(false);
+
+				// Messages were added after the last poll
+			} while (!outgoingQueue.isEmpty() && writerScheduled.compareAndSet(false, true));
+		} catch (Exception cause) {
+			writerScheduled.set(false);
+			logger.warn("Unable to send message to NATS server!", cause);
+			reconnect();
+		}
+	}
+
 	// --- GETTERS / SETTERS ---
 
 	public String[] getUrls() {
@@ -357,4 +450,28 @@ public class NatsTransporter extends Transporter implements MessageHandler, Disc
 		this.verbose = verbose;
 	}
 
+	public boolean isQueueGroups() {
+		return queueGroups;
+	}
+
+	public void setQueueGroups(boolean queueGroups) {
+		this.queueGroups = queueGroups;
+	}
+
+	public boolean isAsyncPublish() {
+		return asyncPublish;
+	}
+
+	public void setAsyncPublish(boolean asyncPublish) {
+		this.asyncPublish = asyncPublish;
+	}
+
+	public long getFlushDelay() {
+		return flushDelay;
+	}
+
+	public void setFlushDelay(long flushDelay) {
+		this.flushDelay = flushDelay;
+	}
+
 }
\ No newline at end of file
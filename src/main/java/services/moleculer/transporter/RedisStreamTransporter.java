@@ -0,0 +1,530 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2017 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.transporter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.lambdaworks.redis.api.StatefulRedisConnection;
+import com.lambdaworks.redis.event.Event;
+import com.lambdaworks.redis.event.EventBus;
+import com.lambdaworks.redis.event.connection.DisconnectedEvent;
+
+import io.datatree.Promise;
+import io.datatree.Tree;
+import rx.Observable;
+import services.moleculer.service.Name;
+import services.moleculer.util.redis.RedisStreamClient;
+
+/**
+ * Redis Streams-based Transporter. Unlike the pub/sub-based
+ * {@link RedisTransporter}, the messages are stored in Redis Streams (with
+ * limited length), and the nodes read them with the XREADGROUP command in
+ * batches. A node reads the next batch only after the previous batch has been
+ * processed (and acknowledged), so a busy node doesn't pile up unprocessed
+ * messages in its memory.<br>
+ * <br>
+ * If the "builtInBalancer" property is true, the balanced requests and events
+ * are written to the streams of the actions and listener groups, and the
+ * consumer groups of Redis select the receiver node (by default the
+ * ServiceBroker selects the target node). Requires Redis 5.0 or newer, clustered Redis servers are not
+ * supported. The streams of offline nodes are not deleted (their length is
+ * limited by the "maxLength" property).<br>
+ * <br>
+ * <b>Required dependency:</b><br>
+ * <br>
+ * // https://mvnrepository.com/artifact/biz.paluch.redis/lettuce<br>
+ * compile group: 'biz.paluch.redis', name: 'lettuce', version: '4.4.1.Final'
+ *
+ * @see RedisTransporter
+ * @see TcpTransporter
+ * @see NatsTransporter
+ * @see MqttTransporter
+ * @see JmsTransporter
+ * @see GoogleTransporter
+ * @see KafkaTransporter
+ * @see AmqpTransporter
+ */
+@Name("Redis Stream Transporter")
+public class RedisStreamTransporter extends Transporter implements EventBus {
+
+	// --- LIST OF STATUS CODES ---
+
+	protected static final int STATUS_DISCONNECTING = 1;
+	protected static final int STATUS_DISCONNECTED = 2;
+	protected static final int STATUS_CONNECTING = 3;
+	protected static final int STATUS_CONNECTED = 4;
+
+	// --- CONNECTION STATUS ---
+
+	protected final AtomicInteger status = new AtomicInteger(STATUS_DISCONNECTED);
+
+	// --- PROPERTIES ---
+
+	protected String password;
+	protected boolean secure;
+	protected String[] urls = { "localhost" };
+
+	/**
+	 * Approximate maximum length of a stream ("MAXLEN ~" parameter of XADD, 0 =
+	 * unlimited)
+	 */
+	protected long maxLength = 10000;
+
+	/**
+	 * Maximum number of messages per stream in one XREADGROUP batch
+	 */
+	protected int batchSize = 64;
+
+	/**
+	 * Maximum blocking time of the XREADGROUP command, in MILLISECONDS
+	 */
+	protected long blockTimeout = 1000;
+
+	/**
+	 * Use the consumer groups of Redis to balance the requests and events
+	 */
+	protected boolean builtInBalancer;
+
+	// --- REDIS CLIENT ---
+
+	protected RedisStreamClient client;
+
+	// --- STREAM READERS (READER ID -> READER) ---
+
+	protected final ConcurrentHashMap<String, StreamReader> readers = new ConcurrentHashMap<>();
+
+	// --- CONSTUCTORS ---
+
+	public RedisStreamTransporter() {
+	}
+
+	public RedisStreamTransporter(String... urls) {
+		this.urls = urls;
+	}
+
+	public RedisStreamTransporter(String password, boolean secure, String... urls) {
+		this.password = password;
+		this.secure = secure;
+		this.urls = urls;
+	}
+
+	// --- CONNECT ---
+
+	@Override
+	public void connect() {
+		if (client != null) {
+			disconnect();
+		}
+		status.set(STATUS_CONNECTING);
+		if (urls.length > 1) {
+			logger.warn("Clustered Redis servers are not supported, connecting to \"" + urls[0] + "\"...");
+		}
+
+		// Create and connect Redis client
+		client = new RedisStreamClient(urls, password, secure, executor, this);
+		try {
+			client.connect();
+		} catch (Exception cause) {
+			String msg = cause.getMessage();
+			if (msg == null || msg.isEmpty()) {
+				msg = "Unable to connect to Redis server!";
+			} else if (!msg.endsWith("!") && !msg.endsWith(".")) {
+				msg += "!";
+			}
+			logger.warn(msg);
+			reconnect();
+			return;
+		}
+		if (status.compareAndSet(STATUS_CONNECTING, STATUS_CONNECTED)) {
+			logger.info("Redis stream connection estabilished.");
+			connected();
+		}
+	}
+
+	// --- DISCONNECT ---
+
+	protected Promise disconnect() {
+		int s = status.get();
+		if (s != STATUS_DISCONNECTED && s != STATUS_DISCONNECTING) {
+			status.set(STATUS_DISCONNECTING);
+			for (StreamReader reader : readers.values()) {
+				reader.stop();
+			}
+			readers.clear();
+			if (client != null) {
+				client.disconnect();
+				client = null;
+			}
+			status.set(STATUS_DISCONNECTED);
+		}
+		return Promise.resolve();
+	}
+
+	// --- RECONNECT ---
+
+	protected void reconnect() {
+		disconnect().then(ok -> {
+			logger.info("Trying to reconnect...");
+			scheduler.schedule(this::connect, 5, TimeUnit.SECONDS);
+		}).catchError(cause -> {
+			logger.warn("Unable to disconnect from Redis server!", cause);
+			scheduler.schedule(this::connect, 5, TimeUnit.SECONDS);
+		});
+	}
+
+	// --- ANY I/O ERROR ---
+
+	@Override
+	protected void error(Throwable cause) {
+		if (status.compareAndSet(STATUS_CONNECTED, STATUS_CONNECTING)) {
+			logger.warn("Unexpected communication error occurred!", cause);
+			reconnect();
+		}
+	}
+
+	// --- STOP TRANSPORTER ---
+
+	/**
+	 * Closes transporter.
+	 */
+	@Override
+	public void stopped() {
+		int s = status.get();
+		if (s != STATUS_DISCONNECTED && s != STATUS_DISCONNECTING) {
+
+			// Stop timers
+			super.stopped();
+
+			// Disconnect
+			disconnect();
+
+		}
+	}
+
+	// --- SUBSCRIBE ---
+
+	@Override
+	public Promise subscribe(String channel) {
+		if (channel.equals(responseChannel)) {
+
+			// Responses are processed by a separate reader (a busy request
+			// reader can't delay the responses)
+			return subscribe(responseChannel, nodeID, channel, true);
+		}
+		return subscribe(nodeID, nodeID, channel, true);
+	}
+
+	// --- BUILT-IN BALANCER ---
+
+	@Override
+	public boolean hasBuiltInBalancer() {
+		return builtInBalancer;
+	}
+
+	@Override
+	protected Promise subscribeBalanced(String channel, String group) {
+
+		// Balanced streams keep the unread messages of the consumer group
+		return subscribe("balanced:" + group, group, channel, false);
+	}
+
+	protected Promise subscribe(String readerID, String groupName, String key, boolean skipPending) {
+		RedisStreamClient currentClient = client;
+		if (currentClient == null || status.get() != STATUS_CONNECTED) {
+
+			// All channels will be subscribed after connection
+			return Promise.resolve();
+		}
+		StreamReader reader = readers.computeIfAbsent(readerID, id -> new StreamReader(groupName));
+		return currentClient.createGroup(key, groupName, skipPending).then(ok -> {
+			reader.addKey(key);
+			reader.start(currentClient);
+		});
+	}
+
+	// --- PUBLISH ---
+
+	@Override
+	public void publish(String channel, Tree message) {
+		RedisStreamClient currentClient = client;
+		if (currentClient != null && status.get() == STATUS_CONNECTED) {
+			try {
+				if (debug) {
+					logger.info("Submitting message to stream \"" + channel + "\":\r\n" + message.toString());
+				}
+				currentClient.add(channel, serializer.write(message), maxLength);
+			} catch (Exception cause) {
+				logger.warn("Unable to send message to Redis!", cause);
+				reconnect();
+			}
+		}
+	}
+
+	// --- STREAM READER ---
+
+	/**
+	 * Reads the streams of a consumer group in a loop. The next batch is
+	 * requested after all messages of the previous batch have been processed
+	 * and acknowledged.
+	 */
+	protected class StreamReader {
+
+		// --- PROPERTIES ---
+
+		protected final String groupName;
+
+		protected volatile String[] keys = new String[0];
+
+		protected final AtomicBoolean running = new AtomicBoolean();
+
+		// --- COMPONENTS ---
+
+		protected RedisStreamClient currentClient;
+		protected StatefulRedisConnection<byte[], byte[]> connection;
+
+		// --- CONSTRUCTOR ---
+
+		protected StreamReader(String groupName) {
+			this.groupName = groupName;
+		}
+
+		// --- ADD STREAM KEY ---
+
+		protected synchronized void addKey(String key) {
+			for (String test : keys) {
+				if (test.equals(key)) {
+					return;
+				}
+			}
+			String[] copy = Arrays.copyOf(keys, keys.length + 1);
+			copy[keys.length] = key;
+			keys = copy;
+		}
+
+		// --- START / STOP READING ---
+
+		protected void start(RedisStreamClient client) {
+			if (running.compareAndSet(false, true)) {
+				currentClient = client;
+				connection = client.connectReader();
+				read();
+			}
+		}
+
+		protected void stop() {
+			running.set(false);
+		}
+
+		// --- READ NEXT BATCH ---
+
+		protected void read() {
+			if (!running.get()) {
+				return;
+			}
+			currentClient.readGroup(connection, groupName, nodeID, batchSize, blockTimeout, keys)
+					.whenComplete((reply, cause) -> {
+						if (!running.get()) {
+							return;
+						}
+						if (cause != null) {
+							error(cause);
+							return;
+						}
+						try {
+							process(reply);
+						} catch (Throwable unexpected) {
+							error(unexpected);
+						}
+					});
+		}
+
+		// --- PROCESS BATCH ---
+
+		@SuppressWarnings("unchecked")
+		protected void process(List<Object> reply) {
+
+			// Collect messages (stream key, message ID, data)
+			LinkedList<Object[]> messages = new LinkedList<>();
+			HashMap<String, List<byte[]>> idsByKey = new HashMap<>();
+			if (reply != null) {
+				for (Object streamBlock : reply) {
+					if (!(streamBlock instanceof List)) {
+						continue;
+					}
+					List<Object> stream = (List<Object>) streamBlock;
+					if (stream.size() < 2 || !(stream.get(1) instanceof List)) {
+						continue;
+					}
+					String key = new String((byte[]) stream.get(0), StandardCharsets.UTF_8);
+					List<byte[]> ids = new LinkedList<>();
+					idsByKey.put(key, ids);
+					for (Object entryBlock : (List<Object>) stream.get(1)) {
+						if (!(entryBlock instanceof List)) {
+							continue;
+						}
+						List<Object> entry = (List<Object>) entryBlock;
+						if (entry.isEmpty()) {
+							continue;
+						}
+						ids.add((byte[]) entry.get(0));
+
+						// Find the "data" field
+						byte[] data = null;
+						if (entry.size() > 1 && entry.get(1) instanceof List) {
+							List<Object> fields = (List<Object>) entry.get(1);
+							for (int i = 0; i < fields.size() - 1; i += 2) {
+								if ("data".equals(new String((byte[]) fields.get(i), StandardCharsets.UTF_8))) {
+									data = (byte[]) fields.get(i + 1);
+									break;
+								}
+							}
+						}
+						if (data != null) {
+							messages.addLast(new Object[] { key, data });
+						}
+					}
+				}
+			}
+			if (messages.isEmpty()) {
+				acknowledge(idsByKey);
+				read();
+				return;
+			}
+
+			// Process messages, then acknowledge them and read the next batch
+			AtomicInteger remaining = new AtomicInteger(messages.size());
+			for (Object[] message : messages) {
+				executor.execute(() -> {
+					try {
+						processReceivedMessage((String) message[0], (byte[]) message[1]);
+					} finally {
+						if (remaining.decrementAndGet() == 0) {
+							acknowledge(idsByKey);
+							read();
+						}
+					}
+				});
+			}
+		}
+
+		protected void acknowledge(Map<String, List<byte[]>> idsByKey) {
+			if (!running.get()) {
+				return;
+			}
+			for (Map.Entry<String, List<byte[]>> entry : idsByKey.entrySet()) {
+				if (!entry.getValue().isEmpty()) {
+					currentClient.ack(entry.getKey(), groupName, entry.getValue());
+				}
+			}
+		}
+
+	}
+
+	// --- REDIS EVENT LISTENER METHODS ---
+
+	@Override
+	public void publish(Event event) {
+		if (event instanceof DisconnectedEvent) {
+			if (status.compareAndSet(STATUS_CONNECTED, STATUS_CONNECTING)) {
+				logger.info("Redis stream connection aborted.");
+				reconnect();
+			}
+		}
+	}
+
+	@Override
+	public Observable<Event> get() {
+		return null;
+	}
+
+	// --- GETTERS / SETTERS ---
+
+	public String[] getUrls() {
+		return urls;
+	}
+
+	public void setUrls(String[] urls) {
+		this.urls = urls;
+	}
+
+	public String getPassword() {
+		return password;
+	}
+
+	public void setPassword(String password) {
+		this.password = password;
+	}
+
+	public boolean isSecure() {
+		return secure;
+	}
+
+	public void setSecure(boolean secure) {
+		this.secure = secure;
+	}
+
+	public long getMaxLength() {
+		return maxLength;
+	}
+
+	public void setMaxLength(long maxLength) {
+		this.maxLength = maxLength;
+	}
+
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	public void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+	}
+
+	public long getBlockTimeout() {
+		return blockTimeout;
+	}
+
+	public void setBlockTimeout(long blockTimeout) {
+		this.blockTimeout = blockTimeout;
+	}
+
+	public boolean isBuiltInBalancer() {
+		return builtInBalancer;
+	}
+
+	public void setBuiltInBalancer(boolean builtInBalancer) {
+		this.builtInBalancer = builtInBalancer;
+	}
+
+}
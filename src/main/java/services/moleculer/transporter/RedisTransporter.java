@@ -51,6 +51,7 @@ import services.moleculer.util.redis.RedisPubSubClient;
  * // https://mvnrepository.com/artifact/biz.paluch.redis/lettuce<br>
  * compile group: 'biz.paluch.redis', name: 'lettuce', version: '4.4.1.Final'
  *
+ * @see RedisStreamTransporter
  * @see TcpTransporter
  * @see NatsTransporter
  * @see MqttTransporter
@@ -29,7 +29,9 @@ import static services.moleculer.util.CommonUtils.getHostName;
 import static services.moleculer.util.CommonUtils.parseURLs;
 import static services.moleculer.util.CommonUtils.readTree;
 
+import java.io.IOException;
 import java.net.InetAddress;
+import java.nio.ByteBuffer;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -43,10 +45,14 @@ import java.util.concurrent.atomic.AtomicLong;
 import io.datatree.Promise;
 import io.datatree.Tree;
 import services.moleculer.ServiceBroker;
+import services.moleculer.context.Context;
+import services.moleculer.context.Deadline;
 import services.moleculer.error.InvalidPacketDataError;
 import services.moleculer.error.MoleculerError;
 import services.moleculer.error.MoleculerServerError;
 import services.moleculer.service.Name;
+import services.moleculer.stream.FileSource;
+import services.moleculer.transporter.tcp.FileRegion;
 import services.moleculer.transporter.tcp.NodeDescriptor;
 import services.moleculer.transporter.tcp.TcpReader;
 import services.moleculer.transporter.tcp.TcpWriter;
@@ -96,6 +102,7 @@ public class TcpTransporter extends Transporter {
 	protected static final byte PACKET_GOSSIP_REQ_ID = 6;
 	protected static final byte PACKET_GOSSIP_RSP_ID = 7;
 	protected static final byte PACKET_GOSSIP_HELLO_ID = 8;
+	protected static final byte PACKET_STREAM_DATA_ID = 9;
 
 	// --- PROPERTIES ---
 
@@ -175,6 +182,13 @@ public class TcpTransporter extends Transporter {
 	 */
 	protected boolean udpBroadcast = false;
 
+	/**
+	 * Send regions of streamed files as binary frames, directly from the file
+	 * to the socket (zero-copy transfer, used when the remote node supports
+	 * binary stream frames)
+	 */
+	protected boolean zeroCopyStreams = true;
+
 	/**
 	 * Random generator.
 	 */
@@ -417,8 +431,19 @@ public class TcpTransporter extends Transporter {
 	// --- MESSAGE RECEIVED ---
 
 	public void received(byte packetID, byte[] packet) {
+		long receivedAt = Deadline.currentTimeMillis();
 		executor.execute(() -> {
 
+			// Binary stream frame
+			if (packetID == PACKET_STREAM_DATA_ID) {
+				try {
+					receiveStreamFrame(packet, receivedAt);
+				} catch (Exception cause) {
+					logger.warn("Unable to process incoming stream frame!", cause);
+				}
+				return;
+			}
+
 			// Parse message
 			Tree data;
 			try {
@@ -447,7 +472,7 @@ public class TcpTransporter extends Transporter {
 					if (debug) {
 						logger.info("Request message received:\r\n" + data);
 					}
-					registry.receiveRequest(data);
+					registry.receiveRequest(data, receivedAt);
 					return;
 
 				case PACKET_RESPONSE_ID:
@@ -512,6 +537,126 @@ public class TcpTransporter extends Transporter {
 		});
 	}
 
+	// --- BINARY STREAM FRAMES ---
+
+	/**
+	 * Sends a region of a streamed file as a binary frame. The frame contains
+	 * a 2-byte length, a serialized header block (sender, id, cmd, seq) and
+	 * the raw content of the region. The content is written by the TcpWriter
+	 * directly from the file (via FileChannel.transferTo). If the target node
+	 * does not support binary frames (or the header block is longer than
+	 * 65535 bytes), the region is sent as a regular data packet.
+	 */
+	@Override
+	public void sendFileDataPacket(String cmd, String nodeID, Context ctx, FileSource source, long position,
+			int count, long sequence) throws IOException {
+		if (!zeroCopyStreams || writer == null || !acceptsBinaryStreamFrames(nodeID)) {
+			super.sendFileDataPacket(cmd, nodeID, ctx, source, position, count, sequence);
+			return;
+		}
+
+		// Create header block
+		FastBuildTree header = new FastBuildTree(5);
+		header.putUnsafe("ver", ServiceBroker.PROTOCOL_VERSION);
+		header.putUnsafe("sender", this.nodeID);
+		header.putUnsafe("id", ctx.id);
+		header.putUnsafe("cmd", cmd);
+		header.putUnsafe("seq", sequence);
+		byte[] bytes;
+		try {
+			bytes = serializer.write(header);
+		} catch (Exception cause) {
+			throw new IOException("Unable to serialize stream frame!", cause);
+		}
+
+		// The length of the header block is stored in 2 bytes
+		if (bytes.length > 0xFFFF) {
+			super.sendFileDataPacket(cmd, nodeID, ctx, source, position, count, sequence);
+			return;
+		}
+
+		// Check size
+		int length = bytes.length + count + 8;
+		if (maxPacketSize > 0 && length > maxPacketSize) {
+			throw new InvalidPacketDataError("Outgoing packet is larger than the \"maxPacketSize\" limit (" + length
+					+ " > " + maxPacketSize + ")!", "maxPacketSize", maxPacketSize, "packetSize", length);
+		}
+
+		// Packet type, packet length and CRC (see "serialize" method)
+		byte[] frame = new byte[bytes.length + 8];
+		frame[5] = PACKET_STREAM_DATA_ID;
+		frame[4] = (byte) length;
+		frame[3] = (byte) (length >>> 8);
+		frame[2] = (byte) (length >>> 16);
+		frame[1] = (byte) (length >>> 24);
+		frame[0] = (byte) (frame[1] ^ frame[2] ^ frame[3] ^ frame[4] ^ frame[5]);
+
+		// Length of the header block
+		frame[6] = (byte) (bytes.length >>> 8);
+		frame[7] = (byte) bytes.length;
+		System.arraycopy(bytes, 0, frame, 8, bytes.length);
+
+		// Send frame (the region is released by the writer)
+		if (debug) {
+			logger.info("Stream frame submitting (" + count + " bytes):\r\n" + header);
+		}
+		source.retain();
+		writer.send(nodeID, new FileRegion(ByteBuffer.wrap(frame), source, position, count));
+	}
+
+	protected void receiveStreamFrame(byte[] packet, long receivedAt) throws Exception {
+
+		// Parse header block
+		int len = ((0xFF & packet[0]) << 8) | (0xFF & packet[1]);
+		byte[] bytes = new byte[len];
+		System.arraycopy(packet, 2, bytes, 0, len);
+		Tree header = serializer.read(bytes);
+		if (debug) {
+			logger.info("Stream frame received:\r\n" + header);
+		}
+
+		// Convert frame to data packet
+		byte[] data = new byte[packet.length - len - 2];
+		System.arraycopy(packet, len + 2, data, 0, data.length);
+		FastBuildTree msg = new FastBuildTree(6);
+		msg.putUnsafe("ver", header.get("ver", ServiceBroker.PROTOCOL_VERSION));
+		msg.putUnsafe("sender", header.get("sender", ""));
+		msg.putUnsafe("id", header.get("id", ""));
+		msg.putUnsafe("stream", true);
+		FastBuildTree params = new FastBuildTree(2);
+		params.putUnsafe("type", "Buffer");
+		params.putUnsafe("data", data);
+		msg.putUnsafe("params", params);
+		FastBuildTree meta = new FastBuildTree(1);
+		meta.putUnsafe("seq", header.get("seq", 0L));
+		msg.putUnsafe("meta", meta);
+
+		// Send message to proper component
+		if (PACKET_REQUEST.equals(header.get("cmd", ""))) {
+			registry.receiveRequest(msg, receivedAt);
+		} else {
+			registry.receiveResponse(msg);
+		}
+	}
+
+	/**
+	 * Calculates the max chunk size from the "maxPacketSize" limit (JSON
+	 * serializer encodes a byte with up to 4 characters).
+	 */
+	@Override
+	public int getMaxStreamChunkSize() {
+		if (maxPacketSize < 1) {
+			return super.getMaxStreamChunkSize();
+		}
+		int limit = usingJsonSerializer ? maxPacketSize / 4 : maxPacketSize;
+		return Math.max(1024, limit - 1024);
+	}
+
+	@Override
+	public boolean supportsBinaryStreamFrames() {
+		return zeroCopyStreams;
+	}
+
 	// --- CONNECTION ERROR ---
 
 	public void unableToSend(String nodeID, LinkedList<byte[]> packets, Throwable cause) {
@@ -1473,4 +1618,12 @@ public class TcpTransporter extends Transporter {
 		this.udpMulticastTTL = udpMulticastTTL;
 	}
 
+	public boolean isZeroCopyStreams() {
+		return zeroCopyStreams;
+	}
+
+	public void setZeroCopyStreams(boolean zeroCopyStreams) {
+		this.zeroCopyStreams = zeroCopyStreams;
+	}
+
 }
\ No newline at end of file
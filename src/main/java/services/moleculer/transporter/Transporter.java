@@ -29,9 +29,12 @@ import static services.moleculer.ServiceBroker.PROTOCOL_VERSION;
 import static services.moleculer.util.CommonUtils.nameOf;
 import static services.moleculer.util.CommonUtils.throwableToTree;
 
+import java.io.IOException;
+import java.util.Base64;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -46,6 +49,7 @@ import io.datatree.Tree;
 import services.moleculer.ServiceBroker;
 import services.moleculer.config.ServiceBrokerConfig;
 import services.moleculer.context.Context;
+import services.moleculer.context.Deadline;
 import services.moleculer.eventbus.Eventbus;
 import services.moleculer.monitor.Monitor;
 import services.moleculer.serializer.JsonSerializer;
@@ -53,6 +57,7 @@ import services.moleculer.serializer.Serializer;
 import services.moleculer.service.MoleculerComponent;
 import services.moleculer.service.Name;
 import services.moleculer.service.ServiceRegistry;
+import services.moleculer.stream.FileSource;
 import services.moleculer.transporter.tcp.NodeDescriptor;
 import services.moleculer.transporter.tcp.RemoteAddress;
 import services.moleculer.uid.UidGenerator;
@@ -63,6 +68,7 @@ import services.moleculer.util.FastBuildTree;
  *
  * @see TcpTransporter
  * @see RedisTransporter
+ * @see RedisStreamTransporter
  * @see NatsTransporter
  * @see MqttTransporter
  * @see JmsTransporter
@@ -85,6 +91,11 @@ public abstract class Transporter extends MoleculerComponent {
 	public static final String PACKET_PING = "PING";
 	public static final String PACKET_PONG = "PONG";
 
+	// --- CHANNEL NAMES OF THE BUILT-IN BALANCER ---
+
+	public static final String PACKET_EVENT_BALANCED = "EVENTB";
+	public static final String PACKET_REQUEST_BALANCED = "REQB";
+
 	// --- CHANNELS OF CURRENT NODE ---
 
 	public String eventChannel;
@@ -98,6 +109,8 @@ public abstract class Transporter extends MoleculerComponent {
 	public String heartbeatChannel;
 	public String pingChannel;
 	public String pongChannel;
+	public String eventBalancedChannel;
+	public String requestBalancedChannel;
 
 	// --- PROPERTIES ---
 
@@ -142,6 +155,33 @@ public abstract class Transporter extends MoleculerComponent {
 
 	protected boolean usingJsonSerializer = true;
 
+	// --- STREAM CHUNK ENCODING ---
+
+	/**
+	 * Name of the compact stream chunk encoding (advertised in the "client"
+	 * block of the INFO packet)
+	 */
+	public static final String STREAM_ENCODING_BASE64 = "base64";
+
+	/**
+	 * Send stream chunks as Base64 strings (instead of NodeJS compatible
+	 * byte arrays) to nodes which support it. Binary serializers always send
+	 * raw bytes.
+	 */
+	protected boolean compactStreams = true;
+
+	/**
+	 * Name of the binary stream frame format (advertised in the "client"
+	 * block of the INFO packet by Transporters which can receive raw stream
+	 * frames, see {@link #supportsBinaryStreamFrames()})
+	 */
+	public static final String STREAM_FRAMES_BINARY = "binary";
+
+	/**
+	 * Default upper limit of the chunk size of outgoing streams
+	 */
+	protected static final int DEFAULT_MAX_STREAM_CHUNK_SIZE = 256 * 1024;
+
 	// --- COMPONENTS ---
 
 	protected ExecutorService executor;
@@ -171,6 +211,10 @@ public abstract class Transporter extends MoleculerComponent {
 
 	protected final AtomicBoolean infoScheduled = new AtomicBoolean();
 
+	// --- BALANCED SUBSCRIPTIONS (CHANNEL -> GROUP) ---
+
+	protected final ConcurrentHashMap<String, String> balancedChannels = new ConcurrentHashMap<>(64);
+
 	// --- CONSTUCTORS ---
 
 	public Transporter() {
@@ -223,6 +267,8 @@ public abstract class Transporter extends MoleculerComponent {
 		heartbeatChannel = channel(PACKET_HEARTBEAT, null);
 		pingChannel = channel(PACKET_PING, nodeID);
 		pongChannel = channel(PACKET_PONG, nodeID);
+		eventBalancedChannel = channel(PACKET_EVENT_BALANCED, null);
+		requestBalancedChannel = channel(PACKET_REQUEST_BALANCED, null);
 	}
 
 	protected String channel(String cmd, String nodeID) {
@@ -239,6 +285,24 @@ public abstract class Transporter extends MoleculerComponent {
 		return name.toString();
 	}
 
+	/**
+	 * Returns the packet type (eg. "REQ", "EVENT", "HEARTBEAT") of the
+	 * specified channel.
+	 * 
+	 * @param channel
+	 *            name of the channel (eg. "MOL.REQ.node1")
+	 * 
+	 * @return packet type of the channel
+	 */
+	protected String packetTypeOf(String channel) {
+		int start = 0;
+		if (prefix != null && !prefix.isEmpty() && channel.startsWith(prefix)) {
+			start = prefix.length() + 1;
+		}
+		int end = channel.indexOf('.', start);
+		return end == -1 ? channel.substring(start) : channel.substring(start, end);
+	}
+
 	public abstract void connect();
 
 	// --- SERVER CONNECTED ---
@@ -251,6 +315,11 @@ public abstract class Transporter extends MoleculerComponent {
 		Promise promise = new Promise();
 		executor.execute(() -> {
 
+			// Subscribe balanced channels (used by the built-in balancer)
+			for (Map.Entry<String, String> entry : balancedChannels.entrySet()) {
+				subscribeBalanced(entry.getKey(), entry.getValue());
+			}
+
 			// Subscribe all required channels
 			Promise.all(subscribe(eventChannel), // EVENT
 					subscribe(requestChannel), // REQ
@@ -327,6 +396,7 @@ public abstract class Transporter extends MoleculerComponent {
 
 		// Clear all stored data
 		nodes.clear();
+		balancedChannels.clear();
 	}
 
 	// --- PING PACKET ---
@@ -343,6 +413,23 @@ public abstract class Transporter extends MoleculerComponent {
 	// --- REQUEST PACKET ---
 
 	public void sendRequestPacket(String nodeID, Context ctx) {
+		publish(Transporter.PACKET_REQUEST, nodeID, createRequestPacket(ctx));
+	}
+
+	/**
+	 * Sends a request to the balanced channel of an action. Used only by
+	 * Transporters with built-in balancer (see {@link #hasBuiltInBalancer()}),
+	 * the message broker delivers the request to exactly one node which
+	 * provides the action.
+	 * 
+	 * @param ctx
+	 *            Context of the request
+	 */
+	public void sendBalancedRequestPacket(Context ctx) {
+		publish(balancedRequestChannel(ctx.name), createRequestPacket(ctx));
+	}
+
+	protected Tree createRequestPacket(Context ctx) {
 		FastBuildTree msg = new FastBuildTree(11);
 
 		// Add basic properties (version, sender's nodeID, etc.)
@@ -360,9 +447,9 @@ public abstract class Transporter extends MoleculerComponent {
 			}
 		}
 
-		// Timeout
-		if (ctx.opts != null && ctx.opts.timeout > 0) {
-			msg.putUnsafe("timeout", ctx.opts.timeout);
+		// Timeout (the remaining time of the deadline)
+		if (ctx.deadline != null) {
+			msg.putUnsafe("timeout", Math.max(1, ctx.deadline.remaining()));
 		}
 
 		// Call level
@@ -380,9 +467,37 @@ public abstract class Transporter extends MoleculerComponent {
 		if (ctx.stream != null) {
 			msg.putUnsafe("stream", true);
 		}
+		return msg;
+	}
 
-		// Send message
-		publish(Transporter.PACKET_REQUEST, nodeID, msg);
+	// --- BALANCED EVENT PACKET ---
+
+	/**
+	 * Sends an event to the balanced channel of a listener group. Used only by
+	 * Transporters with built-in balancer (see {@link #hasBuiltInBalancer()}),
+	 * the broker (eg. the consumer group of a Redis Stream) delivers the event
+	 * to exactly one member of the group.
+	 * 
+	 * @param subscribe
+	 *            subscription of the listener group (eg. "user.*")
+	 * @param group
+	 *            name of the listener group
+	 * @param name
+	 *            name of the event (eg. "user.created")
+	 * @param payload
+	 *            payload of the event (can be null)
+	 */
+	public void sendBalancedEventPacket(String subscribe, String group, String name, Tree payload) {
+		FastBuildTree msg = new FastBuildTree(6);
+		msg.putUnsafe("ver", PROTOCOL_VERSION);
+		msg.putUnsafe("sender", nodeID);
+		msg.putUnsafe("event", name);
+		msg.putUnsafe("broadcast", false);
+		msg.putUnsafe("groups", new String[] { group });
+		if (payload != null) {
+			msg.putUnsafe("data", payload);
+		}
+		publish(balancedEventChannel(subscribe, group), msg);
 	}
 
 	// --- DATA PACKET (STREAMING) ---
@@ -399,12 +514,17 @@ public abstract class Transporter extends MoleculerComponent {
 		msg.putUnsafe("stream", true);
 
 		// Add "params" block
-		FastBuildTree params = new FastBuildTree(2);
+		FastBuildTree params = new FastBuildTree(3);
 		msg.putUnsafe("params", params);
 		params.putUnsafe("type", "Buffer");
 
-		// Convert signed byte array to unsigned short array
-		if (usingJsonSerializer) {
+		// Convert signed byte array to Base64 string or unsigned short array
+		if (usingJsonSerializer && compactStreams && acceptsCompactStreams(nodeID)) {
+
+			// Using compact Base64 encoding (negotiated via INFO packets)
+			params.putUnsafe("encoding", STREAM_ENCODING_BASE64);
+			params.putUnsafe("data", Base64.getEncoder().encodeToString(bytes));
+		} else if (usingJsonSerializer) {
 
 			// Using NodeJS compatible byte-array encoding
 			short[] data = new short[bytes.length];
@@ -427,6 +547,157 @@ public abstract class Transporter extends MoleculerComponent {
 		publish(cmd, nodeID, msg);
 	}
 
+	/**
+	 * Checks the INFO block of the remote node. Returns true if the node can
+	 * receive Base64 encoded stream chunks.
+	 * 
+	 * @param nodeID
+	 *            target nodeID
+	 * 
+	 * @return true = node supports Base64 encoded streams
+	 */
+	protected boolean acceptsCompactStreams(String nodeID) {
+		NodeDescriptor node = nodes.get(nodeID);
+		if (node == null) {
+			return false;
+		}
+		node.readLock.lock();
+		try {
+			Tree info = node.info;
+			return info != null && STREAM_ENCODING_BASE64.equals(info.get("client.streamEncoding", ""));
+		} finally {
+			node.readLock.unlock();
+		}
+	}
+
+	// --- MAX CHUNK SIZE (STREAMING) ---
+
+	/**
+	 * Returns the upper limit of the chunk size of outgoing streams. The
+	 * PacketStreams of the ServiceBroker tune their chunk size up to this
+	 * limit.
+	 * 
+	 * @return max chunk size in bytes
+	 */
+	public int getMaxStreamChunkSize() {
+		return DEFAULT_MAX_STREAM_CHUNK_SIZE;
+	}
+
+	// --- FILE REGION (STREAMING) ---
+
+	/**
+	 * Sends a region of a streamed file. The default implementation reads
+	 * the region into the heap and sends it as a regular data packet;
+	 * Transporters with direct socket access (eg. TcpTransporter) can
+	 * transfer the region without copying it.
+	 * 
+	 * @param cmd
+	 *            "REQ" or "RES" channel
+	 * @param nodeID
+	 *            target nodeID
+	 * @param ctx
+	 *            Context of the stream
+	 * @param source
+	 *            streamed file
+	 * @param position
+	 *            start position of the region
+	 * @param count
+	 *            length of the region
+	 * @param sequence
+	 *            sequence number of the chunk
+	 * 
+	 * @throws IOException
+	 *             unable to read the file
+	 */
+	public void sendFileDataPacket(String cmd, String nodeID, Context ctx, FileSource source, long position,
+			int count, long sequence) throws IOException {
+		sendDataPacket(cmd, nodeID, ctx, source.read(position, count), sequence);
+	}
+
+	/**
+	 * Returns true if the Transporter can receive binary stream frames (the
+	 * registry advertises it in the INFO packet).
+	 * 
+	 * @return true = binary stream frames are supported
+	 */
+	public boolean supportsBinaryStreamFrames() {
+		return false;
+	}
+
+	/**
+	 * Checks the INFO block of the remote node. Returns true if the node can
+	 * receive binary stream frames.
+	 * 
+	 * @param nodeID
+	 *            target nodeID
+	 * 
+	 * @return true = node supports binary stream frames
+	 */
+	protected boolean acceptsBinaryStreamFrames(String nodeID) {
+		NodeDescriptor node = nodes.get(nodeID);
+		if (node == null) {
+			return false;
+		}
+		node.readLock.lock();
+		try {
+			Tree info = node.info;
+			return info != null && STREAM_FRAMES_BINARY.equals(info.get("client.streamFrames", ""));
+		} finally {
+			node.readLock.unlock();
+		}
+	}
+
+	// --- CREDIT PACKET (STREAM FLOW CONTROL) ---
+
+	/**
+	 * Grants credits to the sender of a stream. Credits of request streams are
+	 * sent on the "RES" channel, credits of response streams are sent on the
+	 * "REQ" channel (a credit packet has no "action" or "data" property, only
+	 * a "credit" property).
+	 * 
+	 * @param cmd
+	 *            channel type ({@link #PACKET_REQUEST} or
+	 *            {@link #PACKET_RESPONSE})
+	 * @param nodeID
+	 *            nodeID of the stream's sender
+	 * @param id
+	 *            ID of the call
+	 * @param credit
+	 *            number of granted bytes
+	 */
+	public void sendCreditPacket(String cmd, String nodeID, String id, long credit) {
+		FastBuildTree msg = new FastBuildTree(4);
+		msg.putUnsafe("ver", PROTOCOL_VERSION);
+		msg.putUnsafe("sender", this.nodeID);
+		msg.putUnsafe("id", id);
+		msg.putUnsafe("credit", credit);
+		publish(cmd, nodeID, msg);
+	}
+
+	/**
+	 * Returns the receive window of the remote node's incoming streams (from
+	 * the INFO block of the node).
+	 * 
+	 * @param nodeID
+	 *            nodeID of the remote node
+	 * 
+	 * @return receive window in bytes (0 = node does not support flow
+	 *         control)
+	 */
+	public long getStreamWindow(String nodeID) {
+		NodeDescriptor node = nodes.get(nodeID);
+		if (node == null) {
+			return 0;
+		}
+		node.readLock.lock();
+		try {
+			Tree info = node.info;
+			return info == null ? 0 : info.get("client.streamWindow", 0L);
+		} finally {
+			node.readLock.unlock();
+		}
+	}
+
 	// --- ERROR PACKET (STREAMING) ---
 
 	public void sendErrorPacket(String cmd, String nodeID, Context ctx, Throwable cause, long sequence) {
@@ -476,6 +747,83 @@ public abstract class Transporter extends MoleculerComponent {
 
 	public abstract Promise subscribe(String channel);
 
+	// --- BUILT-IN BALANCER ---
+
+	/**
+	 * Returns true if the Transporter balances the events between the members
+	 * of the listener groups, and the requests between the nodes of the
+	 * actions, on the message broker's side (eg. with consumer groups or shared
+	 * queues). In this case the {@link services.moleculer.eventbus.Eventbus
+	 * Eventbus} sends events, and the Service Invoker sends requests without
+	 * target nodeID, to balanced channels instead of sending them to the
+	 * selected nodes.
+	 * 
+	 * @return true if the Transporter has built-in balancer
+	 */
+	public boolean hasBuiltInBalancer() {
+		return false;
+	}
+
+	public String balancedEventChannel(String subscribe, String group) {
+		return channel(PACKET_EVENT_BALANCED, group + '.' + subscribe);
+	}
+
+	/**
+	 * Subscribes the balanced channel of a local listener group. The
+	 * subscription is stored, and it will be restored after reconnection.
+	 * 
+	 * @param subscribe
+	 *            subscription of the listener group (eg. "user.*")
+	 * @param group
+	 *            name of the listener group
+	 * 
+	 * @return Promise of the subscription
+	 */
+	public Promise subscribeBalancedEvent(String subscribe, String group) {
+		String channel = balancedEventChannel(subscribe, group);
+		if (balancedChannels.putIfAbsent(channel, group) == null) {
+			return subscribeBalanced(channel, group);
+		}
+		return Promise.resolve();
+	}
+
+	public String balancedRequestChannel(String action) {
+		return channel(PACKET_REQUEST_BALANCED, action);
+	}
+
+	/**
+	 * Subscribes the balanced channel of a local action. The subscription is
+	 * stored, and it will be restored after reconnection.
+	 * 
+	 * @param action
+	 *            name of the action (eg. "math.add")
+	 * 
+	 * @return Promise of the subscription
+	 */
+	public Promise subscribeBalancedRequest(String action) {
+		String channel = balancedRequestChannel(action);
+		if (balancedChannels.putIfAbsent(channel, action) == null) {
+			return subscribeBalanced(channel, action);
+		}
+		return Promise.resolve();
+	}
+
+	/**
+	 * Subscribes a balanced channel, where only one member of the specified
+	 * group receives the messages. Transporters with built-in balancer must
+	 * override this method.
+	 * 
+	 * @param channel
+	 *            name of the balanced channel
+	 * @param group
+	 *            name of the group (eg. consumer group)
+	 * 
+	 * @return Promise of the subscription
+	 */
+	protected Promise subscribeBalanced(String channel, String group) {
+		return subscribe(channel);
+	}
+
 	// --- PROCESS INCOMING MESSAGE ---
 
 	/**
@@ -487,8 +835,9 @@ public abstract class Transporter extends MoleculerComponent {
 	 *            incoming message
 	 */
 	protected void received(String channel, byte[] message) {
+		long receivedAt = Deadline.currentTimeMillis();
 		executor.execute(() -> {
-			processReceivedMessage(channel, message);
+			processReceivedMessage(channel, message, receivedAt);
 		});
 	}
 
@@ -501,6 +850,21 @@ public abstract class Transporter extends MoleculerComponent {
 	 *            incoming message
 	 */
 	protected void processReceivedMessage(String channel, byte[] message) {
+		processReceivedMessage(channel, message, Deadline.currentTimeMillis());
+	}
+
+	/**
+	 * Process incoming message directly (without new Task).
+	 * 
+	 * @param channel
+	 *            incoming channel
+	 * @param message
+	 *            incoming message
+	 * @param receivedAt
+	 *            arrival time of the message (the time spent in the
+	 *            executor's queue is subtracted from the timeout of requests)
+	 */
+	protected void processReceivedMessage(String channel, byte[] message, long receivedAt) {
 
 		// Parse message
 		Tree data;
@@ -525,17 +889,30 @@ public abstract class Transporter extends MoleculerComponent {
 				logger.warn("Missing \"sender\" property:\r\n" + data);
 				return;
 			}
-			if (sender.equals(nodeID)) {
 
-				// It's our message
+			// Balanced event (the target is selected by the message broker)
+			if (channel.startsWith(eventBalancedChannel)) {
+				eventbus.receiveEvent(data);
 				return;
 			}
 
-			// Incoming response
+			// Balanced request (the target is selected by the message broker)
+			if (channel.startsWith(requestBalancedChannel)) {
+				registry.receiveRequest(data, receivedAt);
+				return;
+			}
+
+			// Incoming response (the response of a balanced request can come
+			// from this node)
 			if (channel.equals(responseChannel)) {
 				registry.receiveResponse(data);
 				return;
 			}
+			if (sender.equals(nodeID)) {
+
+				// It's our message
+				return;
+			}
 
 			// Incoming event
 			if (channel.equals(eventChannel)) {
@@ -545,7 +922,7 @@ public abstract class Transporter extends MoleculerComponent {
 
 			// Incoming request
 			if (channel.equals(requestChannel)) {
-				registry.receiveRequest(data);
+				registry.receiveRequest(data, receivedAt);
 				return;
 			}
 
@@ -1034,6 +1411,14 @@ public abstract class Transporter extends MoleculerComponent {
 		this.prefix = prefix;
 	}
 
+	public boolean isCompactStreams() {
+		return compactStreams;
+	}
+
+	public void setCompactStreams(boolean compactStreams) {
+		this.compactStreams = compactStreams;
+	}
+
 	public boolean isPreferHostname() {
 		return preferHostname;
 	}
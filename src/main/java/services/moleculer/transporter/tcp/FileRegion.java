@@ -0,0 +1,105 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2017 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.transporter.tcp;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import services.moleculer.stream.FileSource;
+
+/**
+ * Binary stream frame of the TcpTransporter. The frame header is written
+ * from the heap, the content of the frame is transferred directly from the
+ * file to the socket (without copying it into the JVM's heap).
+ */
+public class FileRegion {
+
+	// --- PROPERTIES ---
+
+	protected final ByteBuffer header;
+
+	protected final FileSource source;
+
+	protected final long end;
+
+	protected long position;
+
+	protected final AtomicBoolean released = new AtomicBoolean();
+
+	// --- CONSTRUCTOR ---
+
+	public FileRegion(ByteBuffer header, FileSource source, long position, long count) {
+		this.header = header;
+		this.source = source;
+		this.position = position;
+		this.end = position + count;
+	}
+
+	// --- WRITE REGION ---
+
+	/**
+	 * Writes the frame to the target channel.
+	 * 
+	 * @param channel
+	 *            target channel
+	 * 
+	 * @return true, if the frame is submitted (false = socket buffer is full)
+	 * 
+	 * @throws IOException
+	 *             any I/O exception
+	 */
+	protected boolean write(SocketChannel channel) throws IOException {
+		if (header.hasRemaining()) {
+			channel.write(header);
+			if (header.hasRemaining()) {
+				return false;
+			}
+		}
+		while (position < end) {
+			long count = source.getChannel().transferTo(position, end - position, channel);
+			if (count < 1) {
+				if (position >= source.getChannel().size()) {
+					throw new EOFException("Unexpected end of file!");
+				}
+				return false;
+			}
+			position += count;
+		}
+		return true;
+	}
+
+	// --- RELEASE FILE ---
+
+	protected void release() {
+		if (released.compareAndSet(false, true)) {
+			source.release();
+		}
+	}
+
+}
\ No newline at end of file
@@ -48,13 +48,16 @@ public class SendBuffer {
 
 	// --- OUTGOING QUEUE ---
 
-	protected final ConcurrentLinkedQueue<ByteBuffer> queue = new ConcurrentLinkedQueue<>();
+	/**
+	 * Queue of ByteBuffers and FileRegions.
+	 */
+	protected final ConcurrentLinkedQueue<Object> queue = new ConcurrentLinkedQueue<>();
 
 	// --- USED / NOT USED ---
 
 	protected static final ByteBuffer BUFFER_IS_CLOSED = ByteBuffer.allocate(1);
 
-	protected AtomicReference<ByteBuffer> blockerBuffer = new AtomicReference<>();
+	protected AtomicReference<Object> blockerBuffer = new AtomicReference<>();
 
 	// --- PROPERTIES ---
 
@@ -99,8 +102,23 @@ public class SendBuffer {
 	 * @return true, if success (false = buffer is closed)
 	 */
 	protected boolean append(byte[] packet) {
-		ByteBuffer buffer = ByteBuffer.wrap(packet);
-		ByteBuffer blocker;
+		return append((Object) ByteBuffer.wrap(packet));
+	}
+
+	/**
+	 * Adds a binary stream frame to the buffer's queue.
+	 *
+	 * @param region
+	 *            file region to write
+	 *
+	 * @return true, if success (false = buffer is closed)
+	 */
+	protected boolean append(FileRegion region) {
+		return append((Object) region);
+	}
+
+	protected boolean append(Object buffer) {
+		Object blocker;
 		while (true) {
 			blocker = blockerBuffer.get();
 			if (blocker == BUFFER_IS_CLOSED) {
@@ -121,7 +139,7 @@ public class SendBuffer {
 	 * @return true, is closed (false = buffer is not empty)
 	 */
 	protected boolean tryToClose() {
-		ByteBuffer blocker = blockerBuffer.get();
+		Object blocker = blockerBuffer.get();
 		if (blocker == BUFFER_IS_CLOSED) {
 			return true;
 		}
@@ -151,7 +169,7 @@ public class SendBuffer {
 			}
 			key = null;
 		}
-		queue.clear();
+		releaseRegions();
 		if (channel != null) {
 
 			// Debug
@@ -180,7 +198,7 @@ public class SendBuffer {
 	 *             any I/O exception
 	 */
 	protected void write() throws Exception {
-		ByteBuffer buffer = queue.peek();
+		Object buffer = queue.peek();
 		if (buffer == null) {
 			if (key != null) {
 				key.interestOps(0);
@@ -190,21 +208,41 @@ public class SendBuffer {
 		if (channel != null) {
 			int count;
 			while (true) {
-				count = channel.write(buffer);
+				if (buffer instanceof FileRegion) {
 
-				// Debug
-				if (debug) {
-					logger.info(count + " bytes submitted to " + channel.getRemoteAddress() + ".");
-				}
+					// Zero-copy transfer of a binary stream frame
+					FileRegion region = (FileRegion) buffer;
+					if (!region.write(channel)) {
+						return;
+					}
 
-				// EOF?
-				if (count == -1) {
-					throw new InvalidPacketDataError(nodeID, "host", host, "port", port);
-				}
+					// Debug
+					if (debug) {
+						logger.info("File region submitted to " + channel.getRemoteAddress() + ".");
+					}
 
-				// Remove the submitted buffer from the queue
-				if (!buffer.hasRemaining()) {
+					// Remove the submitted region from the queue
 					queue.poll();
+					region.release();
+
+				} else {
+					ByteBuffer bytes = (ByteBuffer) buffer;
+					count = channel.write(bytes);
+
+					// Debug
+					if (debug) {
+						logger.info(count + " bytes submitted to " + channel.getRemoteAddress() + ".");
+					}
+
+					// EOF?
+					if (count == -1) {
+						throw new InvalidPacketDataError(nodeID, "host", host, "port", port);
+					}
+
+					// Remove the submitted buffer from the queue
+					if (!bytes.hasRemaining()) {
+						queue.poll();
+					}
 				}
 
 				// Turn off write mode (if the queue is empty)
@@ -224,12 +262,28 @@ public class SendBuffer {
 
 	public LinkedList<byte[]> getUnsentPackets() {
 		LinkedList<byte[]> list = new LinkedList<>();
-		ByteBuffer buffer = queue.poll();
+		Object buffer = queue.poll();
 		while (buffer != null) {
-			list.addLast(buffer.array());
+			if (buffer instanceof FileRegion) {
+				((FileRegion) buffer).release();
+			} else {
+				list.addLast(((ByteBuffer) buffer).array());
+			}
 			buffer = queue.poll();
 		}
 		return list;
 	}
 
+	// --- RELEASE FILES ---
+
+	protected void releaseRegions() {
+		Object buffer = queue.poll();
+		while (buffer != null) {
+			if (buffer instanceof FileRegion) {
+				((FileRegion) buffer).release();
+			}
+			buffer = queue.poll();
+		}
+	}
+
 }
\ No newline at end of file
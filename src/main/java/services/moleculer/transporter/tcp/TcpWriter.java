@@ -182,6 +182,28 @@ public class TcpWriter implements Runnable {
 			logger.warn("Cannot send empty packet to node " + nodeID + "!");
 			return;
 		}
+		enqueue(nodeID, packet);
+	}
+
+	/**
+	 * Sends a binary stream frame (the content of the frame is transferred
+	 * directly from the file to the socket).
+	 * 
+	 * @param nodeID
+	 *            target nodeID
+	 * @param region
+	 *            file region to send
+	 */
+	public void send(String nodeID, FileRegion region) {
+		if (nodeID == null) {
+			logger.warn("Unable to send (missing nodeID)!");
+			region.release();
+			return;
+		}
+		enqueue(nodeID, region);
+	}
+
+	protected void enqueue(String nodeID, Object packet) {
 		SendBuffer buffer = null;
 		try {
 
@@ -195,6 +217,9 @@ public class TcpWriter implements Runnable {
 					RemoteAddress address = transporter.getAddress(nodeID);
 					if (address == null) {
 						logger.warn("Unknown node ID (" + nodeID + ")!");
+						if (packet instanceof FileRegion) {
+							((FileRegion) packet).release();
+						}
 						return;
 					}
 					buffer = new SendBuffer(nodeID, address.host, address.port, debug);
@@ -246,14 +271,16 @@ public class TcpWriter implements Runnable {
 			} else {
 				packets = new LinkedList<>();
 			}
-			if (packets.isEmpty() && packet != null) {
-				packets.addLast(packet);
+			if (packet instanceof FileRegion) {
+				((FileRegion) packet).release();
+			} else if (packets.isEmpty() && packet != null) {
+				packets.addLast((byte[]) packet);
 			}
 			transporter.unableToSend(nodeID, packets, cause);
 		}
 	}
 
-	protected boolean append(String nodeID, SendBuffer buffer, byte[] packet) {
+	protected boolean append(String nodeID, SendBuffer buffer, Object packet) {
 
 		// Add HELLO first
 		if (debug) {
@@ -52,6 +52,17 @@ public class IncrementalUidGenerator extends UidGenerator {
 
 	protected final AtomicLong counter = new AtomicLong();
 
+	// --- PER-THREAD CHARACTER BUFFER ---
+
+	protected final ThreadLocal<char[]> buffers = new ThreadLocal<char[]>() {
+
+		@Override
+		protected final char[] initialValue() {
+			return new char[64];
+		}
+
+	};
+
 	// --- START GENERATOR ---
 
 	/**
@@ -72,10 +83,29 @@ public class IncrementalUidGenerator extends UidGenerator {
 
 	@Override
 	public String nextUID() {
-		StringBuilder tmp = new StringBuilder(prefix.length + 16);
-		tmp.append(prefix);
-		tmp.append(counter.incrementAndGet());
-		return tmp.toString();
+
+		// Get buffer (the only allocated object is the String)
+		char[] p = prefix;
+		int max = p.length + 20;
+		char[] buffer = buffers.get();
+		if (buffer.length < max) {
+			buffer = new char[max];
+			buffers.set(buffer);
+		}
+
+		// Write sequence number (backwards, to the end of the buffer)
+		long seq = counter.incrementAndGet();
+		int pos = max;
+		do {
+			buffer[--pos] = (char) ('0' + seq % 10);
+			seq /= 10;
+		} while (seq != 0);
+		int len = max - pos;
+
+		// Prepend prefix
+		System.arraycopy(buffer, pos, buffer, p.length, len);
+		System.arraycopy(p, 0, buffer, 0, p.length);
+		return new String(buffer, 0, p.length + len);
 	}
 
 	// --- GETTERS / SETTERS ---
@@ -0,0 +1,170 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2017 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.uid;
+
+import static services.moleculer.util.CommonUtils.getHostName;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import services.moleculer.ServiceBroker;
+import services.moleculer.service.Name;
+
+/**
+ * High-throughput {@link UidGenerator}, based on nodeID and per-thread blocks
+ * of sequence numbers. Threads reserve a block of numbers from the shared
+ * counter (eg. 1024 numbers at once), so the shared AtomicLong is touched only
+ * once per block. The sequence is written as a fixed-length (11 characters)
+ * string with an ordered, URL-safe 64-character alphabet.
+ *
+ * @see IncrementalUidGenerator
+ * @see StandardUidGenerator
+ */
+@Name("Striped UID Generator")
+public class StripedUidGenerator extends UidGenerator {
+
+	// --- ENCODING ---
+
+	/**
+	 * Characters in ASCII order (the IDs of a block are sortable)
+	 */
+	protected static final char[] ALPHABET = "-0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ_abcdefghijklmnopqrstuvwxyz"
+			.toCharArray();
+
+	/**
+	 * Length of the encoded sequence number (11 * 6 bits &gt;= 64 bits)
+	 */
+	protected static final int SEQUENCE_LENGTH = 11;
+
+	// --- HOST/NODE PREFIX ---
+
+	/**
+	 * UID prefix (empty = hostname)
+	 */
+	protected char[] prefix = (getHostName() + ':').toCharArray();
+
+	// --- PROPERTIES ---
+
+	/**
+	 * Number of sequence numbers reserved by a thread at once
+	 */
+	protected int blockSize = 1024;
+
+	// --- SEQUENCE ---
+
+	/**
+	 * Shared counter (it starts from the current time, so a restarted node
+	 * with the same prefix does not generate the same IDs)
+	 */
+	protected final AtomicLong counter = new AtomicLong(System.currentTimeMillis() << 16);
+
+	// --- PER-THREAD BLOCKS ---
+
+	protected static final class Block {
+
+		protected long next;
+		protected long limit;
+		protected char[] buffer = new char[64];
+
+	}
+
+	protected final ThreadLocal<Block> blocks = new ThreadLocal<Block>() {
+
+		@Override
+		protected final Block initialValue() {
+			return new Block();
+		}
+
+	};
+
+	// --- START GENERATOR ---
+
+	/**
+	 * Initializes UID generator instance.
+	 *
+	 * @param broker
+	 *            parent ServiceBroker
+	 */
+	@Override
+	public void started(ServiceBroker broker) throws Exception {
+		super.started(broker);
+		if (prefix == null) {
+			prefix = (broker.getNodeID() + ':').toCharArray();
+		}
+	}
+
+	// --- GENERATE UID ---
+
+	@Override
+	public String nextUID() {
+		Block block = blocks.get();
+
+		// Reserve the next block of sequence numbers
+		if (block.next == block.limit) {
+			int size = blockSize;
+			block.next = counter.getAndAdd(size);
+			block.limit = block.next + size;
+		}
+		long seq = block.next++;
+
+		// Get buffer
+		char[] p = prefix;
+		int len = p.length + SEQUENCE_LENGTH;
+		char[] buffer = block.buffer;
+		if (buffer.length < len) {
+			buffer = new char[len];
+			block.buffer = buffer;
+		}
+
+		// Write prefix and sequence number (6 bits per character)
+		System.arraycopy(p, 0, buffer, 0, p.length);
+		for (int i = len - 1; i >= p.length; i--) {
+			buffer[i] = ALPHABET[(int) (seq & 63)];
+			seq >>>= 6;
+		}
+		return new String(buffer, 0, len);
+	}
+
+	// --- GETTERS / SETTERS ---
+
+	public String getPrefix() {
+		return new String(prefix);
+	}
+
+	public void setPrefix(String prefix) {
+		if (prefix != null && !prefix.isEmpty()) {
+			this.prefix = prefix.toCharArray();
+		}
+	}
+
+	public int getBlockSize() {
+		return blockSize;
+	}
+
+	public void setBlockSize(int blockSize) {
+		this.blockSize = Math.max(1, blockSize);
+	}
+
+}
\ No newline at end of file
@@ -37,8 +37,7 @@ public final class ParseResult {
 	public final Tree data;
 	public final Groups groups;
 	public final PacketStream stream;
-	
-	public CallOptions.Options opts;
+	public final CallOptions.Options opts;
 
 	// --- CONSTRUCTOR ---
 
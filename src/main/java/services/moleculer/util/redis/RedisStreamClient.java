@@ -0,0 +1,363 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2017 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.util.redis;
+
+import static services.moleculer.util.redis.RedisGetSetClient.parseURLs;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import com.lambdaworks.redis.RedisClient;
+import com.lambdaworks.redis.RedisURI;
+import com.lambdaworks.redis.api.StatefulRedisConnection;
+import com.lambdaworks.redis.codec.ByteArrayCodec;
+import com.lambdaworks.redis.event.Event;
+import com.lambdaworks.redis.event.EventBus;
+import com.lambdaworks.redis.output.CommandOutput;
+import com.lambdaworks.redis.output.IntegerOutput;
+import com.lambdaworks.redis.output.NestedMultiOutput;
+import com.lambdaworks.redis.output.StatusOutput;
+import com.lambdaworks.redis.protocol.AsyncCommand;
+import com.lambdaworks.redis.protocol.Command;
+import com.lambdaworks.redis.protocol.CommandArgs;
+import com.lambdaworks.redis.protocol.ProtocolKeyword;
+import com.lambdaworks.redis.resource.DefaultClientResources;
+import com.lambdaworks.redis.resource.EventLoopGroupProvider;
+
+import io.datatree.Promise;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.util.concurrent.DefaultEventExecutor;
+import io.netty.util.concurrent.EventExecutorGroup;
+import io.netty.util.concurrent.Future;
+import rx.Observable;
+
+/**
+ * Promise-based Redis Streams client (XADD, XREADGROUP, XACK, XGROUP). The
+ * stream commands are sent as custom commands, so this client works with
+ * Redis 5.0 (or newer) servers. Clustered servers are not supported, the client
+ * connects to the first URL.
+ */
+public final class RedisStreamClient {
+
+	// --- STREAM COMMANDS ---
+
+	private static enum StreamCommand implements ProtocolKeyword {
+
+		XADD, XREADGROUP, XACK, XGROUP;
+
+		private final byte[] bytes = name().getBytes(StandardCharsets.US_ASCII);
+
+		@Override
+		public final byte[] getBytes() {
+			return bytes;
+		}
+
+	}
+
+	// --- VARIABLES ---
+
+	private final String[] urls;
+	private final String password;
+	private final boolean secure;
+	private final ExecutorService executor;
+	private final EventBus eventBus;
+	private final ByteArrayCodec codec = new ByteArrayCodec();
+
+	private ExecutorService acceptor;
+	private NioEventLoopGroup group;
+	private DefaultClientResources resources;
+	private RedisClient client;
+	private StatefulRedisConnection<byte[], byte[]> connection;
+
+	/**
+	 * Dedicated connections of the blocking XREADGROUP commands
+	 */
+	private final LinkedList<StatefulRedisConnection<byte[], byte[]>> readers = new LinkedList<>();
+
+	// --- CONSTRUCTOR ---
+
+	public RedisStreamClient(String[] urls, String password, boolean secure, ExecutorService executor,
+			EventBus eventBus) {
+		this.urls = urls;
+		this.password = password;
+		this.secure = secure;
+		this.executor = executor;
+		this.eventBus = eventBus;
+	}
+
+	// --- CONNECT ---
+
+	public final void connect() {
+		DefaultClientResources.Builder builder = DefaultClientResources.builder();
+		acceptor = Executors.newSingleThreadExecutor();
+		group = new NioEventLoopGroup(1, acceptor);
+		builder.eventLoopGroupProvider(new EventLoopGroupProvider() {
+
+			@Override
+			public final int threadPoolSize() {
+				return 1;
+			}
+
+			@Override
+			public final Future<Boolean> shutdown(long quietPeriod, long timeout, TimeUnit timeUnit) {
+				return null;
+			}
+
+			@Override
+			public final Future<Boolean> release(EventExecutorGroup eventLoopGroup, long quietPeriod, long timeout,
+					TimeUnit unit) {
+				return null;
+			}
+
+			@SuppressWarnings("unchecked")
+			@Override
+			public final <T extends EventLoopGroup> T allocate(Class<T> type) {
+				return (T) group;
+			}
+
+		});
+		builder.eventExecutorGroup(new DefaultEventExecutor(executor));
+		if (eventBus == null) {
+			builder.eventBus(new EventBus() {
+
+				@Override
+				public final void publish(Event event) {
+
+					// Do nothing
+				}
+
+				@Override
+				public final Observable<Event> get() {
+					return null;
+				}
+
+			});
+		} else {
+			builder.eventBus(eventBus);
+		}
+		resources = builder.build();
+		List<RedisURI> redisURIs = parseURLs(urls, password, secure);
+		client = RedisClient.create(resources, redisURIs.get(0));
+		connection = client.connect(codec);
+	}
+
+	/**
+	 * Opens a new connection for blocking reads (a blocking XREADGROUP command
+	 * would block all other commands of a shared connection).
+	 * 
+	 * @return new connection
+	 */
+	public final StatefulRedisConnection<byte[], byte[]> connectReader() {
+		StatefulRedisConnection<byte[], byte[]> reader = client.connect(codec);
+		synchronized (readers) {
+			readers.addLast(reader);
+		}
+		return reader;
+	}
+
+	// --- CREATE CONSUMER GROUP ---
+
+	/**
+	 * Creates a consumer group (and the stream, if it does not exist).
+	 * 
+	 * @param key
+	 *            stream key
+	 * @param groupName
+	 *            name of the consumer group
+	 * @param skipPending
+	 *            if the group already exists, skip the unread messages (move
+	 *            the last delivered ID of the group to the end of the stream)
+	 * 
+	 * @return Promise with empty value
+	 */
+	public final Promise createGroup(String key, String groupName, boolean skipPending) {
+		CommandArgs<byte[], byte[]> args = new CommandArgs<>(codec);
+		args.add("CREATE").addKey(bytes(key)).add(groupName).add("$").add("MKSTREAM");
+		CompletableFuture<String> future = dispatch(connection, StreamCommand.XGROUP, new StatusOutput<>(codec),
+				args);
+		return new Promise(future.handle((ok, cause) -> {
+			if (cause == null) {
+				return null;
+			}
+			String msg = String.valueOf(cause.getMessage());
+			if (!msg.contains("BUSYGROUP")) {
+				throw new IllegalStateException("Unable to create consumer group (" + msg + ")!", cause);
+			}
+			if (skipPending) {
+				CommandArgs<byte[], byte[]> setIdArgs = new CommandArgs<>(codec);
+				setIdArgs.add("SETID").addKey(bytes(key)).add(groupName).add("$");
+				dispatch(connection, StreamCommand.XGROUP, new StatusOutput<>(codec), setIdArgs);
+			}
+			return null;
+		}));
+	}
+
+	// --- ADD MESSAGE ---
+
+	/**
+	 * Appends a message to the end of a stream (with approximate trimming).
+	 * 
+	 * @param key
+	 *            stream key
+	 * @param message
+	 *            serialized message
+	 * @param maxLength
+	 *            approximate maximum length of the stream (0 = unlimited)
+	 */
+	public final void add(String key, byte[] message, long maxLength) {
+		CommandArgs<byte[], byte[]> args = new CommandArgs<>(codec);
+		args.addKey(bytes(key));
+		if (maxLength > 0) {
+			args.add("MAXLEN").add("~").add(maxLength);
+		}
+		args.add("*").add("data").addValue(message);
+		dispatch(connection, StreamCommand.XADD, new StatusOutput<>(codec), args);
+	}
+
+	// --- READ MESSAGES ---
+
+	/**
+	 * Reads new messages from the specified streams as a member of a consumer
+	 * group. The response is the raw (nested list) reply of the XREADGROUP
+	 * command.
+	 * 
+	 * @param reader
+	 *            dedicated connection (see {@link #connectReader()})
+	 * @param groupName
+	 *            name of the consumer group
+	 * @param consumer
+	 *            name of the consumer
+	 * @param count
+	 *            max number of messages per stream
+	 * @param blockMillis
+	 *            max blocking time in milliseconds
+	 * @param keys
+	 *            stream keys
+	 * 
+	 * @return future of the raw reply
+	 */
+	public final CompletableFuture<List<Object>> readGroup(StatefulRedisConnection<byte[], byte[]> reader,
+			String groupName, String consumer, int count, long blockMillis, String[] keys) {
+		CommandArgs<byte[], byte[]> args = new CommandArgs<>(codec);
+		args.add("GROUP").add(groupName).add(consumer);
+		args.add("COUNT").add(count);
+		args.add("BLOCK").add(blockMillis);
+		args.add("STREAMS");
+		for (String key : keys) {
+			args.addKey(bytes(key));
+		}
+		for (int i = 0; i < keys.length; i++) {
+			args.add(">");
+		}
+		return dispatch(reader, StreamCommand.XREADGROUP, new NestedMultiOutput<>(codec), args);
+	}
+
+	// --- ACKNOWLEDGE MESSAGES ---
+
+	/**
+	 * Removes the processed messages from the pending entries list of the
+	 * consumer group.
+	 * 
+	 * @param key
+	 *            stream key
+	 * @param groupName
+	 *            name of the consumer group
+	 * @param ids
+	 *            message IDs (as returned by XREADGROUP)
+	 */
+	public final void ack(String key, String groupName, List<byte[]> ids) {
+		CommandArgs<byte[], byte[]> args = new CommandArgs<>(codec);
+		args.addKey(bytes(key)).add(groupName);
+		for (byte[] id : ids) {
+			args.add(id);
+		}
+		dispatch(connection, StreamCommand.XACK, new IntegerOutput<>(codec), args);
+	}
+
+	// --- DISPATCH CUSTOM COMMAND ---
+
+	private final <T> AsyncCommand<byte[], byte[], T> dispatch(StatefulRedisConnection<byte[], byte[]> target,
+			ProtocolKeyword type, CommandOutput<byte[], byte[], T> output, CommandArgs<byte[], byte[]> args) {
+		AsyncCommand<byte[], byte[], T> command = new AsyncCommand<>(new Command<>(type, output, args));
+		target.dispatch(command);
+		return command;
+	}
+
+	private static final byte[] bytes(String text) {
+		return text.getBytes(StandardCharsets.UTF_8);
+	}
+
+	// --- DISCONNECT ---
+
+	public final Promise disconnect() {
+		synchronized (readers) {
+			for (StatefulRedisConnection<byte[], byte[]> reader : readers) {
+				try {
+					reader.close();
+				} catch (Exception ignored) {
+				}
+			}
+			readers.clear();
+		}
+		if (connection != null) {
+			connection.close();
+			connection = null;
+		}
+		client = null;
+		if (group != null) {
+			try {
+				group.shutdownGracefully(1, 1, TimeUnit.SECONDS).await(1, TimeUnit.SECONDS);
+			} catch (InterruptedException ignored) {
+			} finally {
+				group = null;
+			}
+		}
+		if (resources != null) {
+			try {
+				resources.shutdown(1, 1, TimeUnit.SECONDS).await(1, TimeUnit.SECONDS);
+			} catch (InterruptedException ignored) {
+			} finally {
+				resources = null;
+			}
+		}
+		if (acceptor != null) {
+			try {
+				acceptor.shutdownNow();
+			} catch (Exception ignored) {
+			} finally {
+				acceptor = null;
+			}
+		}
+		return Promise.resolve();
+	}
+
+}
@@ -0,0 +1,132 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2017 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.bulkhead;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import io.datatree.Promise;
+import io.datatree.Tree;
+import junit.framework.TestCase;
+import services.moleculer.ServiceBroker;
+import services.moleculer.error.QueueIsFullError;
+import services.moleculer.monitor.ConstantMonitor;
+import services.moleculer.service.Action;
+import services.moleculer.service.Name;
+import services.moleculer.service.Service;
+
+public class BulkheadTest extends TestCase {
+
+	// --- VARIABLES ---
+
+	protected ServiceBroker br;
+	protected BulkheadMiddleware bh;
+
+	// --- TEST METHODS ---
+
+	@Test
+	public void testBulkhead() throws Exception {
+
+		// 1 running + 1 waiting call, the 3rd call is rejected
+		Promise p1 = br.call("slow.limited", (Tree) null);
+		Promise p2 = br.call("slow.limited", (Tree) null);
+		Promise p3 = br.call("slow.limited", (Tree) null);
+
+		ActionLimiter limiter = bh.getLimiter("slow.limited");
+		assertNotNull(limiter);
+		assertEquals(1, limiter.getActive());
+		assertEquals(1, limiter.getQueued());
+		assertEquals(1, limiter.getRejected());
+
+		boolean rejected = false;
+		try {
+			p3.waitFor(1000);
+		} catch (QueueIsFullError e) {
+			rejected = true;
+		}
+		assertTrue(rejected);
+
+		assertTrue(p1.waitFor(2000).asLong() == 1);
+		assertTrue(p2.waitFor(2000).asLong() == 1);
+		assertEquals(0, limiter.getActive());
+		assertEquals(0, limiter.getQueued());
+
+		Tree metrics = bh.getMetrics();
+		assertEquals(1, metrics.size());
+		assertTrue(metrics.getFirstChild().get("rejected", 0L) == 1);
+
+		// Actions without annotation are not limited
+		assertNull(bh.getLimiter("slow.unlimited"));
+		for (int i = 0; i < 10; i++) {
+			br.call("slow.unlimited", (Tree) null);
+		}
+	}
+
+	@Name("slow")
+	protected static final class SlowService extends Service {
+
+		protected ScheduledExecutorService scheduler;
+
+		@Bulkhead(concurrency = 1, maxQueueSize = 1)
+		public Action limited = ctx -> {
+			return new Promise(r -> {
+				scheduler.schedule(() -> {
+					r.resolve(1);
+				}, 300, TimeUnit.MILLISECONDS);
+			});
+		};
+
+		public Action unlimited = ctx -> {
+			return 2;
+		};
+
+	}
+
+	// --- SET UP ---
+
+	@Override
+	protected void setUp() throws Exception {
+		bh = new BulkheadMiddleware();
+		br = ServiceBroker.builder().monitor(new ConstantMonitor()).nodeID("local").build();
+		br.use(bh);
+		br.start();
+		SlowService service = new SlowService();
+		service.scheduler = br.getConfig().getScheduler();
+		br.createService(service);
+	}
+
+	// --- TEAR DOWN ---
+
+	@Override
+	protected void tearDown() throws Exception {
+		if (br != null) {
+			br.stop();
+		}
+	}
+
+}
\ No newline at end of file
@@ -0,0 +1,110 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2017 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.context;
+
+import java.lang.management.ManagementFactory;
+
+import io.datatree.Tree;
+import services.moleculer.ServiceBroker;
+import services.moleculer.service.Action;
+import services.moleculer.service.Name;
+import services.moleculer.service.Service;
+
+/**
+ * Measures the number of bytes allocated per local action call (requires a
+ * HotSpot-based JVM with thread allocation measurement support).
+ */
+public class ContextAllocationBenchmark {
+
+	// --- BENCHMARK PARAMETERS ---
+
+	static final int WARMUP = 200000;
+	static final int CALLS = 1000000;
+
+	public static void main(String[] args) throws Exception {
+		System.out.println("START");
+		try {
+			ServiceBroker broker = ServiceBroker.builder().build();
+			broker.createService(new MathService());
+			broker.start();
+
+			Tree params = new Tree();
+			params.put("a", 1);
+			params.put("b", 2);
+
+			benchmark("call with Tree", () -> {
+				broker.call("math.add", params);
+			});
+			benchmark("call without parameters", () -> {
+				broker.call("math.add");
+			});
+			benchmark("call with timeout", () -> {
+				broker.call("math.add", params, CallOptions.timeout(1000));
+			});
+			benchmark("nested calls with distributed timeout", () -> {
+				broker.call("math.nested", params, CallOptions.timeout(1000));
+			});
+
+			broker.stop();
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+		System.out.println("STOP");
+	}
+
+	static void benchmark(String mode, Runnable call) throws Exception {
+		com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory
+				.getThreadMXBean();
+		long threadID = Thread.currentThread().getId();
+
+		// Warm up
+		for (int i = 0; i < WARMUP; i++) {
+			call.run();
+		}
+
+		// Measure allocation
+		long before = bean.getThreadAllocatedBytes(threadID);
+		for (int i = 0; i < CALLS; i++) {
+			call.run();
+		}
+		long allocated = bean.getThreadAllocatedBytes(threadID) - before;
+		System.out.println(mode + ": " + (allocated / CALLS) + " bytes/call");
+	}
+
+	@Name("math")
+	public static class MathService extends Service {
+
+		public Action add = ctx -> {
+			return ctx.params;
+		};
+
+		public Action nested = ctx -> {
+			return ctx.call("math.add", ctx.params);
+		};
+
+	};
+
+}
\ No newline at end of file
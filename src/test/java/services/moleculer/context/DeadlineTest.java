@@ -0,0 +1,61 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2017 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.context;
+
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+public class DeadlineTest extends TestCase {
+
+	@Test
+	public void testDeadline() throws Exception {
+
+		// Remaining time
+		Deadline d1 = Deadline.after(1000);
+		long remaining = d1.remaining();
+		assertTrue(remaining > 900 && remaining <= 1000);
+		assertFalse(d1.isExpired());
+
+		// Timeout in monotonic milliseconds
+		long now = Deadline.currentTimeMillis();
+		long timeoutAt = d1.getTimeoutAt();
+		assertTrue(timeoutAt > now + 900 && timeoutAt <= now + 1001);
+
+		// Earliest deadline
+		Deadline d2 = Deadline.after(100);
+		assertTrue(d1.earliest(d2) == d2);
+		assertTrue(d2.earliest(d1) == d2);
+		assertTrue(d1.earliest(null) == d1);
+
+		// Expired deadline
+		Deadline d3 = Deadline.after(1);
+		Thread.sleep(20);
+		assertTrue(d3.isExpired());
+		assertTrue(d3.remaining() <= 0);
+	}
+
+}
\ No newline at end of file
@@ -0,0 +1,102 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2017 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.context;
+
+import org.junit.Test;
+
+import io.datatree.Tree;
+import junit.framework.TestCase;
+import services.moleculer.ServiceBroker;
+import services.moleculer.monitor.ConstantMonitor;
+import services.moleculer.service.Action;
+import services.moleculer.service.Name;
+import services.moleculer.service.Service;
+import services.moleculer.util.CommonUtils;
+import services.moleculer.util.ParseResult;
+
+public class NestedCallTest extends TestCase {
+
+	// --- VARIABLES ---
+
+	protected ServiceBroker br;
+
+	// --- TEST METHODS ---
+
+	@Test
+	public void testParseEmptyParams() throws Exception {
+		ParseResult res1 = CommonUtils.parseParams(new Object[0]);
+		ParseResult res2 = CommonUtils.parseParams(new Object[0]);
+		assertNotNull(res1.data);
+		assertTrue(res1.data.isEmpty());
+		assertNotSame(res1.data, res2.data);
+	}
+
+	@Test
+	public void testNoArgNestedCall() throws Exception {
+
+		// No-arg call -> no-arg nested call
+		Tree rsp = br.call("test.outer").waitFor(2000);
+		assertEquals("inner", rsp.asString());
+
+		// Meta of the parent is merged into the (empty) params
+		Tree params = new Tree();
+		params.getMeta().put("user", "admin");
+		rsp = br.call("test.outer", params).waitFor(2000);
+		assertEquals("admin", rsp.asString());
+	}
+
+	@Name("test")
+	protected static final class TestService extends Service {
+
+		public Action outer = ctx -> {
+			return ctx.call("test.inner");
+		};
+
+		public Action inner = ctx -> {
+			return ctx.params.getMeta().get("user", "inner");
+		};
+
+	}
+
+	// --- SET UP ---
+
+	@Override
+	protected void setUp() throws Exception {
+		br = ServiceBroker.builder().monitor(new ConstantMonitor()).nodeID("local").build();
+		br.start();
+		br.createService(new TestService());
+	}
+
+	// --- TEAR DOWN ---
+
+	@Override
+	protected void tearDown() throws Exception {
+		if (br != null) {
+			br.stop();
+		}
+	}
+
+}
\ No newline at end of file
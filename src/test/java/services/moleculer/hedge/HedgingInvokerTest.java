@@ -0,0 +1,215 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2017 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.hedge;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import io.datatree.Promise;
+import io.datatree.Tree;
+import junit.framework.TestCase;
+import services.moleculer.ServiceBroker;
+import services.moleculer.breaker.TestTransporter;
+import services.moleculer.monitor.ConstantMonitor;
+import services.moleculer.service.DefaultServiceRegistry;
+
+public class HedgingInvokerTest extends TestCase {
+
+	// --- VARIABLES ---
+
+	protected TestTransporter tr;
+	protected TestRegistry sr;
+	protected HedgingInvoker inv;
+	protected ServiceBroker br;
+
+	// --- TEST METHODS ---
+
+	@Test
+	public void testHedgedRequest() throws Exception {
+
+		// Measure the response times (no hedging)
+		for (int i = 0; i < 3; i++) {
+			Promise p = br.call("remote.action", new Tree());
+			assertEquals(1, tr.getMessageCount());
+			respond(tr.getMessages().get(0), "warmup");
+			assertEquals("warmup", p.waitFor(2000).asString());
+			tr.clearMessages();
+		}
+		assertEquals(0, inv.getHedgedRequests());
+
+		// The first request is slow
+		Promise p = br.call("remote.action", new Tree());
+		Tree first = tr.getMessages().get(0).clone();
+		String firstNode = getNodeID(first);
+
+		// No hedged request before the delay
+		Thread.sleep(100);
+		assertEquals(1, tr.getMessageCount());
+
+		// The hedged request goes to the other node
+		Tree second = waitForMessage(2);
+		assertNotNull(second);
+		String secondNode = getNodeID(second);
+		assertFalse(firstNode.equals(secondNode));
+		assertTrue("node2".equals(secondNode) || "node3".equals(secondNode));
+		assertFalse(first.get("id", "").equals(second.get("id", "")));
+		assertEquals(1, inv.getHedgedRequests());
+		assertTrue(sr.isPending(first.get("id", "")));
+		assertTrue(sr.isPending(second.get("id", "")));
+
+		// The first response wins (the slower request is deregistered)
+		respond(second, "hedged");
+		assertEquals("hedged", p.waitFor(2000).asString());
+		assertEquals(1, inv.getHedgedWins());
+		assertFalse(sr.isPending(first.get("id", "")));
+		assertFalse(sr.isPending(second.get("id", "")));
+
+		// The response of the slower request is ignored
+		respond(first, "slow");
+		Thread.sleep(200);
+		assertEquals("hedged", p.waitFor(2000).asString());
+		assertEquals(1, inv.getHedgedRequests());
+		assertEquals(1, inv.getHedgedWins());
+	}
+
+	@Test
+	public void testOriginalWins() throws Exception {
+		for (int i = 0; i < 3; i++) {
+			Promise p = br.call("remote.action", new Tree());
+			respond(tr.getMessages().get(0), "warmup");
+			p.waitFor(2000);
+			tr.clearMessages();
+		}
+
+		// Hedged request is sent, but the original response arrives first
+		Promise p = br.call("remote.action", new Tree());
+		Tree first = tr.getMessages().get(0).clone();
+		Tree second = waitForMessage(2);
+		assertNotNull(second);
+		respond(first, "original");
+		assertEquals("original", p.waitFor(2000).asString());
+		assertEquals(0, inv.getHedgedWins());
+
+		// The hedged request does not wait for its timeout
+		assertFalse(sr.isPending(first.get("id", "")));
+		assertFalse(sr.isPending(second.get("id", "")));
+	}
+
+	@Test
+	public void testFastResponse() throws Exception {
+		for (int i = 0; i < 3; i++) {
+			Promise p = br.call("remote.action", new Tree());
+			respond(tr.getMessages().get(0), "warmup");
+			p.waitFor(2000);
+			tr.clearMessages();
+		}
+
+		// Response arrives before the delay -> no hedged request
+		Promise p = br.call("remote.action", new Tree());
+		respond(tr.getMessages().get(0), "fast");
+		assertEquals("fast", p.waitFor(2000).asString());
+		Thread.sleep(400);
+		assertEquals(1, tr.getMessageCount());
+		assertEquals(0, inv.getHedgedRequests());
+		assertEquals(0, inv.getHedgedWins());
+	}
+
+	protected String getNodeID(Tree msg) {
+		String channel = msg.get("channel", "");
+		return channel.substring(channel.lastIndexOf('.') + 1);
+	}
+
+	protected Tree waitForMessage(int count) throws InterruptedException {
+		for (int i = 0; i < 20; i++) {
+			if (tr.getMessageCount() >= count) {
+				return tr.getMessages().get(count - 1).clone();
+			}
+			Thread.sleep(100);
+		}
+		return null;
+	}
+
+	protected void respond(Tree req, String data) throws Exception {
+		Tree rsp = new Tree();
+		rsp.put("ver", "3");
+		rsp.put("sender", getNodeID(req));
+		rsp.put("id", req.get("id", ""));
+		rsp.put("success", true);
+		rsp.put("data", data);
+		tr.received("MOL.RES.local", rsp);
+	}
+
+	protected static final class TestRegistry extends DefaultServiceRegistry {
+
+		protected boolean isPending(String id) {
+			return promises.containsKey(id);
+		}
+
+	}
+
+	// --- SET UP ---
+
+	@Override
+	protected void setUp() throws Exception {
+		sr = new TestRegistry();
+		tr = new TestTransporter();
+		inv = new HedgingInvoker();
+		inv.setMinSamples(3);
+		inv.setMinDelay(300);
+		br = ServiceBroker.builder().monitor(new ConstantMonitor()).registry(sr).transporter(tr).invoker(inv)
+				.nodeID("local").build();
+		br.start();
+		addAction("node2");
+		addAction("node3");
+		tr.clearMessages();
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	protected void addAction(String nodeID) throws Exception {
+		Tree root = new Tree();
+		Tree config = root.putMap(nodeID);
+		Tree actions = config.putMap("actions");
+		LinkedHashMap<String, Object> action = new LinkedHashMap<>();
+		action.put("name", "remote.action");
+		LinkedHashMap<String, Object> hedge = new LinkedHashMap<>();
+		hedge.put("percentile", 50);
+		action.put("hedge", hedge);
+		((Map) actions.asObject()).put("remote.action", action);
+		sr.addActions(nodeID, config);
+	}
+
+	// --- TEAR DOWN ---
+
+	@Override
+	protected void tearDown() throws Exception {
+		if (br != null) {
+			br.stop();
+		}
+	}
+
+}
\ No newline at end of file
@@ -0,0 +1,57 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2017 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.hedge;
+
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+public class LatencyTrackerTest extends TestCase {
+
+	// --- TEST METHODS ---
+
+	@Test
+	public void testPercentile() throws Exception {
+		LatencyTracker t = new LatencyTracker(100, 10);
+
+		// Not enough samples
+		assertEquals(-1, t.getPercentile(95, 20));
+
+		for (int i = 1; i <= 100; i++) {
+			t.add(i);
+		}
+		assertEquals(95, t.getPercentile(95, 20));
+		assertEquals(50, t.getPercentile(50, 20));
+		assertEquals(99, t.getPercentile(99, 20));
+
+		// Ring buffer (the oldest samples are overwritten)
+		for (int i = 0; i < 100; i++) {
+			t.add(1000);
+		}
+		assertEquals(1000, t.getPercentile(50, 20));
+	}
+
+}
\ No newline at end of file
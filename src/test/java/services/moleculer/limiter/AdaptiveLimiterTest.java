@@ -0,0 +1,197 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2017 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.limiter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import io.datatree.Promise;
+import io.datatree.Tree;
+import junit.framework.TestCase;
+import services.moleculer.ServiceBroker;
+import services.moleculer.breaker.TestTransporter;
+import services.moleculer.context.CallOptions;
+import services.moleculer.context.Context;
+import services.moleculer.context.DefaultContextFactory;
+import services.moleculer.monitor.ConstantMonitor;
+import services.moleculer.service.DefaultServiceRegistry;
+import services.moleculer.stream.PacketStream;
+
+public class AdaptiveLimiterTest extends TestCase {
+
+	// --- VARIABLES ---
+
+	protected TestTransporter tr;
+	protected DefaultServiceRegistry sr;
+	protected AdaptiveLimiter limiter;
+	protected TestContextFactory cf;
+	protected ServiceBroker br;
+
+	// --- TEST METHODS ---
+
+	@Test
+	public void testRelease() throws Exception {
+		ConcurrencyWindow window = limiter.getWindow("node2", "remote.action");
+
+		// Successful call
+		Promise p = br.call("remote.action", new Tree());
+		assertEquals(1, window.getInFlight());
+		createResponse(true);
+		p.waitFor(2000);
+		assertEquals(0, window.getInFlight());
+
+		// Failed call
+		p = br.call("remote.action", new Tree());
+		assertEquals(1, window.getInFlight());
+		createResponse(false);
+		try {
+			p.waitFor(2000);
+			fail();
+		} catch (Exception e) {
+
+			// Ok
+		}
+		assertEquals(0, window.getInFlight());
+	}
+
+	@Test
+	public void testContextFailure() throws Exception {
+		ConcurrencyWindow window = limiter.getWindow("node2", "remote.action");
+
+		// The Context cannot be created -> the action is not invoked
+		cf.fail = true;
+		for (int i = 0; i < 3; i++) {
+			try {
+				br.call("remote.action", new Tree()).waitFor(2000);
+				fail();
+			} catch (Exception e) {
+
+				// Ok
+			}
+			assertEquals(0, window.getInFlight());
+		}
+		assertEquals(0, tr.getMessageCount());
+
+		// The slot is free (limit = 1)
+		cf.fail = false;
+		Promise p = br.call("remote.action", new Tree());
+		assertEquals(1, window.getInFlight());
+		assertEquals(1, tr.getMessageCount());
+		createResponse(true);
+		p.waitFor(2000);
+		assertEquals(0, window.getInFlight());
+	}
+
+	@Test
+	public void testSaturated() throws Exception {
+		ConcurrencyWindow window = limiter.getWindow("node2", "remote.action");
+
+		// The window is full -> QueueIsFullError
+		Promise p1 = br.call("remote.action", new Tree());
+		assertEquals(1, window.getInFlight());
+		try {
+			br.call("remote.action", new Tree()).waitFor(2000);
+			fail();
+		} catch (Exception e) {
+
+			// Ok
+		}
+		assertEquals(1, window.getInFlight());
+		assertEquals(1, tr.getMessageCount());
+		createResponse(true);
+		p1.waitFor(2000);
+		assertEquals(0, window.getInFlight());
+	}
+
+	protected void createResponse(boolean success) throws Exception {
+		Tree msg = tr.getMessages().get(0);
+		Tree rsp = new Tree();
+		rsp.put("ver", "3");
+		rsp.put("sender", "node2");
+		rsp.put("id", msg.get("id", ""));
+		rsp.put("success", success);
+		rsp.put("data", (String) null);
+		if (!success) {
+			rsp.putMap("error").put("message", "Remote error");
+		}
+		tr.clearMessages();
+		tr.received("MOL.RES.local", rsp);
+	}
+
+	protected static final class TestContextFactory extends DefaultContextFactory {
+
+		protected volatile boolean fail;
+
+		@Override
+		public Context create(String name, Tree params, CallOptions.Options opts, PacketStream stream,
+				Context parent) {
+			if (fail) {
+				throw new IllegalStateException("Unable to create Context!");
+			}
+			return super.create(name, params, opts, stream, parent);
+		}
+
+	}
+
+	// --- SET UP ---
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	@Override
+	protected void setUp() throws Exception {
+		sr = new DefaultServiceRegistry();
+		tr = new TestTransporter();
+		limiter = new AdaptiveLimiter();
+		limiter.setInitialLimit(1);
+		limiter.setMinLimit(1);
+		limiter.setMaxLimit(1);
+		limiter.setMaxReroutes(0);
+		cf = new TestContextFactory();
+		br = ServiceBroker.builder().monitor(new ConstantMonitor()).registry(sr).transporter(tr).invoker(limiter)
+				.context(cf).nodeID("local").build();
+		br.start();
+
+		Tree root = new Tree();
+		Tree config = root.putMap("node2");
+		Tree actions = config.putMap("actions");
+		LinkedHashMap<String, Object> action = new LinkedHashMap<>();
+		action.put("name", "remote.action");
+		((Map) actions.asObject()).put("remote.action", action);
+		sr.addActions("node2", config);
+		tr.clearMessages();
+	}
+
+	// --- TEAR DOWN ---
+
+	@Override
+	protected void tearDown() throws Exception {
+		if (br != null) {
+			br.stop();
+		}
+	}
+
+}
\ No newline at end of file
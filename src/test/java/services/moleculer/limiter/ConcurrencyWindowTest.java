@@ -0,0 +1,97 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2017 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.limiter;
+
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+public class ConcurrencyWindowTest extends TestCase {
+
+	// --- TEST METHODS ---
+
+	@Test
+	public void testWindow() throws Exception {
+		ConcurrencyWindow w = new ConcurrencyWindow(4, 1, 100, 3, 6, 0.5, 1000);
+
+		// Window is full
+		for (int i = 0; i < 4; i++) {
+			assertTrue(w.tryAcquire());
+		}
+		assertFalse(w.tryAcquire());
+		assertEquals(4, w.getInFlight());
+
+		// Constant latency -> the limit grows
+		for (int i = 0; i < 4; i++) {
+			w.release(1000000, false);
+		}
+		assertEquals(0, w.getInFlight());
+		assertTrue(w.getLimit() > 4);
+		for (int n = 0; n < 50; n++) {
+			int limit = w.getLimit();
+			for (int i = 0; i < limit; i++) {
+				assertTrue(w.tryAcquire());
+			}
+			for (int i = 0; i < limit; i++) {
+				w.release(1000000, false);
+			}
+		}
+		int max = w.getLimit();
+		assertTrue(max > 40);
+
+		// Increasing latency (remote queue) -> the limit decreases
+		for (int n = 0; n < 20; n++) {
+			assertTrue(w.tryAcquire());
+			w.release(5000000, false);
+		}
+		assertTrue(w.getLimit() < max);
+
+		// Timeouts -> multiplicative decrease
+		int limit = w.getLimit();
+		assertTrue(w.tryAcquire());
+		w.release(0, true);
+		assertEquals(limit / 2, w.getLimit());
+		for (int i = 0; i < 20; i++) {
+			assertTrue(w.tryAcquire());
+			w.release(0, true);
+		}
+		assertEquals(1, w.getLimit());
+		assertEquals(0, w.getInFlight());
+	}
+
+	@Test
+	public void testIdleWindow() throws Exception {
+		ConcurrencyWindow w = new ConcurrencyWindow(10, 1, 100, 3, 6, 0.5, 1000);
+
+		// Sequential calls do not use the window -> the limit remains
+		for (int i = 0; i < 100; i++) {
+			assertTrue(w.tryAcquire());
+			w.release(1000000, false);
+		}
+		assertEquals(10, w.getLimit());
+	}
+
+}
\ No newline at end of file
@@ -0,0 +1,164 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2017 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import io.datatree.Tree;
+import junit.framework.TestCase;
+import services.moleculer.ServiceBroker;
+import services.moleculer.error.ServiceNotAvailableError;
+import services.moleculer.error.ServiceNotFoundError;
+import services.moleculer.monitor.ConstantMonitor;
+
+public class ActionHandleTest extends TestCase {
+
+	// --- VARIABLES ---
+
+	protected DefaultServiceRegistry sr;
+	protected ServiceBroker br;
+
+	// --- TEST METHODS ---
+
+	@Test
+	public void testResolve() throws Exception {
+		br.createService(new MathService());
+		ActionHandle handle = br.getActionHandle("math.add");
+
+		// Resolved on the first call
+		ActionEndpoint endpoint = handle.getAction(null);
+		assertTrue(endpoint instanceof LocalActionEndpoint);
+		ActionHandle.ResolvedStrategy resolved = handle.resolved;
+		assertNotNull(resolved);
+		assertEquals(sr.getVersion(), resolved.version);
+
+		// Unchanged registry -> cached strategy
+		handle.getAction(null);
+		assertSame(resolved, handle.resolved);
+		assertEquals(5, (int) handle.call("a", 2, "b", 3).waitFor().asInteger());
+		assertSame(resolved, handle.resolved);
+
+		// New remote endpoint -> resolved again
+		addRemoteAction("node2", "math.add");
+		endpoint = handle.getAction("node2");
+		assertTrue(endpoint instanceof RemoteActionEndpoint);
+		assertEquals("node2", endpoint.getNodeID());
+		assertNotSame(resolved, handle.resolved);
+		assertEquals(sr.getVersion(), handle.resolved.version);
+
+		// Removed endpoint
+		sr.removeActions("node2");
+		try {
+			handle.getAction("node2");
+			fail();
+		} catch (ServiceNotAvailableError expected) {
+		}
+		assertTrue(handle.getAction(null) instanceof LocalActionEndpoint);
+	}
+
+	@Test
+	public void testUnknownAction() throws Exception {
+		ActionHandle handle = br.getActionHandle("remote.action");
+		try {
+			handle.getAction(null);
+			fail();
+		} catch (ServiceNotFoundError expected) {
+		}
+
+		// The action becomes available later
+		addRemoteAction("node3", "remote.action");
+		ActionEndpoint endpoint = handle.getAction(null);
+		assertEquals("node3", endpoint.getNodeID());
+	}
+
+	@Test
+	public void testUnversionedRegistry() throws Exception {
+		br.stop();
+		sr = new DefaultServiceRegistry() {
+
+			@Override
+			public long getVersion() {
+				return -1;
+			}
+
+		};
+		br = ServiceBroker.builder().monitor(new ConstantMonitor()).registry(sr).nodeID("local").build();
+		br.start();
+		br.createService(new MathService());
+
+		// The action is looked up on every call
+		ActionHandle handle = br.getActionHandle("math.add");
+		assertTrue(handle.getAction(null) instanceof LocalActionEndpoint);
+		assertEquals(5, (int) handle.call("a", 2, "b", 3).waitFor().asInteger());
+		assertNull(handle.resolved);
+
+		addRemoteAction("node2", "math.add");
+		assertEquals("node2", handle.getAction("node2").getNodeID());
+		assertNull(handle.resolved);
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	protected void addRemoteAction(String nodeID, String name) {
+		Tree root = new Tree();
+		Tree config = root.putMap(nodeID);
+		Tree actions = config.putMap("actions");
+		LinkedHashMap<String, Object> action = new LinkedHashMap<>();
+		action.put("name", name);
+		((Map) actions.asObject()).put(name, action);
+		sr.addActions(nodeID, config);
+	}
+
+	@Name("math")
+	protected static final class MathService extends Service {
+
+		public Action add = ctx -> {
+			return ctx.params.get("a", 0) + ctx.params.get("b", 0);
+		};
+
+	}
+
+	// --- SET UP ---
+
+	@Override
+	protected void setUp() throws Exception {
+		sr = new DefaultServiceRegistry();
+		br = ServiceBroker.builder().monitor(new ConstantMonitor()).registry(sr).nodeID("local").build();
+		br.start();
+	}
+
+	// --- TEAR DOWN ---
+
+	@Override
+	protected void tearDown() throws Exception {
+		if (br != null) {
+			br.stop();
+		}
+	}
+
+}
\ No newline at end of file
@@ -0,0 +1,109 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2017 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.service;
+
+import java.util.LinkedList;
+
+import io.datatree.Promise;
+import services.moleculer.ServiceBroker;
+
+/**
+ * Throughput benchmark of "@Blocking" actions, invoked directly (on the
+ * caller's thread) and on virtual threads (or on a cached thread pool, when
+ * the JVM does not support virtual threads).
+ */
+public class BlockingActionBenchmark {
+
+	// --- BENCHMARK PARAMETERS ---
+
+	static final int WARMUP = 200;
+	static final int CALLS = 2000;
+	static final int WINDOW = 500;
+	static final long BLOCKING_TIME = 5;
+
+	public static void main(String[] args) throws Exception {
+		System.out.println("START");
+		try {
+			benchmark("direct invocation", false);
+			benchmark("virtual threads", true);
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+		System.out.println("STOP");
+	}
+
+	static void benchmark(String mode, boolean virtualThreads) throws Exception {
+
+		// Create Message Broker
+		ServiceBroker broker = ServiceBroker.builder().virtualThreads(virtualThreads).build();
+
+		// Deploy service
+		broker.createService(new BlockingService());
+
+		// Start Message Broker
+		broker.start();
+		if (virtualThreads) {
+			System.out.println("Executor: " + broker.getConfig().getBlockingExecutor().getClass().getName());
+		}
+
+		// Warm up
+		invoke(broker, WARMUP);
+
+		// Measure throughput
+		long start = System.nanoTime();
+		invoke(broker, CALLS);
+		long duration = System.nanoTime() - start;
+		System.out.println(mode + ": " + (CALLS * 1000000000L / duration) + " calls/sec");
+
+		// Stop Message Broker
+		broker.stop();
+	}
+
+	static void invoke(ServiceBroker broker, int calls) throws Exception {
+		LinkedList<Promise> window = new LinkedList<>();
+		for (int i = 0; i < calls; i++) {
+			window.addLast(broker.call("blocking.sleep", "a", i));
+			if (window.size() >= WINDOW) {
+				window.removeFirst().waitFor(10000);
+			}
+		}
+		for (Promise promise : window) {
+			promise.waitFor(10000);
+		}
+	}
+
+	@Name("blocking")
+	public static class BlockingService extends Service {
+
+		@Blocking
+		public Action sleep = ctx -> {
+			Thread.sleep(BLOCKING_TIME);
+			return ctx.params;
+		};
+
+	};
+
+}
\ No newline at end of file
@@ -0,0 +1,179 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2017 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.service;
+
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.junit.Test;
+
+import io.datatree.Promise;
+import io.datatree.Tree;
+import junit.framework.TestCase;
+import services.moleculer.ServiceBroker;
+import services.moleculer.cacher.Cache;
+import services.moleculer.context.CallOptions;
+import services.moleculer.monitor.ConstantMonitor;
+
+public class CoalescingTest extends TestCase {
+
+	// --- VARIABLES ---
+
+	protected DefaultServiceInvoker inv;
+	protected ServiceBroker br;
+	protected SlowService service;
+
+	// --- TEST METHODS ---
+
+	@Test
+	public void testCoalescing() throws Exception {
+
+		// Identical calls -> one invocation
+		Promise p1 = br.call("test.slow", "a", 1);
+		Promise p2 = br.call("test.slow", "a", 1);
+		waitForInvocations(1);
+		assertEquals(1, inv.inFlightCalls.size());
+
+		// Different params -> new invocation
+		Promise p3 = br.call("test.slow", "a", 2);
+		waitForInvocations(2);
+		assertEquals(2, inv.inFlightCalls.size());
+
+		// All callers receive the response
+		service.pending.get(0).complete(10);
+		assertEquals(10, (int) p1.waitFor(1000).asInteger());
+		assertEquals(10, (int) p2.waitFor(1000).asInteger());
+		assertFalse(p3.isDone());
+		service.pending.get(1).complete(20);
+		assertEquals(20, (int) p3.waitFor(1000).asInteger());
+
+		// Completed calls are removed
+		assertTrue(inv.inFlightCalls.isEmpty());
+		assertEquals(2, service.pending.size());
+	}
+
+	@Test
+	public void testError() throws Exception {
+		Promise p1 = br.call("test.slow", "a", 3);
+		Promise p2 = br.call("test.slow", "a", 3);
+		waitForInvocations(1);
+
+		// Both callers receive the error
+		service.pending.get(0).complete(new IllegalStateException("failed"));
+		assertTrue(isRejected(p1));
+		assertTrue(isRejected(p2));
+		assertTrue(inv.inFlightCalls.isEmpty());
+	}
+
+	@Test
+	public void testOwnTimeout() throws Exception {
+		Promise p1 = br.call("test.slow", "a", 4);
+		waitForInvocations(1);
+
+		// The second caller waits only 100 msec
+		long start = System.currentTimeMillis();
+		Promise p2 = br.call("test.slow", "a", 4, CallOptions.timeout(100));
+		assertTrue(isRejected(p2));
+		assertTrue(System.currentTimeMillis() - start < 2000);
+		assertFalse(p1.isDone());
+		assertEquals(1, service.pending.size());
+
+		service.pending.get(0).complete(40);
+		assertEquals(40, (int) p1.waitFor(1000).asInteger());
+		assertTrue(inv.inFlightCalls.isEmpty());
+	}
+
+	@Test
+	public void testMeta() throws Exception {
+		Tree params1 = new Tree();
+		params1.put("a", 5);
+		params1.getMeta().put("user", "user1");
+		Tree params2 = new Tree();
+		params2.put("a", 5);
+		params2.getMeta().put("user", "user2");
+
+		// Different meta -> separate calls
+		br.call("test.slow", params1);
+		br.call("test.slow", params2);
+		waitForInvocations(2);
+		assertEquals(2, inv.inFlightCalls.size());
+		service.pending.get(0).complete(50);
+		service.pending.get(1).complete(50);
+	}
+
+	protected boolean isRejected(Promise promise) {
+		try {
+			promise.waitFor(2000);
+		} catch (Exception expected) {
+			return true;
+		}
+		return false;
+	}
+
+	protected void waitForInvocations(int invocations) throws InterruptedException {
+		for (int i = 0; i < 20 && service.pending.size() < invocations; i++) {
+			Thread.sleep(100);
+		}
+		assertEquals(invocations, service.pending.size());
+	}
+
+	@Name("test")
+	protected static final class SlowService extends Service {
+
+		protected final List<Promise> pending = Collections.synchronizedList(new LinkedList<>());
+
+		@Cache(keys = { "a" })
+		public Action slow = ctx -> {
+			Promise promise = new Promise();
+			pending.add(promise);
+			return promise;
+		};
+
+	}
+
+	// --- SET UP ---
+
+	@Override
+	protected void setUp() throws Exception {
+		inv = new DefaultServiceInvoker();
+		inv.setCoalesceCalls(true);
+		br = ServiceBroker.builder().monitor(new ConstantMonitor()).invoker(inv).nodeID("local").build();
+		br.start();
+		service = new SlowService();
+		br.createService(service);
+	}
+
+	// --- TEAR DOWN ---
+
+	@Override
+	protected void tearDown() throws Exception {
+		if (br != null) {
+			br.stop();
+		}
+	}
+
+}
\ No newline at end of file
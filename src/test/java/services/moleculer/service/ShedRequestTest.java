@@ -0,0 +1,161 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2017 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.service;
+
+import static services.moleculer.ServiceBroker.PROTOCOL_VERSION;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import io.datatree.Tree;
+import junit.framework.TestCase;
+import services.moleculer.ServiceBroker;
+import services.moleculer.breaker.TestTransporter;
+import services.moleculer.context.Deadline;
+import services.moleculer.monitor.ConstantMonitor;
+
+public class ShedRequestTest extends TestCase {
+
+	// --- VARIABLES ---
+
+	protected TestTransporter tr;
+	protected DefaultServiceRegistry sr;
+	protected ServiceBroker br;
+	protected TestService service;
+
+	// --- TEST METHODS ---
+
+	@Test
+	public void testExpiredInQueue() throws Exception {
+
+		// Timeout expired while the request was waiting in the queue
+		long receivedAt = Deadline.currentTimeMillis() - 1000;
+		sr.receiveRequest(createRequest("1", 1000), receivedAt);
+		Tree rsp = waitForMessage("MOL.RES.node2");
+		assertNotNull(rsp);
+		assertFalse(rsp.get("success", true));
+		assertEquals("RequestSkippedError", rsp.get("error.name", ""));
+		assertEquals(1, sr.getShedRequests());
+		assertEquals(0, service.invocations);
+
+		// Shedding disabled -> the action is invoked
+		tr.clearMessages();
+		sr.setShedExpiredRequests(false);
+		sr.receiveRequest(createRequest("2", 1000), receivedAt);
+		for (int i = 0; i < 20 && service.invocations == 0; i++) {
+			Thread.sleep(100);
+		}
+		assertEquals(1, sr.getShedRequests());
+		assertEquals(1, service.invocations);
+	}
+
+	@Test
+	public void testRemainingTimeout() throws Exception {
+
+		// 400 msec spent in the queue
+		long receivedAt = Deadline.currentTimeMillis() - 400;
+		sr.receiveRequest(createRequest("3", 1000), receivedAt);
+
+		// The nested call gets the remaining time only
+		Tree req = waitForMessage("MOL.REQ.node3");
+		assertNotNull(req);
+		int timeout = req.get("timeout", 0);
+		assertTrue(timeout > 0);
+		assertTrue(timeout <= 600);
+		assertEquals(0, sr.getShedRequests());
+		assertEquals(1, service.invocations);
+	}
+
+	protected Tree createRequest(String id, int timeout) {
+		Tree req = new Tree();
+		req.put("ver", PROTOCOL_VERSION);
+		req.put("sender", "node2");
+		req.put("id", id);
+		req.put("action", "test.forward");
+		req.put("timeout", timeout);
+		req.putMap("params").put("a", 1);
+		return req;
+	}
+
+	protected Tree waitForMessage(String channel) throws InterruptedException {
+		for (int i = 0; i < 20; i++) {
+			for (Tree message : tr.getMessages()) {
+				if (channel.equals(message.get("channel", ""))) {
+					return message;
+				}
+			}
+			Thread.sleep(100);
+		}
+		return null;
+	}
+
+	@Name("test")
+	protected static final class TestService extends Service {
+
+		protected volatile int invocations;
+
+		public Action forward = ctx -> {
+			invocations++;
+			return ctx.call("remote.action", ctx.params);
+		};
+
+	}
+
+	// --- SET UP ---
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	@Override
+	protected void setUp() throws Exception {
+		sr = new DefaultServiceRegistry();
+		tr = new TestTransporter();
+		br = ServiceBroker.builder().monitor(new ConstantMonitor()).registry(sr).transporter(tr).nodeID("local")
+				.build();
+		br.start();
+		service = new TestService();
+		br.createService(service);
+
+		Tree root = new Tree();
+		Tree config = root.putMap("node3");
+		Tree actions = config.putMap("actions");
+		LinkedHashMap<String, Object> action = new LinkedHashMap<>();
+		action.put("name", "remote.action");
+		((Map) actions.asObject()).put("remote.action", action);
+		sr.addActions("node3", config);
+		tr.clearMessages();
+	}
+
+	// --- TEAR DOWN ---
+
+	@Override
+	protected void tearDown() throws Exception {
+		if (br != null) {
+			br.stop();
+		}
+	}
+
+}
\ No newline at end of file
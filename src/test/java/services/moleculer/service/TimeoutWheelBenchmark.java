@@ -0,0 +1,129 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2017 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.service;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+
+import io.datatree.Promise;
+
+/**
+ * Compares the timing wheel of the DefaultServiceRegistry with the previous
+ * timeout handling (scanning all pending promises on every timer event). The
+ * clock is simulated, so the benchmark measures only the CPU cost of the
+ * registration, completion and expiration of the pending calls.
+ */
+public class TimeoutWheelBenchmark {
+
+	// --- BENCHMARK PARAMETERS ---
+
+	static final int PENDING = 50000;
+	static final int ROUNDS = 10;
+	static final long TICK = 100;
+	static final long MAX_TIMEOUT = 10000;
+
+	public static void main(String[] args) throws Exception {
+		System.out.println("START");
+		try {
+			for (int i = 0; i < ROUNDS; i++) {
+				long scan = benchmark(false);
+				long wheel = benchmark(true);
+				System.out.println("scanning: " + scan / 1000000 + " msec, timing wheel: " + wheel / 1000000 + " msec");
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+		System.out.println("STOP");
+	}
+
+	static long benchmark(boolean useWheel) {
+		ConcurrentHashMap<String, PendingPromise> promises = new ConcurrentHashMap<>(1024);
+		TimeoutWheel wheel = new TimeoutWheel(promises, 512, TICK);
+		long now = 1000000;
+		long start = System.nanoTime();
+
+		// Register calls (every second call is completed before its timeout)
+		for (int i = 0; i < PENDING; i++) {
+			String id = Integer.toString(i);
+			long timeoutAt = now + 1 + (i * 7919L) % MAX_TIMEOUT;
+			promises.put(id, new PendingPromise(new Promise(), timeoutAt));
+			if (useWheel) {
+				wheel.add(id, timeoutAt);
+			} else {
+				scanMinimum(promises, timeoutAt);
+			}
+		}
+
+		// Simulated timer events
+		int completed = 0;
+		long end = now + MAX_TIMEOUT + TICK;
+		for (; now <= end; now += TICK) {
+			for (int n = 0; n < PENDING / 200 && completed < PENDING; n++, completed += 2) {
+				promises.remove(Integer.toString(completed));
+			}
+			if (useWheel) {
+				wheel.expire(now, now);
+			} else if (scanExpired(promises, now)) {
+				scanMinimum(promises, Long.MAX_VALUE);
+			}
+		}
+		long duration = System.nanoTime() - start;
+		if (!promises.isEmpty()) {
+			throw new IllegalStateException(promises.size() + " calls not expired!");
+		}
+		return duration;
+	}
+
+	// --- PREVIOUS IMPLEMENTATION ---
+
+	static boolean scanExpired(ConcurrentHashMap<String, PendingPromise> promises, long now) {
+		PendingPromise pending;
+		Iterator<PendingPromise> i = promises.values().iterator();
+		boolean removed = false;
+		while (i.hasNext()) {
+			pending = i.next();
+			if (pending.timeoutAt > 0 && now >= pending.timeoutAt) {
+				pending.promise.complete(new TimeoutException("Action invocation timeouted!"));
+				i.remove();
+				removed = true;
+			}
+		}
+		return removed;
+	}
+
+	static long scanMinimum(ConcurrentHashMap<String, PendingPromise> promises, long minTimeoutAt) {
+		if (minTimeoutAt == Long.MAX_VALUE) {
+			for (PendingPromise pending : promises.values()) {
+				if (pending.timeoutAt > 0 && pending.timeoutAt < minTimeoutAt) {
+					minTimeoutAt = pending.timeoutAt;
+				}
+			}
+		}
+		return minTimeoutAt;
+	}
+
+}
\ No newline at end of file
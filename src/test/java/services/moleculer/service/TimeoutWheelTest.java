@@ -0,0 +1,196 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2017 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.service;
+
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.Test;
+
+import io.datatree.Promise;
+import junit.framework.TestCase;
+
+public class TimeoutWheelTest extends TestCase {
+
+	// --- CONSTANTS ---
+
+	/**
+	 * Simulated start time (a multiple of the tick time)
+	 */
+	protected static final long T = 1000000;
+
+	// --- VARIABLES ---
+
+	protected ConcurrentHashMap<String, PendingPromise> promises;
+	protected TimeoutWheel wheel;
+
+	// --- TEST METHODS ---
+
+	@Test
+	public void testExpire() throws Exception {
+		assertEquals(T + 300, add("a", T + 250));
+		assertEquals(0, add("b", T + 300));
+		assertEquals(0, add("c", T + 400));
+
+		// Timer of the first bucket
+		assertEquals(T + 400, wheel.expire(T + 300, T + 300));
+		assertFalse(promises.containsKey("a"));
+		assertFalse(promises.containsKey("b"));
+		assertTrue(promises.containsKey("c"));
+
+		// Last bucket
+		assertEquals(0, wheel.expire(T + 400, T + 400));
+		assertTrue(promises.isEmpty());
+		assertEmpty();
+	}
+
+	@Test
+	public void testCompleted() throws Exception {
+		assertEquals(T + 500, add("a", T + 500));
+		assertEquals(0, add("b", T + 500));
+		assertEquals(0, add("c", T + 900));
+
+		// Response received before the timeout
+		promises.remove("a");
+		assertEquals(T + 900, wheel.expire(T + 500, T + 500));
+		assertFalse(promises.containsKey("b"));
+		assertTrue(promises.containsKey("c"));
+
+		// All calls completed -> no more timer
+		promises.remove("c");
+		assertEquals(0, wheel.expire(T + 900, T + 900));
+		assertEmpty();
+	}
+
+	@Test
+	public void testLongTimeout() throws Exception {
+
+		// Three and a half rounds (the wheel covers 6400 msec)
+		long timeoutAt = T + 22400;
+		long deadline = add("a", timeoutAt);
+		assertEquals(timeoutAt, deadline);
+
+		// Timer of another call (the bucket of "a" is checked once per round)
+		deadline = wheel.expire(T + 100, T + 100);
+		assertEquals(T + 3200, deadline);
+		int timers = 0;
+		while (deadline < timeoutAt) {
+			deadline = wheel.expire(deadline, deadline);
+			assertTrue(promises.containsKey("a"));
+			timers++;
+		}
+		assertEquals(3, timers);
+		assertEquals(timeoutAt, deadline);
+
+		// Timer of the deadline
+		assertEquals(0, wheel.expire(timeoutAt, deadline));
+		assertFalse(promises.containsKey("a"));
+		assertEmpty();
+	}
+
+	@Test
+	public void testStaleTimer() throws Exception {
+		long d1 = add("a", T + 1000);
+		assertEquals(T + 1000, d1);
+
+		// Earlier deadline -> new timer (the first one becomes outdated)
+		long d2 = add("b", T + 500);
+		assertEquals(T + 500, d2);
+
+		// The outdated timer does not cancel the current one
+		assertEquals(0, wheel.expire(T + 100, d1));
+		assertEquals(0, add("c", T + 700));
+		assertEquals(3, promises.size());
+
+		// Current timer
+		assertEquals(T + 700, wheel.expire(T + 500, d2));
+		assertFalse(promises.containsKey("b"));
+
+		// Outdated timer fires after the bucket has been rescheduled (the
+		// timer of "c" is still scheduled)
+		assertEquals(0, wheel.expire(T + 600, d1));
+		assertTrue(promises.containsKey("a"));
+		assertTrue(promises.containsKey("c"));
+
+		assertEquals(T + 1000, wheel.expire(T + 700, T + 700));
+		assertFalse(promises.containsKey("c"));
+		assertEquals(0, wheel.expire(T + 1000, T + 1000));
+		assertTrue(promises.isEmpty());
+	}
+
+	@Test
+	public void testClear() throws Exception {
+		assertEquals(T + 300, add("a", T + 300));
+		assertEquals(0, add("b", T + 800));
+		wheel.expire(T + 100, T + 300);
+		add("c", T + 900);
+
+		// Stop registry
+		wheel.clear();
+		promises.clear();
+		assertEmpty();
+		assertTrue(wheel.registered.isEmpty());
+
+		// The next call schedules a new timer
+		assertEquals(T + 1200, add("d", T + 1200));
+		assertEquals(0, wheel.expire(T + 1200, T + 1200));
+		assertTrue(promises.isEmpty());
+	}
+
+	@Test
+	public void testInvalidParameters() throws Exception {
+		try {
+			new TimeoutWheel(promises, 100, 100);
+			fail();
+		} catch (IllegalArgumentException expected) {
+		}
+		try {
+			new TimeoutWheel(promises, 64, 0);
+			fail();
+		} catch (IllegalArgumentException expected) {
+		}
+	}
+
+	protected long add(String id, long timeoutAt) {
+		promises.put(id, new PendingPromise(new Promise(), timeoutAt));
+		return wheel.add(id, timeoutAt);
+	}
+
+	protected void assertEmpty() {
+		for (ArrayList<String> bucket : wheel.buckets) {
+			assertTrue(bucket.isEmpty());
+		}
+	}
+
+	// --- SET UP ---
+
+	@Override
+	protected void setUp() throws Exception {
+		promises = new ConcurrentHashMap<>();
+		wheel = new TimeoutWheel(promises, 64, 100);
+	}
+
+}
\ No newline at end of file
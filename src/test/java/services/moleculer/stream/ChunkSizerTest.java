@@ -0,0 +1,81 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2017 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.stream;
+
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+public class ChunkSizerTest extends TestCase {
+
+	@Test
+	public void testChunkSizer() throws Exception {
+
+		// Throughput grows up to 64 KBytes
+		ChunkSizer sizer = new ChunkSizer(16 * 1024, 1024 * 1024);
+		assertEquals(16 * 1024, sizer.getSize());
+		while (!sizer.isSettled()) {
+			int size = sizer.getSize();
+			sizer.sent(size, nanos(size, 64 * 1024));
+		}
+		assertEquals(64 * 1024, sizer.getSize());
+
+		// Constant throughput
+		sizer = new ChunkSizer(16 * 1024, 1024 * 1024);
+		while (!sizer.isSettled()) {
+			int size = sizer.getSize();
+			sizer.sent(size, size);
+		}
+		assertEquals(16 * 1024, sizer.getSize());
+
+		// Upper limit
+		sizer = new ChunkSizer(16 * 1024, 100 * 1024);
+		while (!sizer.isSettled()) {
+			int size = sizer.getSize();
+			sizer.sent(size, nanos(size, Integer.MAX_VALUE));
+		}
+		assertEquals(100 * 1024, sizer.getSize());
+
+		// Fixed size
+		sizer = new ChunkSizer(1024, 1024);
+		assertTrue(sizer.isSettled());
+		assertEquals(1024, sizer.getSize());
+	}
+
+	/**
+	 * Simulated transfer time: constant overhead per chunk (the throughput
+	 * grows with the chunk size up to the specified limit).
+	 */
+	protected static long nanos(int size, int limit) {
+		long overhead = 100000;
+		long time = size + overhead;
+		if (size > limit) {
+			time = time * size / limit;
+		}
+		return time;
+	}
+
+}
\ No newline at end of file
@@ -0,0 +1,126 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2017 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.stream;
+
+import java.util.LinkedList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import io.datatree.Tree;
+import junit.framework.TestCase;
+import services.moleculer.context.Context;
+
+public class DuplexStreamTest extends TestCase {
+
+	@Test
+	public void testTransferToStream() throws Exception {
+		PacketStream source = new PacketStream(null);
+		AtomicLong released = new AtomicLong();
+		source.releaseHandler = released::addAndGet;
+		source.sendData(new byte[10]);
+
+		// Bytes are released by the destination's consumer
+		PacketStream destination = new PacketStream(null);
+		source.transferTo(destination);
+		assertEquals(0, released.get());
+
+		LinkedList<byte[]> received = new LinkedList<>();
+		boolean[] closed = new boolean[1];
+		destination.onPacket((bytes, cause, close) -> {
+			if (bytes != null) {
+				received.add(bytes);
+			}
+			if (close) {
+				closed[0] = true;
+			}
+		});
+		assertEquals(1, received.size());
+		assertEquals(10, released.get());
+
+		source.sendData(new byte[5]);
+		assertEquals(2, received.size());
+		assertEquals(15, released.get());
+
+		source.sendClose();
+		assertTrue(closed[0]);
+		assertTrue(destination.isClosed());
+	}
+
+	@Test
+	public void testDuplex() throws Exception {
+
+		// Caller -> action
+		PacketStream request = new PacketStream(null);
+
+		// Action -> caller
+		PacketStream response = new PacketStream(null);
+
+		DuplexStream caller = new DuplexStream(response, request);
+		DuplexStream action = new DuplexStream(request, response);
+
+		// Echo
+		action.getInput().onPacket((bytes, cause, close) -> {
+			if (bytes != null) {
+				action.getOutput().sendData(bytes);
+			}
+			if (close) {
+				action.sendClose();
+			}
+		});
+		LinkedList<byte[]> received = new LinkedList<>();
+		caller.getInput().onPacket((bytes, cause, close) -> {
+			if (bytes != null) {
+				received.add(bytes);
+			}
+		});
+		caller.getOutput().sendData(new byte[] { 1 });
+		caller.getOutput().sendData(new byte[] { 2 });
+		assertEquals(2, received.size());
+		assertEquals(2, received.getLast()[0]);
+		assertFalse(caller.isClosed());
+
+		caller.sendClose();
+		assertTrue(caller.isClosed());
+		assertTrue(action.isClosed());
+	}
+
+	@Test
+	public void testStreamInParams() throws Exception {
+		Context ctx = new Context(null, null, "id1", "test.action", new Tree(), null, null);
+		try {
+			ctx.openDuplexStream("chat.join", new PacketStream(null));
+			fail();
+		} catch (IllegalArgumentException expected) {
+		}
+		try {
+			ctx.openDuplexStream("chat.join", "room", "lobby", new PacketStream(null));
+			fail();
+		} catch (IllegalArgumentException expected) {
+		}
+	}
+
+}
\ No newline at end of file
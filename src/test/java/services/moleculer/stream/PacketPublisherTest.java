@@ -0,0 +1,229 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2017 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.stream;
+
+import java.util.LinkedList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import junit.framework.TestCase;
+
+public class PacketPublisherTest extends TestCase {
+
+	@Test
+	public void testPublisher() throws Exception {
+		PacketStream stream = new PacketStream(null);
+		AtomicLong released = new AtomicLong();
+		stream.releaseHandler = released::addAndGet;
+
+		// Buffered packets
+		for (int i = 0; i < 5; i++) {
+			stream.sendData(new byte[10]);
+		}
+		assertEquals(0, released.get());
+
+		// Request two packets
+		TestSubscriber subscriber = new TestSubscriber(2);
+		stream.asPublisher().subscribe(subscriber);
+		assertEquals(2, subscriber.packets.size());
+		assertEquals(20, released.get());
+
+		// Request the rest
+		subscriber.subscription.request(10);
+		assertEquals(5, subscriber.packets.size());
+		assertEquals(50, released.get());
+		assertFalse(subscriber.completed);
+
+		// Released when requested
+		stream.sendData(new byte[10]);
+		assertEquals(6, subscriber.packets.size());
+		assertEquals(60, released.get());
+		subscriber.subscription.request(1);
+		stream.sendClose();
+		assertTrue(subscriber.completed);
+		assertNull(subscriber.error);
+
+		// Only one Subscriber allowed
+		TestSubscriber second = new TestSubscriber(1);
+		stream.asPublisher().subscribe(second);
+		assertTrue(second.error instanceof IllegalStateException);
+
+		// Invalid request
+		stream = new PacketStream(null);
+		subscriber = new TestSubscriber(0);
+		stream.asPublisher().subscribe(subscriber);
+		subscriber.subscription.request(-1);
+		assertTrue(subscriber.error instanceof IllegalArgumentException);
+
+		// Error
+		stream = new PacketStream(null);
+		subscriber = new TestSubscriber(1);
+		stream.asPublisher().subscribe(subscriber);
+		stream.sendError(new Exception("test"));
+		assertEquals("test", subscriber.error.getMessage());
+	}
+
+	@Test
+	public void testSubscriber() throws Exception {
+		PacketStream stream = new PacketStream(null);
+		LinkedList<byte[]> received = new LinkedList<>();
+		boolean[] closed = new boolean[1];
+		stream.onPacket((bytes, cause, close) -> {
+			if (bytes != null) {
+				received.add(bytes);
+			}
+			if (close) {
+				closed[0] = true;
+			}
+		});
+		TestPublisher publisher = new TestPublisher(20);
+		publisher.subscribe(stream.asSubscriber());
+		assertEquals(20, received.size());
+		assertTrue(closed[0]);
+	}
+
+	@Test
+	public void testDemand() throws Exception {
+
+		// Publisher -> PacketStream -> Subscriber
+		PacketStream stream = new PacketStream(null);
+		TestPublisher publisher = new TestPublisher(100);
+		publisher.subscribe(stream.asSubscriber());
+
+		// Nothing is requested (prefetch only)
+		assertEquals(PacketSubscriber.PREFETCH, publisher.emitted);
+
+		// Subscriber requests packets one by one
+		TestSubscriber subscriber = new TestSubscriber(1);
+		stream.asPublisher().subscribe(subscriber);
+		assertEquals(1, subscriber.packets.size());
+		for (int i = 2; i <= 100; i++) {
+			subscriber.subscription.request(1);
+			assertEquals(i, subscriber.packets.size());
+			assertTrue(publisher.emitted - i <= PacketSubscriber.PREFETCH);
+		}
+		subscriber.subscription.request(1);
+		assertTrue(subscriber.completed);
+	}
+
+	// --- TEST SUBSCRIBER ---
+
+	protected static class TestSubscriber implements Subscriber<byte[]> {
+
+		protected final long initialRequest;
+
+		protected final LinkedList<byte[]> packets = new LinkedList<>();
+
+		protected Subscription subscription;
+
+		protected boolean completed;
+
+		protected Throwable error;
+
+		protected TestSubscriber(long initialRequest) {
+			this.initialRequest = initialRequest;
+		}
+
+		@Override
+		public void onSubscribe(Subscription subscription) {
+			this.subscription = subscription;
+			if (initialRequest > 0) {
+				subscription.request(initialRequest);
+			}
+		}
+
+		@Override
+		public void onNext(byte[] bytes) {
+			packets.add(bytes);
+		}
+
+		@Override
+		public void onError(Throwable error) {
+			this.error = error;
+		}
+
+		@Override
+		public void onComplete() {
+			completed = true;
+		}
+
+	}
+
+	// --- TEST PUBLISHER ---
+
+	protected static class TestPublisher implements Publisher<byte[]> {
+
+		protected final int count;
+
+		protected int emitted;
+
+		protected long requested;
+
+		protected boolean emitting;
+
+		protected TestPublisher(int count) {
+			this.count = count;
+		}
+
+		@Override
+		public void subscribe(Subscriber<? super byte[]> subscriber) {
+			subscriber.onSubscribe(new Subscription() {
+
+				@Override
+				public final void request(long n) {
+					requested += n;
+					if (emitting) {
+						return;
+					}
+					emitting = true;
+					while (requested > 0 && emitted < count) {
+						requested--;
+						emitted++;
+						subscriber.onNext(new byte[] { (byte) emitted });
+					}
+					emitting = false;
+					if (emitted == count) {
+						emitted++;
+						subscriber.onComplete();
+						emitted--;
+					}
+				}
+
+				@Override
+				public final void cancel() {
+					requested = 0;
+				}
+
+			});
+		}
+
+	}
+
+}
\ No newline at end of file
@@ -0,0 +1,64 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2017 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.stream;
+
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+public class StreamBufferQuotaTest extends TestCase {
+
+	@Test
+	public void testQuota() throws Exception {
+		StreamBufferQuota quota = new StreamBufferQuota(300, 200);
+
+		// Per-node limit
+		assertTrue(quota.acquire("node1", 150));
+		assertFalse(quota.acquire("node1", 100));
+		assertEquals(150, quota.getBytes("node1"));
+		assertEquals(150, quota.getBytes());
+
+		// Global limit
+		assertTrue(quota.acquire("node2", 150));
+		assertFalse(quota.acquire("node3", 10));
+		assertEquals(0, quota.getBytes("node3"));
+		assertEquals(300, quota.getBytes());
+
+		// Release
+		quota.release("node1", 150);
+		assertEquals(0, quota.getBytes("node1"));
+		assertEquals(150, quota.getBytes());
+		assertTrue(quota.acquire("node3", 10));
+		assertEquals(160, quota.getBytes());
+
+		// Unlimited
+		quota = new StreamBufferQuota(0, 0);
+		assertTrue(quota.acquire("node1", Integer.MAX_VALUE));
+		assertTrue(quota.acquire(null, Integer.MAX_VALUE));
+		assertEquals(2L * Integer.MAX_VALUE, quota.getBytes());
+	}
+
+}
\ No newline at end of file
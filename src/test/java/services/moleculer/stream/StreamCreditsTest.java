@@ -0,0 +1,189 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2017 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.stream;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import io.datatree.Promise;
+import junit.framework.TestCase;
+
+public class StreamCreditsTest extends TestCase {
+
+	@Test
+	public void testCredits() throws Exception {
+		StreamCredits credits = new StreamCredits(100, 200);
+
+		// Use the initial window (the last chunk overdraws it)
+		credits.acquire(60);
+		credits.acquire(60);
+		assertEquals(-20, credits.getCredits());
+
+		// Timeout
+		long start = System.currentTimeMillis();
+		try {
+			credits.acquire(10);
+			fail();
+		} catch (IOException expected) {
+		}
+		assertTrue(System.currentTimeMillis() - start >= 150);
+
+		// Blocked sender, released by a grant
+		AtomicLong sent = new AtomicLong();
+		Thread sender = new Thread(() -> {
+			try {
+				credits.acquire(50);
+				sent.set(50);
+			} catch (IOException cause) {
+				cause.printStackTrace();
+			}
+		});
+		sender.start();
+		Thread.sleep(50);
+		assertEquals(0, sent.get());
+		credits.grant(70);
+		sender.join(1000);
+		assertEquals(50, sent.get());
+		assertEquals(0, credits.getCredits());
+
+		// Closed by the receiver
+		credits.close();
+		try {
+			credits.acquire(10);
+			fail();
+		} catch (IOException expected) {
+		}
+	}
+
+	@Test
+	public void testPause() throws Exception {
+		StreamCredits credits = new StreamCredits(100, 200);
+		AtomicInteger resumed = new AtomicInteger();
+		Runnable resume = resumed::incrementAndGet;
+
+		// Writable while there are credits
+		assertTrue(credits.isWritable(resume));
+		credits.acquire(120);
+		assertFalse(credits.isWritable(resume));
+
+		// Not enough credits -> still paused
+		credits.grant(10);
+		assertEquals(0, resumed.get());
+
+		// The grant resumes the transfer (only once)
+		credits.grant(50);
+		assertEquals(1, resumed.get());
+		credits.grant(50);
+		assertEquals(1, resumed.get());
+		assertTrue(credits.isWritable(resume));
+
+		// Timeout
+		credits.acquire(100);
+		assertFalse(credits.isWritable(resume));
+		credits.checkTimeout(System.nanoTime());
+		assertEquals(1, resumed.get());
+		credits.checkTimeout(System.nanoTime() + 300 * 1000000L);
+		assertEquals(2, resumed.get());
+		assertTrue(credits.isWritable(resume));
+		try {
+			credits.acquire(10);
+			fail();
+		} catch (IOException expected) {
+		}
+
+		// Closed by the receiver
+		credits = new StreamCredits(0, 200);
+		assertFalse(credits.isWritable(resume));
+		credits.close();
+		assertEquals(3, resumed.get());
+	}
+
+	@Test
+	public void testPausedTransfer() throws Exception {
+		ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+		try {
+			PacketStream stream = new PacketStream(scheduler);
+			stream.setPacketSize(10);
+			AtomicLong received = new AtomicLong();
+			AtomicBoolean writable = new AtomicBoolean(true);
+			AtomicReference<Runnable> paused = new AtomicReference<>();
+			stream.onPacket(new PacketListener() {
+
+				@Override
+				public void onPacket(byte[] bytes, Throwable cause, boolean close) throws IOException {
+					if (bytes != null) {
+						received.addAndGet(bytes.length);
+						if (received.get() >= 50) {
+							writable.set(false);
+						}
+					}
+				}
+
+				@Override
+				public boolean isWritable(Runnable resume) {
+					if (writable.get()) {
+						return true;
+					}
+					paused.set(resume);
+					return false;
+				}
+
+			});
+			Promise promise = stream.transferFrom(new ByteArrayInputStream(new byte[100]));
+
+			// The transfer pauses without blocking the scheduler
+			for (int i = 0; i < 20 && paused.get() == null; i++) {
+				Thread.sleep(50);
+			}
+			assertNotNull(paused.get());
+			assertEquals(50, received.get());
+			AtomicBoolean free = new AtomicBoolean();
+			scheduler.submit(() -> free.set(true)).get();
+			assertTrue(free.get());
+			assertFalse(promise.isDone());
+
+			// Resume
+			writable.set(true);
+			paused.get().run();
+			for (int i = 0; i < 20 && !stream.isClosed(); i++) {
+				Thread.sleep(50);
+			}
+			assertEquals(100, received.get());
+			assertTrue(stream.isClosed());
+		} finally {
+			scheduler.shutdownNow();
+		}
+	}
+
+}
\ No newline at end of file
@@ -0,0 +1,170 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2017 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.stream;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import io.datatree.Promise;
+import io.datatree.Tree;
+import services.moleculer.ServiceBroker;
+import services.moleculer.monitor.ConstantMonitor;
+import services.moleculer.service.Action;
+import services.moleculer.service.Name;
+import services.moleculer.service.Service;
+import services.moleculer.transporter.TcpTransporter;
+
+/**
+ * File transfer throughput benchmark of streams over TcpTransporter (with
+ * NodeJS compatible byte-array and compact Base64 chunk encoding, and with
+ * zero-copy binary frames of a file). Measures the throughput of file
+ * transfers with fixed and adaptive chunk sizes.
+ */
+public class StreamTransferBenchmark {
+
+	// --- BENCHMARK PARAMETERS ---
+
+	static final int TRANSFER_SIZE = 64 * 1024 * 1024;
+	static final int CHUNK_SIZE = 1024 * 1024;
+	static final int MAX_PACKET_SIZE = 16 * 1024 * 1024;
+	static final int[] CHUNK_SIZES = { 16 * 1024, 64 * 1024, 256 * 1024, 1024 * 1024 };
+
+	public static void main(String[] args) throws Exception {
+		System.out.println("START");
+		try {
+			benchmark("byte-array chunks", false, null, false, 0);
+			benchmark("Base64 chunks", true, null, false, 0);
+
+			// Create test file
+			File file = File.createTempFile("stream", ".bin");
+			file.deleteOnExit();
+			try (FileOutputStream out = new FileOutputStream(file)) {
+				byte[] chunk = new byte[CHUNK_SIZE];
+				for (int i = 0; i < TRANSFER_SIZE / CHUNK_SIZE; i++) {
+					out.write(chunk);
+				}
+			}
+
+			// Throughput vs. chunk size
+			for (int size : CHUNK_SIZES) {
+				benchmark("InputStream, " + (size / 1024) + " KB chunks", true, file, false, size);
+			}
+			benchmark("InputStream, adaptive chunks", true, file, false, 0);
+			for (int size : CHUNK_SIZES) {
+				benchmark("zero-copy file regions, " + (size / 1024) + " KB chunks", true, file, true, size);
+			}
+			benchmark("zero-copy file regions, adaptive chunks", true, file, true, 0);
+			file.delete();
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+		System.out.println("STOP");
+	}
+
+	static void benchmark(String mode, boolean compactStreams, File file, boolean zeroCopy, int packetSize)
+			throws Exception {
+
+		// Create transporters
+		TcpTransporter t1 = new TcpTransporter();
+		TcpTransporter t2 = new TcpTransporter();
+		t1.setCompactStreams(compactStreams);
+		t2.setCompactStreams(compactStreams);
+		t1.setMaxPacketSize(MAX_PACKET_SIZE);
+		t2.setMaxPacketSize(MAX_PACKET_SIZE);
+
+		// Create Message Brokers
+		ServiceBroker broker1 = ServiceBroker.builder().transporter(t1).monitor(new ConstantMonitor())
+				.nodeID("sender").build();
+		ServiceBroker broker2 = ServiceBroker.builder().transporter(t2).monitor(new ConstantMonitor())
+				.nodeID("receiver").build();
+
+		// Deploy service
+		broker2.createService(new ReceiverService());
+
+		// Start Message Brokers
+		broker1.start();
+		broker2.start();
+		broker1.waitForServices("receiver").waitFor(20000);
+
+		// Send stream
+		byte[] chunk = new byte[CHUNK_SIZE];
+		long start = System.nanoTime();
+		PacketStream stream = broker1.createStream();
+		Promise rsp = broker1.call("receiver.receive", stream);
+		if (file == null) {
+			for (int i = 0; i < TRANSFER_SIZE / CHUNK_SIZE; i++) {
+				stream.sendData(chunk.clone());
+			}
+			stream.sendClose();
+		} else {
+			if (packetSize > 0) {
+				stream.setPacketSize(packetSize);
+				stream.setAdaptivePacketSize(false);
+			}
+			if (zeroCopy) {
+				stream.transferFrom(file);
+			} else {
+				stream.transferFrom(new FileInputStream(file));
+			}
+		}
+		Tree result = rsp.waitFor(120000);
+		long duration = System.nanoTime() - start;
+		long bytes = result.asLong();
+		System.out.println(mode + ": " + (bytes * 1000L / (duration / 1000L + 1)) + " bytes/sec");
+
+		// Stop Message Brokers
+		broker1.stop();
+		broker2.stop();
+	}
+
+	@Name("receiver")
+	public static class ReceiverService extends Service {
+
+		public Action receive = ctx -> {
+			long[] counter = new long[1];
+			return ctx.stream.transferTo(new OutputStream() {
+
+				@Override
+				public final void write(int b) throws IOException {
+					counter[0]++;
+				}
+
+				@Override
+				public final void write(byte[] b, int off, int len) throws IOException {
+					counter[0] += len;
+				}
+
+			}).then(in -> {
+				return counter[0];
+			});
+		};
+
+	};
+
+}
\ No newline at end of file
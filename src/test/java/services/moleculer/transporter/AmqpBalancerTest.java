@@ -0,0 +1,311 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2017 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.transporter;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.ConfirmListener;
+import com.rabbitmq.client.Connection;
+import com.rabbitmq.client.ConnectionFactory;
+import com.rabbitmq.client.Consumer;
+import com.rabbitmq.client.Envelope;
+
+import io.datatree.Tree;
+import junit.framework.TestCase;
+import services.moleculer.ServiceBroker;
+import services.moleculer.context.CallOptions;
+import services.moleculer.monitor.ConstantMonitor;
+import services.moleculer.service.Action;
+import services.moleculer.service.DefaultServiceRegistry;
+import services.moleculer.service.Name;
+import services.moleculer.service.Service;
+
+public class AmqpBalancerTest extends TestCase {
+
+	// --- VARIABLES ---
+
+	protected TestAmqpTransporter tr;
+	protected DefaultServiceRegistry sr;
+	protected ServiceBroker br;
+
+	// --- RECORDED AMQP OPERATIONS ---
+
+	protected final List<String[]> published = Collections.synchronizedList(new LinkedList<>());
+	protected final Set<String> queues = Collections.synchronizedSet(new HashSet<>());
+	protected final Map<String, Consumer> consumers = new ConcurrentHashMap<>();
+	protected final List<String> calls = Collections.synchronizedList(new LinkedList<>());
+	protected final List<ConfirmListener> confirmListeners = Collections.synchronizedList(new LinkedList<>());
+	protected final AtomicLong nextSeqNo = new AtomicLong(1);
+
+	// --- TEST METHODS ---
+
+	@Test
+	public void testBalancedRequests() throws Exception {
+
+		// Untargeted call -> shared queue of the action
+		published.clear();
+		br.call("test.test", (Tree) null);
+		List<String[]> requests = published("MOL.REQ");
+		assertEquals(1, requests.size());
+		assertEquals("", requests.get(0)[0]);
+		assertEquals("MOL.REQB.test.test", requests.get(0)[1]);
+
+		// Targeted call -> queue of the selected node
+		published.clear();
+		br.call("test.test", (Tree) null, CallOptions.nodeID("node3"));
+		requests = published("MOL.REQ");
+		assertEquals(1, requests.size());
+		assertEquals("MOL.REQ.node3", requests.get(0)[1]);
+
+		// Balanced request of a local action
+		assertTrue(queues.contains("MOL.REQB.local.echo"));
+		Consumer consumer = consumers.get("MOL.REQB.local.echo");
+		assertNotNull(consumer);
+		Tree req = new Tree();
+		req.put("ver", "3");
+		req.put("sender", "node2");
+		req.put("id", "123");
+		req.put("action", "local.echo");
+		req.put("params.a", 5);
+		published.clear();
+		consumer.handleDelivery("tag", new Envelope(1, false, "", "MOL.REQB.local.echo"), null,
+				tr.getSerializer().write(req));
+		List<String[]> responses = waitFor("MOL.RES");
+		assertEquals(1, responses.size());
+		assertEquals("MOL.RES.node2", responses.get(0)[1]);
+	}
+
+	@Test
+	public void testBalancedEvents() throws Exception {
+		Tree config = new Tree();
+		config.put("name", "listener");
+		Tree events = config.putMap("events");
+		events.putMap("test.event").put("name", "test.event").put("group", "group1");
+		br.getConfig().getEventbus().addListeners("node2", config);
+
+		published.clear();
+		br.emit("test.event", new Tree());
+		List<String[]> packets = published("MOL.EVENT");
+		assertEquals(1, packets.size());
+		assertEquals("", packets.get(0)[0]);
+		assertEquals("MOL.EVENTB.group1.test.event", packets.get(0)[1]);
+	}
+
+	@Test
+	public void testPublisherConfirms() throws Exception {
+		br.stop();
+		tr = new TestAmqpTransporter();
+		tr.setPublisherConfirms(true);
+		tr.setConfirmTimeout(60000);
+		createBroker();
+		assertFalse(confirmListeners.isEmpty());
+
+		// Publishers never wait for the confirms
+		published.clear();
+		for (int i = 0; i < 5; i++) {
+			br.call("test.test", (Tree) null);
+		}
+		assertEquals(5, published("MOL.REQ").size());
+		synchronized (calls) {
+			for (String call : calls) {
+				assertFalse(call.startsWith("waitForConfirms"));
+			}
+		}
+
+		// Unconfirmed messages
+		long now = System.currentTimeMillis();
+		tr.checkConfirms(now);
+		assertEquals(0, tr.reconnects.get());
+		tr.checkConfirms(now + 120000);
+		assertEquals(1, tr.reconnects.get());
+
+		// Confirmed by the AMQP server
+		long lastTag = nextSeqNo.get() - 1;
+		synchronized (confirmListeners) {
+			for (ConfirmListener listener : confirmListeners) {
+				listener.handleAck(lastTag, true);
+			}
+		}
+		tr.checkConfirms(now + 120000);
+		assertEquals(1, tr.reconnects.get());
+	}
+
+	// --- TEST TRANSPORTER ---
+
+	protected class TestAmqpTransporter extends AmqpTransporter {
+
+		protected final AtomicInteger reconnects = new AtomicInteger();
+
+		protected TestAmqpTransporter() {
+			setBuiltInBalancer(true);
+			setFactory(new ConnectionFactory() {
+
+				@Override
+				public final Connection newConnection() {
+					return mock(Connection.class, (proxy, method, args) -> {
+						if ("createChannel".equals(method.getName())) {
+							return createChannel();
+						}
+						return null;
+					});
+				}
+
+			});
+		}
+
+		@Override
+		protected void reconnect() {
+			reconnects.incrementAndGet();
+		}
+
+	}
+
+	protected Channel createChannel() {
+		return mock(Channel.class, (proxy, method, args) -> {
+			String name = method.getName();
+			calls.add(name);
+			switch (name) {
+			case "basicPublish":
+				published.add(new String[] { (String) args[0], (String) args[1] });
+				nextSeqNo.incrementAndGet();
+				return null;
+			case "getNextPublishSeqNo":
+				return nextSeqNo.get();
+			case "addConfirmListener":
+				confirmListeners.add((ConfirmListener) args[0]);
+				return null;
+			case "queueDeclareNoWait":
+				queues.add((String) args[0]);
+				return null;
+			case "basicConsume":
+				consumers.put((String) args[0], (Consumer) args[args.length - 1]);
+				return "tag";
+			default:
+				return null;
+			}
+		});
+	}
+
+	protected List<String[]> published(String prefix) {
+		LinkedList<String[]> list = new LinkedList<>();
+		synchronized (published) {
+			for (String[] message : published) {
+				if (message[1].startsWith(prefix)) {
+					list.add(message);
+				}
+			}
+		}
+		return list;
+	}
+
+	protected List<String[]> waitFor(String prefix) throws InterruptedException {
+		List<String[]> list = published(prefix);
+		for (int i = 0; i < 20 && list.isEmpty(); i++) {
+			Thread.sleep(100);
+			list = published(prefix);
+		}
+		return list;
+	}
+
+	@SuppressWarnings("unchecked")
+	protected static <T> T mock(Class<T> type, InvocationHandler handler) {
+		return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class[] { type }, (proxy, method, args) -> {
+			Object value = handler.invoke(proxy, method, args);
+			if (value == null && method.getReturnType().isPrimitive()) {
+				Class<?> returnType = method.getReturnType();
+				if (returnType == boolean.class) {
+					return false;
+				}
+				if (returnType == long.class) {
+					return 0L;
+				}
+				if (returnType == int.class) {
+					return 0;
+				}
+			}
+			return value;
+		});
+	}
+
+	// --- SET UP ---
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	protected void createBroker() throws Exception {
+		sr = new DefaultServiceRegistry();
+		br = ServiceBroker.builder().monitor(new ConstantMonitor()).registry(sr).transporter(tr).nodeID("local")
+				.build();
+		br.start();
+		for (int i = 1; i < 4; i++) {
+			Tree root = new Tree();
+			Tree config = root.putMap("node" + i);
+			Tree actions = config.putMap("actions");
+			LinkedHashMap<String, Object> action = new LinkedHashMap<>();
+			action.put("name", "test.test");
+			((Map) actions.asObject()).put("test.test", action);
+			sr.addActions("node" + i, config);
+		}
+		br.createService(new LocalService());
+	}
+
+	@Name("local")
+	protected static class LocalService extends Service {
+
+		public Action echo = ctx -> {
+			return ctx.params;
+		};
+
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		tr = new TestAmqpTransporter();
+		createBroker();
+	}
+
+	// --- TEAR DOWN ---
+
+	@Override
+	protected void tearDown() throws Exception {
+		if (br != null) {
+			br.stop();
+		}
+	}
+
+}
\ No newline at end of file
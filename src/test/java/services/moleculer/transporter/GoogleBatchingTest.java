@@ -0,0 +1,161 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2017 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.transporter;
+
+import java.util.LinkedList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutures;
+import com.google.api.gax.core.FixedExecutorProvider;
+import com.google.api.gax.core.NoCredentialsProvider;
+import com.google.api.gax.grpc.GrpcTransportChannel;
+import com.google.api.gax.rpc.FixedTransportChannelProvider;
+import com.google.cloud.pubsub.v1.Publisher;
+import com.google.protobuf.ByteString;
+import com.google.pubsub.v1.PublishRequest;
+import com.google.pubsub.v1.PublishResponse;
+import com.google.pubsub.v1.PublisherGrpc;
+import com.google.pubsub.v1.PubsubMessage;
+
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import junit.framework.TestCase;
+
+/**
+ * Tests the batching settings of GoogleTransporter with a local, in-process
+ * Pub/Sub "Publisher" service.
+ */
+public class GoogleBatchingTest extends TestCase {
+
+	// --- VARIABLES ---
+
+	protected final AtomicInteger publishCalls = new AtomicInteger();
+	protected final AtomicInteger receivedMessages = new AtomicInteger();
+
+	protected Server server;
+	protected ManagedChannel channel;
+	protected ScheduledExecutorService executor;
+
+	// --- TEST METHODS ---
+
+	@Test
+	public void testBatching() throws Exception {
+
+		// Without batching
+		assertEquals(200, publish(1, 200));
+
+		// Batches of 50 messages
+		assertEquals(4, publish(50, 200));
+
+		// Batches of 100 messages
+		assertEquals(2, publish(100, 200));
+	}
+
+	@Test
+	public void testFlowControlSettings() throws Exception {
+		GoogleTransporter tr = new GoogleTransporter();
+		assertNull(tr.createFlowControlSettings());
+		tr.setMaxOutstandingMessages(500);
+		tr.setMaxOutstandingBytes(1024 * 1024);
+		assertEquals(500L, (long) tr.createFlowControlSettings().getMaxOutstandingElementCount());
+		assertEquals(1024L * 1024L, (long) tr.createFlowControlSettings().getMaxOutstandingRequestBytes());
+	}
+
+	// --- UTILITIES ---
+
+	protected int publish(long batchElementCount, int messages) throws Exception {
+		publishCalls.set(0);
+		receivedMessages.set(0);
+
+		GoogleTransporter tr = new GoogleTransporter();
+		tr.setProjectID("test");
+		tr.setChannelProvider(FixedTransportChannelProvider.create(GrpcTransportChannel.create(channel)));
+		tr.setCredentialsProvider(NoCredentialsProvider.create());
+		tr.setExecutorProvider(FixedExecutorProvider.create(executor));
+		tr.setBatchElementCount(batchElementCount);
+		tr.setBatchRequestBytes(1024 * 1024);
+		tr.setBatchDelayThreshold(1000);
+
+		Publisher publisher = tr.getOrCreatePublisher("MOL.EVENT");
+		LinkedList<ApiFuture<String>> futures = new LinkedList<>();
+		for (int i = 0; i < messages; i++) {
+			futures.add(publisher.publish(PubsubMessage.newBuilder().setData(ByteString.copyFromUtf8("msg" + i)).build()));
+		}
+		ApiFutures.allAsList(futures).get(10, TimeUnit.SECONDS);
+		publisher.shutdown();
+
+		assertEquals(messages, receivedMessages.get());
+		return publishCalls.get();
+	}
+
+	// --- START LOCAL PUB/SUB SERVICE ---
+
+	@Override
+	protected void setUp() throws Exception {
+		String name = "pubsub-" + System.nanoTime();
+		server = InProcessServerBuilder.forName(name).directExecutor().addService(new PublisherGrpc.PublisherImplBase() {
+
+			@Override
+			public void publish(PublishRequest request, StreamObserver<PublishResponse> responseObserver) {
+				publishCalls.incrementAndGet();
+				PublishResponse.Builder response = PublishResponse.newBuilder();
+				for (int i = 0; i < request.getMessagesCount(); i++) {
+					response.addMessageIds(Integer.toString(receivedMessages.incrementAndGet()));
+				}
+				responseObserver.onNext(response.build());
+				responseObserver.onCompleted();
+			}
+
+		}).build().start();
+		channel = InProcessChannelBuilder.forName(name).usePlaintext().build();
+		executor = Executors.newScheduledThreadPool(4);
+	}
+
+	// --- STOP LOCAL PUB/SUB SERVICE ---
+
+	@Override
+	protected void tearDown() throws Exception {
+		if (channel != null) {
+			channel.shutdownNow();
+		}
+		if (server != null) {
+			server.shutdownNow();
+		}
+		if (executor != null) {
+			executor.shutdownNow();
+		}
+	}
+
+}
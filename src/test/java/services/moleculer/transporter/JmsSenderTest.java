@@ -0,0 +1,95 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2017 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.transporter;
+
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.jms.TopicConnection;
+
+import org.junit.Test;
+
+import io.datatree.Tree;
+import junit.framework.TestCase;
+
+public class JmsSenderTest extends TestCase {
+
+	@Test
+	public void testQueueOverflow() throws Exception {
+		CountDownLatch blocked = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		List<String> sent = Collections.synchronizedList(new LinkedList<>());
+		JmsTransporter tr = new JmsTransporter() {
+
+			@Override
+			protected void send(String channel, byte[] bytes) throws Exception {
+				sent.add(channel + ':' + Thread.currentThread().getName());
+				if (channel.endsWith("first")) {
+					blocked.countDown();
+					release.await();
+				}
+			}
+
+		};
+		tr.setAsyncSend(true);
+		tr.setSendQueueSize(2);
+		tr.client = (TopicConnection) Proxy.newProxyInstance(TopicConnection.class.getClassLoader(),
+				new Class[] { TopicConnection.class }, (proxy, method, args) -> null);
+		tr.sender = tr.createSender();
+		String caller = Thread.currentThread().getName();
+
+		// Block the sender thread
+		tr.publish("MOL.REQ.first", new Tree());
+		assertTrue(blocked.await(5, TimeUnit.SECONDS));
+
+		// Fill the queue of the sender thread
+		tr.publish("MOL.REQ.queued1", new Tree());
+		tr.publish("MOL.REQ.queued2", new Tree());
+		assertEquals(1, sent.size());
+
+		// The queue is full, the message is sent by the caller
+		tr.publish("MOL.REQ.overflow", new Tree());
+		assertEquals(2, sent.size());
+		assertEquals("MOL.REQ.overflow:" + caller, sent.get(1));
+
+		// Nothing is lost
+		release.countDown();
+		tr.sender.shutdown();
+		assertTrue(tr.sender.awaitTermination(5, TimeUnit.SECONDS));
+		assertEquals(4, sent.size());
+		assertTrue(sent.contains("MOL.REQ.queued1:JMS Message Sender"));
+		assertTrue(sent.contains("MOL.REQ.queued2:JMS Message Sender"));
+
+		// The stopped sender rejects the messages
+		tr.publish("MOL.REQ.stopped", new Tree());
+		assertEquals(4, sent.size());
+	}
+
+}
\ No newline at end of file
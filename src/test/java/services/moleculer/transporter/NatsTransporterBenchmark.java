@@ -0,0 +1,117 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2017 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.transporter;
+
+import java.util.LinkedList;
+
+import io.datatree.Promise;
+import services.moleculer.ServiceBroker;
+import services.moleculer.service.Action;
+import services.moleculer.service.Name;
+import services.moleculer.service.Service;
+
+/**
+ * Throughput benchmark of the NatsTransporter's publishing modes. Requires a
+ * local NATS server (eg. "gnatsd" on port 4222).
+ */
+public class NatsTransporterBenchmark {
+
+	// --- BENCHMARK PARAMETERS ---
+
+	static final int WARMUP = 10000;
+	static final int CALLS = 100000;
+	static final int WINDOW = 500;
+
+	public static void main(String[] args) throws Exception {
+		System.out.println("START");
+		try {
+			benchmark("synchronous publish", false, false);
+			benchmark("async publish", true, false);
+			benchmark("async publish + queue groups", true, true);
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+		System.out.println("STOP");
+	}
+
+	static void benchmark(String mode, boolean asyncPublish, boolean queueGroups) throws Exception {
+
+		// Create Message Brokers
+		NatsTransporter t1 = new NatsTransporter();
+		NatsTransporter t2 = new NatsTransporter();
+		t1.setAsyncPublish(asyncPublish);
+		t2.setAsyncPublish(asyncPublish);
+		t1.setQueueGroups(queueGroups);
+		t2.setQueueGroups(queueGroups);
+
+		ServiceBroker broker1 = ServiceBroker.builder().transporter(t1).nodeID("client").build();
+		ServiceBroker broker2 = ServiceBroker.builder().transporter(t2).nodeID("server").build();
+
+		// Deploy service
+		broker2.createService(new EchoService());
+
+		// Start Message Brokers
+		broker1.start();
+		broker2.start();
+		broker1.waitForServices("echo").waitFor(5000);
+
+		// Warm up
+		invoke(broker1, WARMUP);
+
+		// Measure throughput
+		long start = System.nanoTime();
+		invoke(broker1, CALLS);
+		long duration = System.nanoTime() - start;
+		System.out.println(mode + ": " + (CALLS * 1000000000L / duration) + " calls/sec");
+
+		// Stop Message Brokers
+		broker1.stop();
+		broker2.stop();
+	}
+
+	static void invoke(ServiceBroker broker, int calls) throws Exception {
+		LinkedList<Promise> window = new LinkedList<>();
+		for (int i = 0; i < calls; i++) {
+			window.addLast(broker.call("echo.echo", "a", i));
+			if (window.size() >= WINDOW) {
+				window.removeFirst().waitFor(10000);
+			}
+		}
+		for (Promise promise : window) {
+			promise.waitFor(10000);
+		}
+	}
+
+	@Name("echo")
+	public static class EchoService extends Service {
+
+		public Action echo = ctx -> {
+			return ctx.params;
+		};
+
+	};
+
+}
@@ -0,0 +1,315 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2017 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.transporter.tcp;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+
+import io.datatree.Tree;
+import junit.framework.TestCase;
+import services.moleculer.context.Context;
+import services.moleculer.service.DefaultServiceRegistry;
+import services.moleculer.stream.FileSource;
+import services.moleculer.transporter.TcpTransporter;
+import services.moleculer.transporter.Transporter;
+
+public class StreamFrameTest extends TestCase {
+
+	// --- VARIABLES ---
+
+	protected File file;
+	protected FileChannel channel;
+	protected FileSource source;
+	protected TestTransporter tr;
+	protected TestWriter writer;
+	protected TestRegistry registry;
+	protected ExecutorService executor;
+
+	// --- TEST METHODS ---
+
+	@Test
+	public void testRoundTrip() throws Exception {
+		Context ctx = new Context(null, null, "id1", "test.action", new Tree(), null, null);
+		tr.sendFileDataPacket(Transporter.PACKET_REQUEST, "node2", ctx, source, 10, 50, 7);
+		assertEquals(1, writer.regions.size());
+		assertTrue(writer.packets.isEmpty());
+
+		// Frame header
+		byte[] frame = toByteArray(writer.regions.removeFirst());
+		assertEquals(9, frame[5]);
+		int length = ((0xFF & frame[1]) << 24) | ((0xFF & frame[2]) << 16) | ((0xFF & frame[3]) << 8)
+				| (0xFF & frame[4]);
+		assertEquals(frame.length, length);
+		assertEquals(frame[0], (byte) (frame[1] ^ frame[2] ^ frame[3] ^ frame[4] ^ frame[5]));
+
+		// Header block
+		int len = ((0xFF & frame[6]) << 8) | (0xFF & frame[7]);
+		assertEquals(frame.length - 8 - 50, len);
+		Tree header = tr.getSerializer().read(Arrays.copyOfRange(frame, 8, 8 + len));
+		assertEquals("node1", header.get("sender", ""));
+		assertEquals("id1", header.get("id", ""));
+		assertEquals(Transporter.PACKET_REQUEST, header.get("cmd", ""));
+		long seq = header.get("seq", 0L);
+		assertEquals(7, seq);
+
+		// Receive frame (without the 6-byte packet header)
+		tr.receiveStreamFrame(Arrays.copyOfRange(frame, 6, frame.length), 0);
+		assertEquals(1, registry.requests.size());
+		Tree msg = registry.requests.removeFirst();
+		assertEquals("node1", msg.get("sender", ""));
+		assertEquals("id1", msg.get("id", ""));
+		assertTrue(msg.get("stream", false));
+		seq = msg.get("meta.seq", 0L);
+		assertEquals(7, seq);
+		byte[] data = msg.get("params.data", (byte[]) null);
+		assertEquals(50, data.length);
+		for (int i = 0; i < data.length; i++) {
+			assertEquals((byte) (i + 10), data[i]);
+		}
+
+		// Response stream
+		tr.sendFileDataPacket(Transporter.PACKET_RESPONSE, "node2", ctx, source, 0, 1, 8);
+		frame = toByteArray(writer.regions.removeFirst());
+		tr.receiveStreamFrame(Arrays.copyOfRange(frame, 6, frame.length), 0);
+		assertTrue(registry.requests.isEmpty());
+		assertEquals(1, registry.responses.size());
+		seq = registry.responses.removeFirst().get("meta.seq", 0L);
+		assertEquals(8, seq);
+	}
+
+	@Test
+	public void testFallback() throws Exception {
+		Context ctx = new Context(null, null, "id2", "test.action", new Tree(), null, null);
+
+		// The node does not advertise binary frames
+		tr.sendFileDataPacket(Transporter.PACKET_REQUEST, "node3", ctx, source, 0, 10, 1);
+		assertTrue(writer.regions.isEmpty());
+		assertEquals(1, writer.packets.size());
+		assertFalse(writer.packets.removeFirst()[5] == 9);
+
+		// Unknown node
+		tr.sendFileDataPacket(Transporter.PACKET_REQUEST, "node4", ctx, source, 0, 10, 2);
+		assertTrue(writer.regions.isEmpty());
+		assertEquals(1, writer.packets.size());
+		writer.packets.clear();
+
+		// Zero-copy transfer is disabled
+		tr.setZeroCopyStreams(false);
+		tr.sendFileDataPacket(Transporter.PACKET_REQUEST, "node2", ctx, source, 0, 10, 3);
+		assertTrue(writer.regions.isEmpty());
+		assertEquals(1, writer.packets.size());
+		writer.packets.clear();
+
+		// The file is not retained by the regular data packets
+		source.release();
+		assertFalse(channel.isOpen());
+	}
+
+	@Test
+	public void testHeaderLimit() throws Exception {
+
+		// Header block longer than 65535 bytes -> regular data packet
+		char[] chars = new char[70000];
+		Arrays.fill(chars, 'x');
+		Context ctx = new Context(null, null, new String(chars), "test.action", new Tree(), null, null);
+		tr.sendFileDataPacket(Transporter.PACKET_REQUEST, "node2", ctx, source, 0, 10, 1);
+		assertTrue(writer.regions.isEmpty());
+		assertEquals(1, writer.packets.size());
+		assertFalse(writer.packets.removeFirst()[5] == 9);
+
+		// Largest header block
+		ctx = new Context(null, null, new String(chars, 0, 1000), "test.action", new Tree(), null, null);
+		tr.sendFileDataPacket(Transporter.PACKET_REQUEST, "node2", ctx, source, 0, 10, 2);
+		byte[] frame = toByteArray(writer.regions.removeFirst());
+		int len = ((0xFF & frame[6]) << 8) | (0xFF & frame[7]);
+		assertTrue(len > 1000);
+		tr.receiveStreamFrame(Arrays.copyOfRange(frame, 6, frame.length), 0);
+		assertEquals(1000, registry.requests.removeFirst().get("id", "").length());
+	}
+
+	@Test
+	public void testReleaseOnFailure() throws Exception {
+		TcpWriter failing = new TcpWriter(tr);
+
+		// Unknown address
+		source.retain();
+		failing.send("node2", new FileRegion(ByteBuffer.wrap(new byte[8]), source, 0, 10));
+
+		// Unable to create the send buffer
+		tr.failing = true;
+		source.retain();
+		failing.send("node2", new FileRegion(ByteBuffer.wrap(new byte[8]), source, 0, 10));
+
+		// Missing nodeID
+		source.retain();
+		failing.send(null, new FileRegion(ByteBuffer.wrap(new byte[8]), source, 0, 10));
+
+		// All regions are released
+		source.release();
+		assertFalse(channel.isOpen());
+	}
+
+	@Test
+	public void testReleaseRegions() throws Exception {
+		SendBuffer buffer = new SendBuffer("node2", "localhost", 1, false);
+		source.retain();
+		FileRegion region = new FileRegion(ByteBuffer.wrap(new byte[8]), source, 0, 10);
+		assertTrue(buffer.append(region));
+
+		// Closed connection
+		buffer.close();
+		source.release();
+		assertFalse(channel.isOpen());
+	}
+
+	protected byte[] toByteArray(FileRegion region) throws Exception {
+		byte[] header = new byte[region.header.remaining()];
+		region.header.duplicate().get(header);
+		byte[] content = region.source.read(region.position, (int) (region.end - region.position));
+		byte[] frame = new byte[header.length + content.length];
+		System.arraycopy(header, 0, frame, 0, header.length);
+		System.arraycopy(content, 0, frame, header.length, content.length);
+		region.release();
+		return frame;
+	}
+
+	// --- TEST COMPONENTS ---
+
+	protected static final class TestTransporter extends TcpTransporter {
+
+		protected volatile boolean failing;
+
+		protected TestTransporter(TestWriter writer, TestRegistry registry, ExecutorService executor) {
+			this.nodeID = "node1";
+			this.writer = writer;
+			this.registry = registry;
+			this.executor = executor;
+			NodeDescriptor node2 = new NodeDescriptor("node2", false, false);
+			node2.info.put("client.streamFrames", STREAM_FRAMES_BINARY);
+			nodes.put("node2", node2);
+			nodes.put("node3", new NodeDescriptor("node3", false, false));
+		}
+
+		@Override
+		protected void receiveStreamFrame(byte[] packet, long receivedAt) throws Exception {
+			super.receiveStreamFrame(packet, receivedAt);
+		}
+
+		@Override
+		public RemoteAddress getAddress(String nodeID) {
+			if (failing) {
+				throw new IllegalStateException("Unable to resolve address!");
+			}
+			return null;
+		}
+
+		@Override
+		public void unableToSend(String nodeID, LinkedList<byte[]> packets, Throwable cause) {
+		}
+
+	}
+
+	protected static final class TestWriter extends TcpWriter {
+
+		protected final LinkedList<FileRegion> regions = new LinkedList<>();
+		protected final LinkedList<byte[]> packets = new LinkedList<>();
+
+		protected TestWriter() {
+			super(new TcpTransporter());
+		}
+
+		@Override
+		public void send(String nodeID, byte[] packet) {
+			packets.addLast(packet);
+		}
+
+		@Override
+		public void send(String nodeID, FileRegion region) {
+			regions.addLast(region);
+		}
+
+	}
+
+	protected static final class TestRegistry extends DefaultServiceRegistry {
+
+		protected final LinkedList<Tree> requests = new LinkedList<>();
+		protected final LinkedList<Tree> responses = new LinkedList<>();
+
+		@Override
+		public void receiveRequest(Tree message, long receivedAt) {
+			requests.addLast(message);
+		}
+
+		@Override
+		public void receiveResponse(Tree message) {
+			responses.addLast(message);
+		}
+
+	}
+
+	// --- SET UP ---
+
+	@Override
+	protected void setUp() throws Exception {
+		file = File.createTempFile("stream-frame", ".bin");
+		byte[] bytes = new byte[100];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = (byte) i;
+		}
+		Files.write(file.toPath(), bytes);
+		channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		source = new FileSource(channel);
+		executor = Executors.newSingleThreadExecutor();
+		writer = new TestWriter();
+		registry = new TestRegistry();
+		tr = new TestTransporter(writer, registry, executor);
+	}
+
+	// --- TEAR DOWN ---
+
+	@Override
+	protected void tearDown() throws Exception {
+		if (channel != null) {
+			channel.close();
+		}
+		if (executor != null) {
+			executor.shutdownNow();
+		}
+		if (file != null) {
+			file.delete();
+		}
+	}
+
+}
\ No newline at end of file
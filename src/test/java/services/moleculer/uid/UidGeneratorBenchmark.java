@@ -0,0 +1,83 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2017 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.uid;
+
+/**
+ * Multi-threaded throughput benchmark of the UID Generators.
+ */
+public class UidGeneratorBenchmark {
+
+	// --- BENCHMARK PARAMETERS ---
+
+	static final int THREADS = Runtime.getRuntime().availableProcessors();
+	static final int WARMUP = 1000000;
+	static final int CALLS = 5000000;
+
+	public static void main(String[] args) throws Exception {
+		System.out.println("START");
+		try {
+			benchmark(new IncrementalUidGenerator());
+			benchmark(new StandardUidGenerator());
+			benchmark(new StripedUidGenerator());
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+		System.out.println("STOP");
+	}
+
+	static void benchmark(UidGenerator generator) throws Exception {
+
+		// Warm up
+		run(generator, WARMUP);
+
+		// Measure throughput
+		long start = System.nanoTime();
+		run(generator, CALLS);
+		long duration = System.nanoTime() - start;
+		System.out.println(generator.getClass().getSimpleName() + " (" + THREADS + " threads): "
+				+ ((long) THREADS * CALLS * 1000L / (duration / 1000000L + 1)) + " UIDs/sec");
+	}
+
+	static void run(UidGenerator generator, int calls) throws Exception {
+		Thread[] threads = new Thread[THREADS];
+		for (int i = 0; i < THREADS; i++) {
+			threads[i] = new Thread(() -> {
+				int length = 0;
+				for (int j = 0; j < calls; j++) {
+					length += generator.nextUID().length();
+				}
+				if (length == 0) {
+					System.out.println("Invalid UIDs!");
+				}
+			});
+			threads[i].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+	}
+
+}
\ No newline at end of file
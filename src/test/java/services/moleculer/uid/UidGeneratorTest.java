@@ -26,6 +26,8 @@
 package services.moleculer.uid;
 
 import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.junit.Test;
 
@@ -37,6 +39,39 @@ public class UidGeneratorTest extends TestCase {
 	public void testUidGenerators() throws Exception {
 		testGenerator(new IncrementalUidGenerator());
 		testGenerator(new StandardUidGenerator());
+		testGenerator(new StripedUidGenerator());
+	}
+
+	@Test
+	public void testStripedUidGenerator() throws Exception {
+		StripedUidGenerator gen = new StripedUidGenerator();
+		gen.setPrefix("node1:");
+		gen.setBlockSize(10);
+
+		// Fixed-length IDs
+		String uid = gen.nextUID();
+		assertTrue(uid.startsWith("node1:"));
+		assertEquals(17, uid.length());
+
+		// Sortable IDs (in the same block)
+		String next = gen.nextUID();
+		assertTrue(uid.compareTo(next) < 0);
+
+		// Unique IDs from multiple threads
+		Set<String> set = ConcurrentHashMap.newKeySet();
+		Thread[] threads = new Thread[8];
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread(() -> {
+				for (int j = 0; j < 1000; j++) {
+					set.add(gen.nextUID());
+				}
+			});
+			threads[i].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertEquals(8000, set.size());
 	}
 
 	protected void testGenerator(UidGenerator gen) throws Exception {